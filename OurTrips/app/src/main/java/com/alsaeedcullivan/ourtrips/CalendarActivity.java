@@ -2,35 +2,45 @@ package com.alsaeedcullivan.ourtrips;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 
 import android.content.Intent;
 import android.os.AsyncTask;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.Trace;
+import android.view.Gravity;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.ProgressBar;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import com.alsaeedcullivan.ourtrips.adapters.HeatMapDecorator;
+import com.alsaeedcullivan.ourtrips.adapters.SelectionDecorator;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
-import com.alsaeedcullivan.ourtrips.models.UserSummary;
+import com.alsaeedcullivan.ourtrips.fragments.CustomDialogFragment;
+import com.alsaeedcullivan.ourtrips.models.Availability;
+import com.alsaeedcullivan.ourtrips.models.AvailabilityRule;
+import com.alsaeedcullivan.ourtrips.models.AvailabilitySchedule;
+import com.alsaeedcullivan.ourtrips.models.GroupMatch;
+import com.alsaeedcullivan.ourtrips.models.TripWindow;
+import com.alsaeedcullivan.ourtrips.utils.AvailabilityCodec;
 import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.alsaeedcullivan.ourtrips.utils.DateCodec;
+import com.alsaeedcullivan.ourtrips.utils.WindowFinder;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.squareup.timessquare.CalendarCellDecorator;
 import com.squareup.timessquare.CalendarPickerView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * This library uses the CalendarPickerView from the Times Square open source library.
@@ -43,11 +53,17 @@ public class CalendarActivity extends AppCompatActivity {
 
     // savedInstanceState keys
     private static final String DATE_LIST_KEY = "date_list_key";
+    private static final String SELECTED_BASE_KEY = "selected_base";
     private static final String MATCHED_KEY = "matched_dates";
     private static final String SOURCE_KEY = "source";
     private static final String RECENT_KEY = "recent";
-    private static final String FRIEND_KEY = "friend";
     private static final String NAME_KEY = "user_name";
+    private static final String LOADED_KEY = "loaded";
+    private static final String LOADED_BASE_KEY = "loaded_base";
+    private static final String RULES_KEY = "rules";
+    private static final String RULES_CHANGED_KEY = "rules_changed";
+    // the number of trip windows that are suggested
+    private static final int MAX_WINDOWS = 5;
 
     private FirebaseUser mUser;
     private String mUserName;
@@ -56,12 +72,23 @@ public class CalendarActivity extends AppCompatActivity {
     private ProgressBar mSpinner;
     private TextView mLoading;
     private Date mRecent;
-    private long[] mMatched;
-    private HashSet<Date> mSet;
-    private UserSummary mFriend;
-    private List<String> sDates = new ArrayList<>();
-    private List<Date> mRealDates = new ArrayList<>();
-    private List<Date> mUserSetDates = new ArrayList<>();
+    private GroupMatch mMatch;
+    private List<TripWindow> mWindows = new ArrayList<>();
+    private int mWindowLength;
+    private int mMinAttendees;
+    private DocumentSnapshot mUserDoc;
+    // the days the user was available when the calendar was loaded, edits are saved relative to this
+    private Availability mLoaded = new Availability();
+    // the days the user picked together with their recurring rules
+    private AvailabilitySchedule mSchedule = new AvailabilitySchedule();
+    private boolean mRulesChanged;
+    // the epoch day of the first day of the calendar and the number of days it displays
+    private int mFirstDay;
+    private int mDays;
+    // the days that are selected in the calendar, drawn by a SelectionDecorator
+    private Availability mSelected = new Availability();
+    // the days that were selected when the user clicked save
+    private Availability mUserSetDates;
 
 
     @Override
@@ -93,6 +120,8 @@ public class CalendarActivity extends AppCompatActivity {
         nextYear.add(Calendar.YEAR, 1);
         Date today = new Date();
         mCalView.init(today, nextYear.getTime()).inMode(CalendarPickerView.SelectionMode.MULTIPLE);
+        mFirstDay = DateCodec.toEpochDay(today);
+        mDays = DateCodec.toEpochDay(nextYear.getTime()) - mFirstDay;
 
         // get the source
         Intent intent = getIntent();
@@ -102,39 +131,22 @@ public class CalendarActivity extends AppCompatActivity {
         // SET UP THE CALENDAR
 
         // MATCH MODE
-        if (source != null && source.equals(Const.MATCH_TAG) && savedInstanceState != null &&
-                savedInstanceState.getLongArray(MATCHED_KEY) != null && savedInstanceState
-                .getParcelable(FRIEND_KEY) != null && savedInstanceState.getString(NAME_KEY) != null) {
+        if (source != null && source.equals(Const.MATCH_TAG)) {
             mHeader.setText(R.string.click_matched);
-            mMatched = savedInstanceState.getLongArray(MATCHED_KEY);
-            mFriend = savedInstanceState.getParcelable(FRIEND_KEY);
-            mUserName = savedInstanceState.getString(NAME_KEY);
-            mSet = new HashSet<>();
-            if (mMatched != null && mMatched.length > 0) {
-                // select all of the matched dates
-                for (int i = mMatched.length - 1; i >= 0; i--) {
-                    Date d = new Date(mMatched[i]);
-                    mCalView.selectDate(d);
-                    mSet.add(d);
-                }
-                mCalView.setDateSelectableFilter(nonSelectable());
-                mCalView.setOnInvalidDateSelectedListener(proceedToRequest());
-                makeCalAppear();
+            // restore the match if the instance state has been saved
+            if (savedInstanceState != null && savedInstanceState.getParcelable(MATCHED_KEY) != null) {
+                mMatch = savedInstanceState.getParcelable(MATCHED_KEY);
+                mUserName = savedInstanceState.getString(NAME_KEY);
+            } else {
+                mMatch = intent.getParcelableExtra(Const.GROUP_MATCH_TAG);
+                mUserName = intent.getStringExtra(Const.USER_NAME_TAG);
             }
-        }
-        else if (source != null && source.equals(Const.MATCH_TAG)) {
-            mHeader.setText(R.string.click_matched);
-            mMatched = intent.getLongArrayExtra(Const.MATCH_ARR_TAG);
-            mFriend = intent.getParcelableExtra(Const.SELECTED_FRIEND_TAG);
-            mUserName = intent.getStringExtra(Const.USER_NAME_TAG);
-            mSet = new HashSet<>();
-            if (mMatched != null && mMatched.length > 0) {
-                // select all of the matched dates
-                for (int i = mMatched.length - 1; i >= 0; i--) {
-                    Date d = new Date(mMatched[i]);
-                    mCalView.selectDate(d);
-                    mSet.add(d);
-                }
+            if (mMatch != null) {
+                // highlight all of the matched dates with a heat map
+                List<CalendarCellDecorator> decorators = new ArrayList<>();
+                decorators.add(new HeatMapDecorator(mMatch, ContextCompat.getColor(this,
+                        R.color.colorAccent)));
+                mCalView.setDecorators(decorators);
                 mCalView.setDateSelectableFilter(nonSelectable());
                 mCalView.setOnInvalidDateSelectedListener(proceedToRequest());
                 makeCalAppear();
@@ -143,22 +155,21 @@ public class CalendarActivity extends AppCompatActivity {
         // SELECT MODE
         // if there was already a list of selected dates in select mode no need to load from the database
         else if (savedInstanceState != null && savedInstanceState.getLongArray(DATE_LIST_KEY) != null) {
-            long[] times = savedInstanceState.getLongArray(DATE_LIST_KEY);
-            if (times != null) {
-                // select the dates that were saved in savedInstanceState
-                for (int i = times.length - 1; i >= 0; i--) {
-                    mCalView.selectDate(new Date(times[i]));
-                }
-                // make sure it focuses in on the date they most recently pressed
-                if (savedInstanceState.getLong(RECENT_KEY) != 0) {
-                    mRecent = new Date(savedInstanceState.getLong(RECENT_KEY));
-                    mCalView.scrollToDate(mRecent);
-                }
-                mCalView.setOnInvalidDateSelectedListener(doNothing());
-                mCalView.setOnDateSelectedListener(maintainRecent());
-                // show the calendar
-                makeCalAppear();
+            long[] selected = savedInstanceState.getLongArray(DATE_LIST_KEY);
+            long[] loaded = savedInstanceState.getLongArray(LOADED_KEY);
+            if (loaded != null) mLoaded = new Availability(savedInstanceState.getInt(LOADED_BASE_KEY), loaded);
+            mSchedule = new AvailabilitySchedule(mLoaded, fromInts(savedInstanceState.getIntArray(RULES_KEY)));
+            mRulesChanged = savedInstanceState.getBoolean(RULES_CHANGED_KEY);
+            // restore the dates that were selected
+            mSelected = new Availability(savedInstanceState.getInt(SELECTED_BASE_KEY), selected);
+            showSelection();
+            // make sure it focuses in on the date they most recently pressed
+            if (savedInstanceState.getLong(RECENT_KEY) != 0) {
+                mRecent = new Date(savedInstanceState.getLong(RECENT_KEY));
+                mCalView.scrollToDate(mRecent);
             }
+            // show the calendar
+            makeCalAppear();
         }
         // get the list of dates from the db that the user is available
         else if (mUser != null) new GetDatesTask().execute();
@@ -170,6 +181,8 @@ public class CalendarActivity extends AppCompatActivity {
         String extra = getIntent().getStringExtra(Const.SOURCE_TAG);
         if (extra != null && extra.equals(Const.MATCH_TAG)) {
             menu.findItem(R.id.cal_save_button).setVisible(false);
+            menu.findItem(R.id.repeat_button).setVisible(false);
+            menu.findItem(R.id.best_windows_button).setVisible(true);
         }
         return super.onCreateOptionsMenu(menu);
     }
@@ -180,6 +193,16 @@ public class CalendarActivity extends AppCompatActivity {
             case R.id.cal_save_button:
                 onSaveClicked();
                 return true;
+            case R.id.repeat_button:
+                // ask the user which weekdays they are always free
+                CustomDialogFragment.newInstance(CustomDialogFragment.WEEKLY_RULE_ID)
+                        .show(getSupportFragmentManager(), CustomDialogFragment.TAG);
+                return true;
+            case R.id.best_windows_button:
+                // ask the user how long the trip is
+                CustomDialogFragment.newInstance(CustomDialogFragment.TRIP_WINDOW_ID)
+                        .show(getSupportFragmentManager(), CustomDialogFragment.TAG);
+                return true;
             case android.R.id.home:
                 finish();
                 return true;
@@ -190,10 +213,16 @@ public class CalendarActivity extends AppCompatActivity {
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
-        if (mMatched != null) outState.putLongArray(MATCHED_KEY, mMatched);
-        else outState.putLongArray(DATE_LIST_KEY, toLongs(mCalView.getSelectedDates()));
+        if (mMatch != null) outState.putParcelable(MATCHED_KEY, mMatch);
+        else {
+            outState.putLongArray(DATE_LIST_KEY, mSelected.getWords());
+            outState.putInt(SELECTED_BASE_KEY, mSelected.getBase());
+            outState.putLongArray(LOADED_KEY, mLoaded.getWords());
+            outState.putInt(LOADED_BASE_KEY, mLoaded.getBase());
+            outState.putIntArray(RULES_KEY, toInts(mSchedule.getRules()));
+            outState.putBoolean(RULES_CHANGED_KEY, mRulesChanged);
+        }
         if (mRecent != null) outState.putLong(RECENT_KEY, mRecent.getTime());
-        if (mFriend != null) outState.putParcelable(FRIEND_KEY, mFriend);
         if (mUserName != null) outState.putString(NAME_KEY, mUserName);
     }
 
@@ -203,8 +232,8 @@ public class CalendarActivity extends AppCompatActivity {
      * options menu
      */
     private void onSaveClicked() {
-        // get the list of dates that were selected
-        mUserSetDates = mCalView.getSelectedDates();
+        // copy the dates that were selected, the user can keep editing while they are saved
+        mUserSetDates = new Availability(mSelected.getBase(), mSelected.getWords().clone());
         // check to make sure there is a user that has has added dates
         if (mUser != null && mUserSetDates != null) {
             // update the user's available dates
@@ -212,6 +241,113 @@ public class CalendarActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * getWeekdays()
+     * @return the mask of the weekdays the user is always free, Monday is bit 0
+     */
+    public int getWeekdays() {
+        return mSchedule.getWeekdays();
+    }
+
+    /**
+     * setWeekdays()
+     * called from a dialog to replace the weekdays the user is always free, the calendar is
+     * updated right away and the rule is saved along with the dates
+     * @param weekdays the mask of the weekdays, Monday is bit 0
+     */
+    public void setWeekdays(int weekdays) {
+        if (weekdays == mSchedule.getWeekdays()) return;
+        Availability selected = mSelected;
+        Availability covered = mSchedule.covered(mFirstDay, mDays);
+
+        // days the user unselected from the old rule stay unavailable
+        mSchedule.exclude(covered.andNot(selected));
+        // keep the days the user picked one by one
+        Availability shown = selected.andNot(covered);
+        shown.addAll(selected.and(mLoaded));
+
+        mSchedule.setWeekdays(weekdays, mFirstDay);
+        mRulesChanged = true;
+        shown.addAll(mSchedule.covered(mFirstDay, mDays));
+
+        // select the new set of dates
+        mSelected = shown;
+        showSelection();
+    }
+
+    /**
+     * findWindows()
+     * called from a dialog to find the best windows of days for a trip
+     * @param length the length of the trip in days
+     * @param min the minimum number of people, including this user, that must be able to go
+     */
+    public void findWindows(String length, String min) {
+        if (mMatch == null) return;
+        try {
+            mWindowLength = Integer.parseInt(length.trim());
+            // a trip needs at least one friend
+            mMinAttendees = min.trim().equals("") ? 2 : Math.max(2, Integer.parseInt(min.trim()));
+        } catch (NumberFormatException e) {
+            mWindowLength = 0;
+        }
+        if (mWindowLength <= 0 || mWindowLength > mMatch.getLength()) {
+            Toast t = Toast.makeText(this, "Please enter a valid trip length.",
+                    Toast.LENGTH_SHORT);
+            t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+            t.show();
+            return;
+        }
+        new FindWindowsTask().execute();
+    }
+
+    /**
+     * onWindowSelected()
+     * called from a dialog when the user picks one of the suggested windows, takes them to
+     * request trip activity with the dates and the friends that can go filled in
+     * @param index the index of the window that was selected
+     */
+    public void onWindowSelected(int index) {
+        if (mMatch == null || index < 0 || index >= mWindows.size()) return;
+        TripWindow window = mWindows.get(index);
+        Intent intent = new Intent(CalendarActivity.this, RequestTripActivity.class);
+        intent.putExtra(Const.SELECTED_DATE_TAG, DateCodec.toDate(window.getStart()).getTime());
+        intent.putExtra(Const.SELECTED_END_DATE_TAG, DateCodec.toDate(window.getEnd()).getTime());
+        intent.putParcelableArrayListExtra(Const.SELECTED_FRIENDS_TAG,
+                mMatch.getFriends(window.getAttendees()));
+        intent.putExtra(Const.USER_NAME_TAG, mUserName);
+        startActivity(intent);
+    }
+
+    /**
+     * getWindowDescriptions()
+     * @return a description of each of the windows that were found
+     */
+    public String[] getWindowDescriptions() {
+        String[] descriptions = new String[mWindows.size()];
+        for (int i = 0; i < mWindows.size(); i++) {
+            TripWindow window = mWindows.get(i);
+            descriptions[i] = DateCodec.format(window.getStart()) + " - " +
+                    DateCodec.format(window.getEnd()) + ": " + window.getAttendeeCount() + " people";
+        }
+        return descriptions;
+    }
+
+    /**
+     * showSelection()
+     * draws the selected days and the days that come from the user's recurring rules, every date
+     * stays selectable but clicks are handled by toggleDate() instead of the CalendarPickerView
+     */
+    private void showSelection() {
+        Trace.beginSection("CalendarActivity.showSelection");
+        List<CalendarCellDecorator> decorators = new ArrayList<>();
+        decorators.add(new SelectionDecorator(mSelected, mSchedule, ContextCompat.getColor(this,
+                R.color.colorAccent)));
+        mCalView.setCellClickInterceptor(toggleDate());
+        // rebinds the cells that are on screen
+        mCalView.setDecorators(decorators);
+        Trace.endSection();
+    }
+
     /**
      * makeCalAppear()
      * makes the calendar visible and the progress bar invisible
@@ -225,19 +361,21 @@ public class CalendarActivity extends AppCompatActivity {
 
     /**
      * proceedToRequest()
-     * @return a listener that takes the user to request trip activity if they click on one of the
-     * matched dates
+     * @return a listener that takes the user to request trip activity with the friends that are
+     * free on the date if they click on one of the matched dates
      */
     private CalendarPickerView.OnInvalidDateSelectedListener proceedToRequest() {
         return new CalendarPickerView.OnInvalidDateSelectedListener() {
             @Override
             public void onInvalidDateSelected(Date date) {
-                if (mSet.contains(date)) {
+                int day = DateCodec.toEpochDay(date);
+                if (mMatch.isFree(day, 0) && mMatch.getCount(day) > 1) {
                     // proceed to request trip activity
                     Intent intent = new Intent(CalendarActivity.this,
                             RequestTripActivity.class);
                     intent.putExtra(Const.SELECTED_DATE_TAG, date.getTime());
-                    intent.putExtra(Const.SELECTED_FRIEND_TAG, mFriend);
+                    intent.putParcelableArrayListExtra(Const.SELECTED_FRIENDS_TAG,
+                            mMatch.getFreeFriends(day));
                     intent.putExtra(Const.USER_NAME_TAG, mUserName);
                     startActivity(intent);
                 }
@@ -246,14 +384,22 @@ public class CalendarActivity extends AppCompatActivity {
     }
 
     /**
-     * doNothing()
-     * @return a listener that does nothing when the user selects an invalid date
+     * toggleDate()
+     * @return an interceptor that selects or unselects a date in the bitset when it is clicked
+     * and redraws the calendar, keeping track of which date the user most recently pressed
      */
-    public CalendarPickerView.OnInvalidDateSelectedListener doNothing() {
-        return new CalendarPickerView.OnInvalidDateSelectedListener() {
+    private CalendarPickerView.CellClickInterceptor toggleDate() {
+        return new CalendarPickerView.CellClickInterceptor() {
             @Override
-            public void onInvalidDateSelected(Date date) {
-                // do nothing, this prevents the default toast message from being displayed
+            public boolean onCellClicked(Date date) {
+                int day = DateCodec.toEpochDay(date);
+                // the days outside of the calendar can not be selected
+                if (day < mFirstDay || day >= mFirstDay + mDays) return true;
+                if (mSelected.contains(day)) mSelected.remove(day);
+                else mSelected.add(day);
+                mRecent = date;
+                mCalView.setDecorators(mCalView.getDecorators());
+                return true;
             }
         };
     }
@@ -271,36 +417,37 @@ public class CalendarActivity extends AppCompatActivity {
         };
     }
 
+
     /**
-     * maintainRecent()
-     * @return a listener that keeps track of which date the user most recently selected
+     * toInts()
+     * packs recurring rules into an array of ints so that they can be added to a Bundle
+     * @param rules the rules
+     * @return four ints for each rule, the weekdays, start, end and 1 if it is an exclusion
      */
-    private CalendarPickerView.OnDateSelectedListener maintainRecent() {
-        return new CalendarPickerView.OnDateSelectedListener() {
-            @Override
-            public void onDateSelected(Date date) {
-                mRecent = date;
-            }
-            @Override
-            public void onDateUnselected(Date date) {
-                mRecent = date;
-            }
-        };
+    private int[] toInts(List<AvailabilityRule> rules) {
+        int[] ints = new int[rules.size() * 4];
+        for (int i = 0; i < rules.size(); i++) {
+            AvailabilityRule rule = rules.get(i);
+            ints[i * 4] = rule.getWeekdays();
+            ints[i * 4 + 1] = rule.getStart();
+            ints[i * 4 + 2] = rule.getEnd();
+            ints[i * 4 + 3] = rule.isExclude() ? 1 : 0;
+        }
+        return ints;
     }
 
     /**
-     * toLongs()
-     * Converts a List of Date objects to an array of longs.
-     * This will be used in conjunction with onSavedInstanceState because a Date object cannot
-     * be added to a Bundle
-     *
-     * @param dates the List of Dates
-     * @return an array of longs corresponding to the time of each date
+     * fromInts()
+     * @param ints rules that were packed with toInts()
+     * @return the rules
      */
-    private long[] toLongs(List<Date> dates) {
-        long[] times = new long[dates.size()];
-        for (int i = 0; i < dates.size(); i++) times[i] = dates.get(i).getTime();
-        return times;
+    private List<AvailabilityRule> fromInts(int[] ints) {
+        List<AvailabilityRule> rules = new ArrayList<>();
+        if (ints == null) return rules;
+        for (int i = 0; i + 3 < ints.length; i += 4) {
+            rules.add(new AvailabilityRule(ints[i], ints[i + 1], ints[i + 2], ints[i + 3] == 1));
+        }
+        return rules;
     }
 
     private void finishAfterAsyncTask() {
@@ -311,30 +458,52 @@ public class CalendarActivity extends AppCompatActivity {
     // ASYNC TASKS
 
     /**
-     * AddTask
-     * converts the string dates that this user is available to date objects and adds them to the
-     * calendar view
+     * FindWindowsTask
+     * finds the best windows of days for the group to go on a trip
+     */
+    private class FindWindowsTask extends AsyncTask<Void, Void, List<TripWindow>> {
+
+        @Override
+        protected List<TripWindow> doInBackground(Void... voids) {
+            if (mMatch == null) return new ArrayList<>();
+            return WindowFinder.findBest(mMatch, mWindowLength, mMinAttendees, MAX_WINDOWS);
+        }
+
+        @Override
+        protected void onPostExecute(List<TripWindow> windows) {
+            super.onPostExecute(windows);
+            mWindows = windows;
+            if (mWindows.size() == 0) {
+                Toast t = Toast.makeText(CalendarActivity.this, "There are no " + mWindowLength +
+                        " day trips that " + mMinAttendees + " people can go on.", Toast.LENGTH_LONG);
+                t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                t.show();
+                return;
+            }
+            // let the user choose one of the windows
+            CustomDialogFragment.newInstance(CustomDialogFragment.BEST_WINDOWS_ID)
+                    .show(getSupportFragmentManager(), CustomDialogFragment.TAG);
+        }
+    }
+
+    /**
+     * AddToCalTask
+     * unpacks the days that this user is available, including the days covered by their
+     * recurring rules, and draws them on the calendar view
      */
     private class AddToCalTask extends AsyncTask<Void, Void, Void> {
 
         @Override
         protected Void doInBackground(Void... voids) {
-            if (sDates == null || sDates.size() == 0) return null;
-            SimpleDateFormat format = new SimpleDateFormat("MM/dd/yyyy", Locale.getDefault());
-            try {
-                Date today = format.parse(format.format(new Date()));
-
-                // convert each string date into a date object
-                // make sure that none of these dates are before today
-                for (String date : sDates) {
-                    Date d = format.parse(date);
-                    if (d != null && d.compareTo(today) >= 0) {
-                        mRealDates.add(d);
-                    }
-                }
-            } catch (ParseException e) {
-                Log.d(Const.TAG, "doInBackground: " + Log.getStackTraceString(e));
-            }
+            if (mUserDoc == null) return null;
+
+            // unpack the days this user is available, make sure that none of them are before today
+            AvailabilitySchedule schedule = AvailabilityCodec.scheduleFromDocument(mUserDoc);
+            mLoaded = schedule.getDays().from(mFirstDay);
+            mSchedule = new AvailabilitySchedule(mLoaded, schedule.getRules());
+
+            // the rules are only expanded over the days the calendar displays
+            mSelected = mSchedule.window(mFirstDay, mDays);
 
             return null;
         }
@@ -342,14 +511,8 @@ public class CalendarActivity extends AppCompatActivity {
         @Override
         protected void onPostExecute(Void aVoid) {
             super.onPostExecute(aVoid);
-            if (mRealDates != null && mRealDates.size() > 0) {
-                // select all the dates
-                for (int i = mRealDates.size() - 1; i >= 0; i--) {
-                    mCalView.selectDate(mRealDates.get(i));
-                }
-            }
-            mCalView.setOnInvalidDateSelectedListener(doNothing());
-            mCalView.setOnDateSelectedListener(maintainRecent());
+            // draw all of the dates in one pass
+            showSelection();
             // display the calendar
             makeCalAppear();
         }
@@ -371,13 +534,9 @@ public class CalendarActivity extends AppCompatActivity {
                         @Override
                         public void onComplete(@NonNull Task<DocumentSnapshot> task) {
                             DocumentSnapshot doc = task.getResult();
-                            if (task.isSuccessful() && doc != null &&
-                                    doc.contains(Const.DATE_LIST_KEY) &&
-                                    doc.get(Const.DATE_LIST_KEY) instanceof  List) {
-                                // this will not produce an exception
-                                sDates = (List<String>) doc.get(Const.DATE_LIST_KEY);
-                                mRealDates = new ArrayList<>();
-                                //convert them to Dates and add them to the calendar
+                            if (task.isSuccessful() && doc != null) {
+                                mUserDoc = doc;
+                                // unpack them to Dates and add them to the calendar
                                 new AddToCalTask().execute();
                             }
                         }
@@ -389,24 +548,61 @@ public class CalendarActivity extends AppCompatActivity {
 
     /**
      * SetDatesTask
-     * sets the users dates in the DB
+     * saves the days the user added and removed since the calendar was loaded to the DB, days
+     * covered by a rule that the user unselected are saved as exclusions
      */
-    private class SetDatesTask extends AsyncTask<Void, Void, Void> {
+    private class SetDatesTask extends AsyncTask<Void, Void, Boolean> {
 
         @Override
-        protected Void doInBackground(Void... voids) {
-            if (mUserSetDates == null || mUser == null) return null;
+        protected Boolean doInBackground(Void... voids) {
+            if (mUserSetDates == null || mUser == null) return false;
+
+            // pack the selected dates and compare them to the dates that were loaded, the days
+            // covered by a rule do not need to be saved one by one
+            Availability selected = mUserSetDates;
+            Availability covered = mSchedule.covered(mFirstDay, mDays);
+            Availability added = selected.andNot(covered).andNot(mLoaded);
+            Availability removed = mLoaded.andNot(selected);
+            Availability excluded = covered.andNot(selected);
+
+            // nothing to save
+            if (added.isEmpty() && removed.isEmpty() && excluded.isEmpty() && !mRulesChanged) return false;
+
+            // only write the rules if they changed, the calendar is still drawn from mSchedule
+            // so the exclusions are added to a copy, exclusions that have passed are dropped
+            List<AvailabilityRule> rules = null;
+            if (!excluded.isEmpty() || mRulesChanged) {
+                AvailabilitySchedule saved = new AvailabilitySchedule(mLoaded,
+                        new ArrayList<>(mSchedule.getRules()));
+                saved.exclude(excluded);
+                saved.dropBefore(mFirstDay);
+                rules = saved.getRules();
+            }
 
-            AccessDB.setUserDatesFromCal(mUser.getUid(), mUserSetDates);
+            AccessDB.updateUserDates(mUser.getUid(), added, removed, rules)
+                    .addOnCompleteListener(new OnCompleteListener<Void>() {
+                        @Override
+                        public void onComplete(@NonNull Task<Void> task) {
+                            if (task.isSuccessful()) {
+                                // finish the activity
+                                finishAfterAsyncTask();
+                            } else {
+                                Toast t = Toast.makeText(CalendarActivity.this,
+                                        "Your dates could not be saved.", Toast.LENGTH_SHORT);
+                                t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                                t.show();
+                            }
+                        }
+                    });
 
-            return null;
+            return true;
         }
 
         @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-            // finish the activity
-            finishAfterAsyncTask();
+        protected void onPostExecute(Boolean saving) {
+            super.onPostExecute(saving);
+            // finish the activity right away if there was nothing to save
+            if (!saving) finishAfterAsyncTask();
         }
     }
 }
@@ -19,14 +19,12 @@ import android.widget.Toast;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
 import com.alsaeedcullivan.ourtrips.fragments.CustomDialogFragment;
 import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.alsaeedcullivan.ourtrips.utils.DateCodec;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
 
 public class EditSummaryActivity extends AppCompatActivity {
@@ -40,7 +38,6 @@ public class EditSummaryActivity extends AppCompatActivity {
     private EditText mOver;
     private TextView mEndTextView;
 
-    private SimpleDateFormat mFormat;
     private Date mStartDate, mEndDate;
     private String mTripId;
     private HashMap<String, Object> mData;
@@ -60,9 +57,6 @@ public class EditSummaryActivity extends AppCompatActivity {
         mEndTextView = findViewById(R.id.end_date_sum);
         Button endChange = findViewById(R.id.select_end_date);
 
-        // initialize the simple date format
-        mFormat = new SimpleDateFormat("MM/dd/yyyy", Locale.getDefault());
-
         // set listener
         endChange.setOnClickListener(createEndSelectListener());
 
@@ -74,38 +68,29 @@ public class EditSummaryActivity extends AppCompatActivity {
             mTripId = intent.getStringExtra(Const.TRIP_ID_TAG);
             if (savedInstanceState != null && savedInstanceState.getString(END_KEY) != null &&
                     savedInstanceState.getString(START_KEY) != null) {
-                try {
-                    String start = savedInstanceState.getString(START_KEY);
-                    if (start != null) mStartDate = mFormat.parse(start);
-                    start = "Start Date: " + start;
-                    startTextView.setText(start);
-                    String end = savedInstanceState.getString(END_KEY);
-                    if (end != null) mEndDate = mFormat.parse(end);
-                    end = "End Date: " + end;
-                    mEndTextView.setText(end);
-                } catch (ParseException e){
-                    finish();
-                }
+                String start = savedInstanceState.getString(START_KEY);
+                mStartDate = DateCodec.parseDate(start);
+                start = "Start Date: " + start;
+                startTextView.setText(start);
+                String end = savedInstanceState.getString(END_KEY);
+                mEndDate = DateCodec.parseDate(end);
+                end = "End Date: " + end;
+                mEndTextView.setText(end);
+                if (mStartDate == null || mEndDate == null) finish();
             } else {
                 String start = intent.getStringExtra(Const.TRIP_START_TAG);
                 if (start != null) {
-                    try {
-                        mStartDate = mFormat.parse(start);
-                        String startText = "Start Date: " + start;
-                        startTextView.setText(startText);
-                    } catch (ParseException e) {
-                        finish();
-                    }
+                    mStartDate = DateCodec.parseDate(start);
+                    if (mStartDate == null) finish();
+                    String startText = "Start Date: " + start;
+                    startTextView.setText(startText);
                 }
                 String end = intent.getStringExtra(Const.TRIP_END_TAG);
                 if (end != null) {
-                    try {
-                        mEndDate = mFormat.parse(end);
-                        String endText = "End Date: " + end;
-                        mEndTextView.setText(endText);
-                    } catch (ParseException e) {
-                        finish();
-                    }
+                    mEndDate = DateCodec.parseDate(end);
+                    if (mEndDate == null) finish();
+                    String endText = "End Date: " + end;
+                    mEndTextView.setText(endText);
                 }
             }
         } else finish();
@@ -114,8 +99,8 @@ public class EditSummaryActivity extends AppCompatActivity {
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
-        if (mEndDate != null) outState.putString(END_KEY, mFormat.format(mEndDate));
-        if (mStartDate != null) outState.putString(START_KEY, mFormat.format(mStartDate));
+        if (mEndDate != null) outState.putString(END_KEY, DateCodec.format(mEndDate));
+        if (mStartDate != null) outState.putString(START_KEY, DateCodec.format(mStartDate));
     }
 
     @Override
@@ -170,8 +155,8 @@ public class EditSummaryActivity extends AppCompatActivity {
         mData = new HashMap<>();
         mData.put(Const.TRIP_TITLE_KEY, mTitle.getText().toString());
         mData.put(Const.TRIP_OVERVIEW_KEY, mOver.getText().toString());
-        mData.put(Const.TRIP_START_DATE_KEY, mFormat.format(mStartDate));
-        mData.put(Const.TRIP_END_DATE_KEY, mFormat.format(mEndDate));
+        mData.put(Const.TRIP_START_DATE_KEY, DateCodec.format(mStartDate));
+        mData.put(Const.TRIP_END_DATE_KEY, DateCodec.format(mEndDate));
 
         // update the trip in the db
         // run on background thread
@@ -208,7 +193,7 @@ public class EditSummaryActivity extends AppCompatActivity {
      */
     public void updateEndDate(Date date) {
         mEndDate = date;
-        String end = "End Date: " + mFormat.format(mEndDate);
+        String end = "End Date: " + DateCodec.format(mEndDate);
         mEndTextView.setText(end);
     }
 
@@ -20,6 +20,7 @@ import android.widget.Toast;
 import com.alsaeedcullivan.ourtrips.adapters.FriendAdapter;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
 import com.alsaeedcullivan.ourtrips.fragments.CustomDialogFragment;
+import com.alsaeedcullivan.ourtrips.mappers.UserSummaryMapper;
 import com.alsaeedcullivan.ourtrips.models.UserSummary;
 import com.alsaeedcullivan.ourtrips.utils.Const;
 import com.google.android.gms.tasks.OnCompleteListener;
@@ -375,19 +376,8 @@ public class FriendActivity extends AppCompatActivity {
 
             if (mRequestDocs == null || mRequestDocs.size() == 0) return null;
 
-            // instantiate the list of friend requests
-            mList = new ArrayList<>();
-
             // create a user summary for each document
-            for (DocumentSnapshot doc : mRequestDocs) {
-                UserSummary u = new UserSummary();
-                u.setUserId(doc.getId());
-                String email = (String)doc.get(Const.USER_EMAIL_KEY);
-                if (email != null) u.setEmail(email);
-                String name = (String)doc.get(Const.USER_NAME_KEY);
-                if (name != null) u.setName(name);
-                mList.add(u);
-            }
+            mList = UserSummaryMapper.INSTANCE.mapAll(mRequestDocs);
 
             // add all the user summaries to the request set
             mRequestSet.clear();
@@ -532,9 +522,18 @@ public class FriendActivity extends AppCompatActivity {
             if (mUser == null || mFriendId == null || mFriendName == null || mFriendEmail == null
                     || mName == null) return null;
 
-            // accept the request and update the db accordingly
+            // accept the request and update the db accordingly, the writes are committed together
             AccessDB.acceptRequest(mUser.getUid(), mUser.getEmail(), mName, mFriendId,
-                    mFriendEmail, mFriendName);
+                    mFriendEmail, mFriendName).addOnCompleteListener(new OnCompleteListener<Void>() {
+                @Override
+                public void onComplete(@NonNull Task<Void> task) {
+                    if (task.isSuccessful()) return;
+                    Toast t = Toast.makeText(FriendActivity.this, "The friend request could " +
+                            "not be accepted.", Toast.LENGTH_SHORT);
+                    t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                    t.show();
+                }
+            });
 
             return null;
         }
@@ -7,11 +7,15 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.MenuItem;
 
 import com.alsaeedcullivan.ourtrips.adapters.GalleryAdapter;
+import com.alsaeedcullivan.ourtrips.adapters.PagingScrollListener;
+import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
 import com.alsaeedcullivan.ourtrips.models.Pic;
 import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.alsaeedcullivan.ourtrips.utils.TaskPipeline;
 
 import java.util.ArrayList;
 
@@ -19,6 +23,8 @@ public class GalleryActivity extends AppCompatActivity {
 
     private ArrayList<Pic> mPictures;
     private String mTripId;
+    private GalleryAdapter mAdapter;
+    private PagingScrollListener mPaging;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -38,8 +44,43 @@ public class GalleryActivity extends AppCompatActivity {
         RecyclerView rec = findViewById(R.id.recycle_gallery);
         GridLayoutManager grid = new GridLayoutManager(this, 2);
         rec.setLayoutManager(grid);
-        GalleryAdapter g = new GalleryAdapter(this, mPictures);
-        rec.setAdapter(g);
+        if (mPictures == null) mPictures = new ArrayList<>();
+        mAdapter = new GalleryAdapter(this, mPictures);
+        rec.setAdapter(mAdapter);
+
+        // load older pictures as the user scrolls down
+        mPaging = new PagingScrollListener(grid, AccessDB.PAGE_SIZE, false) {
+            @Override
+            protected void loadPage() {
+                loadNextPage();
+            }
+        };
+        mPaging.setDone(mTripId == null);
+        rec.addOnScrollListener(mPaging);
+    }
+
+    /**
+     * loadNextPage()
+     * loads the page of pictures after the last one that is displayed and adds it to the grid
+     */
+    private void loadNextPage() {
+        Pic last = mPictures.size() > 0 ? mPictures.get(mPictures.size() - 1) : null;
+        TaskPipeline.start(this, AccessDB.loadTripPicsPage(mTripId, last))
+                .deliver(this, new TaskPipeline.Callback<ArrayList<Pic>>() {
+                    @Override
+                    public void onSuccess(ArrayList<Pic> pics) {
+                        int start = mPictures.size();
+                        mPictures.addAll(pics);
+                        mAdapter.notifyItemRangeInserted(start, pics.size());
+                        mPaging.onPageLoaded(pics.size());
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(Const.TAG, "loadNextPage: " + e);
+                        mPaging.onPageFailed();
+                    }
+                });
     }
 
     @Override
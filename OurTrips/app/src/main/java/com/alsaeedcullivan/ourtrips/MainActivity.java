@@ -20,21 +20,18 @@ import android.widget.Toast;
 
 import com.alsaeedcullivan.ourtrips.adapters.TSAdapter;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
-import com.alsaeedcullivan.ourtrips.comparators.TripDateComparator;
 import com.alsaeedcullivan.ourtrips.fragments.CustomDialogFragment;
 import com.alsaeedcullivan.ourtrips.models.TripSummary;
 import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.alsaeedcullivan.ourtrips.utils.TaskPipeline;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.ArrayList;
-import java.util.List;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -44,7 +41,6 @@ public class MainActivity extends AppCompatActivity {
 
     private TSAdapter mAdapter;
     private ArrayList<TripSummary> mTrips;
-    private List<DocumentSnapshot> mSumDocs = new ArrayList<>();
     private FirebaseUser mUser;
     private ProgressBar mSpinner;
     private TextView mLoading;
@@ -105,8 +101,8 @@ public class MainActivity extends AppCompatActivity {
             listView.setAdapter(mAdapter);
             listView.setOnItemClickListener(getItemListener());
             listView.setOnItemLongClickListener(getLongListener());
-            // get the docs of trip summaries, do the db operation in background
-            new SumDocsTask().execute();
+            // get the trip summaries, do the db operation and mapping in the background
+            loadTrips();
         }
 
     }
@@ -155,6 +151,12 @@ public class MainActivity extends AppCompatActivity {
                 matchIntent.putExtra(Const.SOURCE_TAG, Const.MAIN_TAG);
                 startActivity(matchIntent);
                 break;
+            case R.id.trips_near:
+                // show the places of this user's trips near them on the map
+                Intent nearIntent = new Intent(MainActivity.this, MapsActivity.class);
+                nearIntent.putExtra(Const.NEARBY_TAG, true);
+                startActivity(nearIntent);
+                break;
             case R.id.search_trips:
                 searchTrips();
                 break;
@@ -251,106 +253,47 @@ public class MainActivity extends AppCompatActivity {
     }
 
 
-    // ASYNC TASKS
-
     /**
-     * SumDocsTask
-     * gets the documents corresponding to all the trip summaries
+     * loadTrips()
+     * loads this user's trip summaries, which arrive from the most recent to the oldest and are
+     * mapped on the background pool, and then displays them
      */
-    private class SumDocsTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-
-            // get the list of trip summaries of this user from the db
-            AccessDB.getTripSummaries(mUser.getUid())
-                    .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                        @Override
-                        public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                            QuerySnapshot result = task.getResult();
-                            if (task.isSuccessful() && result != null && result.getDocuments().size() > 0) {
-                                // get the documents and start the async task
-                                mSumDocs = result.getDocuments();
-                                mTrips = new ArrayList<>();
-                                new SumTask().execute();
-                            } else showList();
+    private void loadTrips() {
+        final String deletedId = mTripId;
+        TaskPipeline.start(this, AccessDB.loadTripSummaries(mUser.getUid()))
+                .then(new TaskPipeline.Stage<ArrayList<TripSummary>, ArrayList<TripSummary>>() {
+                    @Override
+                    public ArrayList<TripSummary> run(ArrayList<TripSummary> trips) {
+                        // skip the trip that was deleted if it has not already been removed
+                        if (deletedId == null) return trips;
+                        for (int i = 0; i < trips.size(); i++) {
+                            if (deletedId.equals(trips.get(i).getId())) trips.remove(i--);
                         }
-                    });
-
-            return null;
-        }
-    }
-
-
-    /**
-     *SumTask
-     * gets a list of trip summaries from a list of document snapshots
-     */
-    private class SumTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mSumDocs == null || mSumDocs.size() == 0 || mTrips == null) return null;
-
-            Log.d(Const.TAG, "main   doInBackground: " + Thread.currentThread().getId());
-
-            // add a trip summary corresponding to each document snapshot to the list of trip summaries
-            for (DocumentSnapshot doc : mSumDocs) {
-                TripSummary trip = new TripSummary();
-                trip.setId(doc.getId());
-                trip.setTitle((String)doc.get(Const.TRIP_TITLE_KEY));
-                trip.setDate((String)doc.get(Const.TRIP_START_DATE_KEY));
-                mTrips.add(trip);
-            }
-
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-
-            // sort the trips and add them to the list view
-            if (mTrips != null) new SortTask().execute();
-            else showList();
-        }
-    }
-
-    /**
-     * SortTask
-     * task to sort the trips by date and then display them
-     */
-    private class SortTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mTrips != null && mTrips.size() > 0) {
-                // remove the trip that was deleted if it has not already been removed
-                if (mTripId != null) {
-                    for (int i = 0; i < mTrips.size(); i++) {
-                        if (mTrips.get(i).getId() != null && mTrips.get(i).getId().equals(mTripId)) {
-                            mTrips.remove(i);
-                            break;
+                        return trips;
+                    }
+                })
+                .deliver(this, new TaskPipeline.Callback<ArrayList<TripSummary>>() {
+                    @Override
+                    public void onSuccess(ArrayList<TripSummary> trips) {
+                        mTrips = trips;
+                        if (mAdapter != null) {
+                            mAdapter.addAll(mTrips);
+                            mAdapter.notifyDataSetChanged();
                         }
+                        showList();
                     }
-                }
-                mTrips.sort(new TripDateComparator());
-            }
-            return null;
-        }
 
-        @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-            if (mAdapter == null) return;
-            if (mTrips != null) {
-                mAdapter.addAll(mTrips);
-                mAdapter.notifyDataSetChanged();
-            }
-            showList();
-        }
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(Const.TAG, "loadTrips: " + e);
+                        showList();
+                    }
+                });
     }
 
+
+    // ASYNC TASKS
+
     /**
      * RemoveTripTask
      * used for help removing a trip
@@ -23,24 +23,44 @@ import android.widget.Toast;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
 import com.alsaeedcullivan.ourtrips.fragments.CustomDialogFragment;
 import com.alsaeedcullivan.ourtrips.models.Place;
+import com.alsaeedcullivan.ourtrips.models.PlaceCluster;
 import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.alsaeedcullivan.ourtrips.utils.PlaceClusterer;
+import com.alsaeedcullivan.ourtrips.utils.PlaceIndex;
+import com.alsaeedcullivan.ourtrips.utils.TaskPipeline;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentReference;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 public class MapsActivity extends FragmentActivity implements OnMapReadyCallback {
 
     private static final int LOCATION_PERMISSION_CODE = 0;
     private static final int ZOOM_LEVEL = 14;
+    private static final int NEARBY_ZOOM_LEVEL = 10;
+    // the radius of a search for places near a location, in meters
+    private static final double NEARBY_RADIUS = 25000;
+    // the padding around the places of a cluster when zooming in on it, in pixels
+    private static final int CLUSTER_PADDING = 150;
+    // how far from a place a long press can be to remove it, in dp
+    private static final int TOUCH_RADIUS = 24;
+    // the width of a map tile, in dp
+    private static final int TILE_SIZE = 256;
 
     private GoogleMap mMap;
     private ArrayList<Place> mPlaces;
@@ -48,9 +68,16 @@ public class MapsActivity extends FragmentActivity implements OnMapReadyCallback
     private LocationManager mLocationManager;
     private String mProvider;
     private Button mRemove, mAdd, mCancel, mRemoveText, mAddText;
-    private HashMap<LatLng, Place> mPlaceMap = new HashMap<>();
-    private LatLng mSelectedLatLng;
+    // the places of the map by their location
+    private final PlaceIndex mIndex = new PlaceIndex();
     private Place mHere;
+    // whether the map shows the places of all of this user's trips near a location
+    private boolean mNearby;
+    // the places are shown as clusters, only the clusters inside the visible region have markers
+    private final PlaceClusterer mClusterer = new PlaceClusterer();
+    // the markers on the map by the key of the cell of their cluster at the zoom level mMarkerZoom
+    private final HashMap<Long, Marker> mMarkers = new HashMap<>();
+    private int mMarkerZoom = -1;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -63,7 +90,10 @@ public class MapsActivity extends FragmentActivity implements OnMapReadyCallback
         else mapFragment.getMapAsync(this);
 
         Intent intent = getIntent();
-        if (intent != null && intent.getParcelableArrayListExtra(Const.PLACE_LIST_TAG) != null &&
+        if (intent != null && intent.getBooleanExtra(Const.NEARBY_TAG, false)) {
+            mNearby = true;
+            mPlaces = new ArrayList<>();
+        } else if (intent != null && intent.getParcelableArrayListExtra(Const.PLACE_LIST_TAG) != null &&
                 intent.getStringExtra(Const.TRIP_ID_TAG) != null) {
             mPlaces = intent.getParcelableArrayListExtra(Const.PLACE_LIST_TAG);
             mTripId = intent.getStringExtra(Const.TRIP_ID_TAG);
@@ -75,6 +105,12 @@ public class MapsActivity extends FragmentActivity implements OnMapReadyCallback
         mCancel = findViewById(R.id.cancel_map);
         mRemoveText = findViewById(R.id.remove_text);
         mAddText = findViewById(R.id.add_text);
+
+        // places cannot be added or removed when searching across trips
+        if (mNearby) {
+            mRemove.setVisibility(View.GONE);
+            mAdd.setVisibility(View.GONE);
+        }
     }
 
     /**
@@ -163,12 +199,23 @@ public class MapsActivity extends FragmentActivity implements OnMapReadyCallback
      * starts the map with the user's current location
      */
     private void startMapWithLocation() {
-        // add all the places to the map
-        for (Place place : mPlaces) {
-            mPlaceMap.put(place.getLocation(), place);
-            mMap.addMarker(new MarkerOptions().position(place.getLocation())
-                    .title(place.getPlaceName()));
-        }
+        // cluster the places, the markers are added once the camera stops moving
+        mIndex.setPlaces(mPlaces);
+        mClusterer.setPlaces(mPlaces);
+        mMap.setOnCameraIdleListener(new GoogleMap.OnCameraIdleListener() {
+            @Override
+            public void onCameraIdle() {
+                showClusters();
+            }
+        });
+        mMap.setOnMarkerClickListener(new GoogleMap.OnMarkerClickListener() {
+            @Override
+            public boolean onMarkerClick(Marker marker) {
+                if (!(marker.getTag() instanceof PlaceCluster)) return false;
+                zoomToCluster((PlaceCluster) marker.getTag());
+                return true;
+            }
+        });
 
         // start the location provider
         mLocationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
@@ -181,6 +228,11 @@ public class MapsActivity extends FragmentActivity implements OnMapReadyCallback
         c.setBearingRequired(false);
         mProvider = mLocationManager.getBestProvider(c, true);
 
+        if (mNearby) {
+            startNearby();
+            return;
+        }
+
         if (mPlaces.size() > 0) {
             // zoom in on the last known location
             mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(mPlaces.get(mPlaces.size() - 1)
@@ -200,6 +252,228 @@ public class MapsActivity extends FragmentActivity implements OnMapReadyCallback
         mAdd.setOnClickListener(addListener());
     }
 
+    /**
+     * startNearby()
+     * shows the places of this user's trips near their current location, a long click searches
+     * near another spot and clicking the info window of a place opens its trip
+     */
+    private void startNearby() {
+        checkPermission();
+        Location current = mProvider == null ? null : mLocationManager.getLastKnownLocation(mProvider);
+        if (current != null) {
+            LatLng here = new LatLng(current.getLatitude(), current.getLongitude());
+            mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(here, NEARBY_ZOOM_LEVEL));
+            searchNear(here);
+        }
+
+        mMap.setOnMapLongClickListener(new GoogleMap.OnMapLongClickListener() {
+            @Override
+            public void onMapLongClick(LatLng latLng) {
+                mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(latLng, NEARBY_ZOOM_LEVEL));
+                searchNear(latLng);
+            }
+        });
+        mMap.setOnInfoWindowClickListener(new GoogleMap.OnInfoWindowClickListener() {
+            @Override
+            public void onInfoWindowClick(Marker marker) {
+                if (!(marker.getTag() instanceof Place)) return;
+                Place place = (Place) marker.getTag();
+                if (place.getTripId().equals("")) return;
+                Intent intent = new Intent(MapsActivity.this, TripActivity.class);
+                intent.putExtra(Const.TRIP_ID_TAG, place.getTripId());
+                startActivity(intent);
+            }
+        });
+    }
+
+    /**
+     * searchNear()
+     * replaces the markers on the map with the places of this user's trips near a location
+     * @param center the location to search around
+     */
+    private void searchNear(LatLng center) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return;
+        TaskPipeline.start(this, AccessDB.loadPlacesNear(user.getUid(), center, NEARBY_RADIUS))
+                .deliver(this, new TaskPipeline.Callback<ArrayList<Place>>() {
+                    @Override
+                    public void onSuccess(ArrayList<Place> places) {
+                        mPlaces = places;
+                        mIndex.setPlaces(places);
+                        mClusterer.setPlaces(places);
+                        clearMarkers();
+                        showClusters();
+                        if (places.size() == 0) {
+                            Toast t = Toast.makeText(MapsActivity.this, "None of your trips went near " +
+                                    "here.", Toast.LENGTH_SHORT);
+                            t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                            t.show();
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(Const.TAG, "searchNear: " + e);
+                        Toast t = Toast.makeText(MapsActivity.this, "The places near here could not " +
+                                "be loaded.", Toast.LENGTH_SHORT);
+                        t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                        t.show();
+                    }
+                });
+    }
+
+    /**
+     * showClusters()
+     * adds markers for the clusters that are inside the visible region of the map and removes the
+     * markers of the clusters that have left it, the markers are only all replaced when the zoom
+     * level changes
+     */
+    private void showClusters() {
+        if (mMap == null) return;
+        int zoom = (int) mMap.getCameraPosition().zoom;
+        if (zoom != mMarkerZoom) {
+            clearMarkers();
+            mMarkerZoom = zoom;
+        }
+        LatLngBounds bounds = mMap.getProjection().getVisibleRegion().latLngBounds;
+        Map<Long, PlaceCluster> visible = mClusterer.getVisible(zoom, bounds.southwest.latitude,
+                bounds.southwest.longitude, bounds.northeast.latitude, bounds.northeast.longitude);
+
+        // remove the markers that are no longer visible
+        Iterator<Map.Entry<Long, Marker>> it = mMarkers.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Marker> entry = it.next();
+            if (visible.containsKey(entry.getKey())) continue;
+            entry.getValue().remove();
+            it.remove();
+        }
+        // add the markers that have become visible
+        for (PlaceCluster cluster : visible.values()) {
+            if (!mMarkers.containsKey(cluster.getKey())) mMarkers.put(cluster.getKey(), addMarker(cluster));
+        }
+    }
+
+    /**
+     * addMarker()
+     * adds the marker of a cluster to the map, a cluster of one place is shown as that place
+     * @return the marker
+     */
+    private Marker addMarker(PlaceCluster cluster) {
+        MarkerOptions options = new MarkerOptions().position(cluster.getPosition());
+        if (cluster.getSize() == 1) {
+            Place place = cluster.getPlaces().get(0);
+            options.title(place.getPlaceName());
+            if (!place.getTripTitle().equals("")) options.snippet(place.getTripTitle());
+            Marker marker = mMap.addMarker(options);
+            marker.setTag(place);
+            return marker;
+        }
+        options.title(cluster.getSize() + " places")
+                .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_AZURE));
+        Marker marker = mMap.addMarker(options);
+        marker.setTag(cluster);
+        return marker;
+    }
+
+    /**
+     * clearMarkers()
+     * removes the markers of every cluster from the map
+     */
+    private void clearMarkers() {
+        for (Marker marker : mMarkers.values()) marker.remove();
+        mMarkers.clear();
+    }
+
+    /**
+     * zoomToCluster()
+     * moves the camera so that the places of a cluster are spread out
+     */
+    private void zoomToCluster(PlaceCluster cluster) {
+        LatLngBounds.Builder builder = new LatLngBounds.Builder();
+        for (Place place : cluster.getPlaces()) builder.include(place.getLocation());
+        LatLngBounds bounds = builder.build();
+        if (bounds.southwest.equals(bounds.northeast)) {
+            // the places are all in the same spot
+            mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(bounds.southwest,
+                    mMap.getCameraPosition().zoom + 2));
+        } else mMap.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, CLUSTER_PADDING));
+    }
+
+    /**
+     * forgetPlace()
+     * removes a place from the clusters and takes the marker of its cluster off the map, the
+     * cluster gets a new marker the next time the clusters are shown
+     */
+    private void forgetPlace(Place place) {
+        mPlaces.remove(place);
+        mIndex.remove(place);
+        if (mClusterer.remove(place)) clearMarker(place.getLocation());
+    }
+
+    /**
+     * clearMarker()
+     * takes the marker of the cluster containing a location off the map, so that it is added
+     * again with the current places of the cluster the next time the clusters are shown
+     */
+    private void clearMarker(LatLng location) {
+        Marker marker = mMarkers.remove(PlaceClusterer.key(location.latitude, location.longitude,
+                mMarkerZoom));
+        if (marker != null) marker.remove();
+    }
+
+    /**
+     * addPlace()
+     * adds a place named mLocationName to the clusters and shows it on the map
+     * @param location the location of the place
+     * @return the place, its doc id is set once it has been added to the db
+     */
+    private Place addPlace(LatLng location) {
+        Place place = new Place();
+        place.setName(mLocationName);
+        place.setLocation(location);
+        place.setTimeStamp(new Date().getTime());
+        mPlaces.add(place);
+        mIndex.add(place);
+        mClusterer.add(place);
+        clearMarker(location);
+        showClusters();
+        return place;
+    }
+
+    /**
+     * deletePlace()
+     * takes a place off the map and deletes it from the db
+     */
+    private void deletePlace(Place place) {
+        mHere = place;
+        if (mTripId == null || mHere.getDocId() == null) return;
+        forgetPlace(mHere);
+        showClusters();
+
+        //delete this place from the db
+        new DeleteLocationTask().execute();
+    }
+
+    /**
+     * isShownAlone()
+     * returns whether a place has a marker of its own at the zoom level of the markers, rather
+     * than being part of a cluster
+     */
+    private boolean isShownAlone(Place place) {
+        PlaceCluster cluster = mClusterer.getClusters(mMarkerZoom).get(PlaceClusterer.key(
+                place.getLocation().latitude, place.getLocation().longitude, mMarkerZoom));
+        return cluster != null && cluster.getSize() == 1;
+    }
+
+    /**
+     * touchRadius()
+     * returns the distance a long press can be from a place at the current zoom level, as a
+     * fraction of the width of the map of the world
+     */
+    private double touchRadius() {
+        return TOUCH_RADIUS / (TILE_SIZE * Math.pow(2, mMap.getCameraPosition().zoom));
+    }
+
     /**
      * initiateSelect()
      * allows the user to select a location to drop a marker
@@ -219,15 +493,13 @@ public class MapsActivity extends FragmentActivity implements OnMapReadyCallback
             @Override
             public void onMapLongClick(LatLng latLng) {
                 // drop a marker at this location
-                mMap.addMarker(new MarkerOptions().position(latLng).title(mLocationName));
+                Place place = addPlace(latLng);
                 mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(latLng, ZOOM_LEVEL));
                 cancelAction();
 
-                mSelectedLatLng = latLng;
-
                 // save this location to the db
                 if (mTripId == null) return;
-                new AddLocationTask().execute();
+                new AddLocationTask(place).execute();
             }
         });
     }
@@ -251,14 +523,14 @@ public class MapsActivity extends FragmentActivity implements OnMapReadyCallback
         checkPermission();
         Location here = mLocationManager.getLastKnownLocation(mProvider);
         if (here == null) return;
-        mSelectedLatLng = new LatLng(here.getLatitude(), here.getLongitude());
-        mMap.addMarker(new MarkerOptions().position(mSelectedLatLng).title(mLocationName));
-        mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(mSelectedLatLng, ZOOM_LEVEL));
+        LatLng location = new LatLng(here.getLatitude(), here.getLongitude());
+        Place place = addPlace(location);
+        mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(location, ZOOM_LEVEL));
         cancelAction();
 
         // save this location to the db
         if (mTripId == null) return;
-        new AddLocationTask().execute();
+        new AddLocationTask(place).execute();
     }
 
     /**
@@ -304,12 +576,18 @@ public class MapsActivity extends FragmentActivity implements OnMapReadyCallback
                         marker.remove();
                         cancelAction();
 
-                        // get the place corresponding to this location
-                        mHere = mPlaceMap.get(marker.getPosition());
-                        if (mHere == null || mTripId == null || mHere.getDocId() == null) return;
-
-                        //delete this place from the db
-                        new DeleteLocationTask().execute();
+                        // get the place of this marker
+                        if (marker.getTag() instanceof Place) deletePlace((Place) marker.getTag());
+                    }
+                });
+                mMap.setOnMapLongClickListener(new GoogleMap.OnMapLongClickListener() {
+                    @Override
+                    public void onMapLongClick(LatLng latLng) {
+                        // find the place closest to the press, within reach of a finger
+                        Place place = mIndex.nearest(latLng.latitude, latLng.longitude, touchRadius());
+                        if (place == null || !isShownAlone(place)) return;
+                        cancelAction();
+                        deletePlace(place);
                     }
                 });
             }
@@ -355,12 +633,24 @@ public class MapsActivity extends FragmentActivity implements OnMapReadyCallback
      */
     private class AddLocationTask extends AsyncTask<Void, Void, Void> {
 
+        private final Place mPlace;
+
+        private AddLocationTask(Place place) {
+            mPlace = place;
+        }
+
         @Override
         protected Void doInBackground(Void... voids) {
-            if (mTripId == null || mLocationName == null || mSelectedLatLng == null) return null;
-
-            // add this location to the db
-            AccessDB.addTripLocation(mTripId, mSelectedLatLng, mLocationName, new Date().getTime());
+            if (mTripId == null) return null;
+
+            // add this location to the db, the place can be removed once it has a doc id
+            AccessDB.addTripLocation(mTripId, mPlace.getLocation(), mPlace.getPlaceName(),
+                    mPlace.getTimeStamp()).addOnSuccessListener(new OnSuccessListener<DocumentReference>() {
+                @Override
+                public void onSuccess(DocumentReference ref) {
+                    mPlace.setDocId(ref.getId());
+                }
+            });
 
             return null;
         }
@@ -7,6 +7,7 @@ import android.content.Intent;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.util.Log;
+import android.util.SparseBooleanArray;
 import android.view.Gravity;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -20,10 +21,17 @@ import android.widget.Toast;
 
 import com.alsaeedcullivan.ourtrips.adapters.FriendAdapter;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
+import com.alsaeedcullivan.ourtrips.cloud.UserRepository;
+import com.alsaeedcullivan.ourtrips.comparators.OverlapComparator;
 import com.alsaeedcullivan.ourtrips.fragments.CustomDialogFragment;
+import com.alsaeedcullivan.ourtrips.models.Availability;
+import com.alsaeedcullivan.ourtrips.models.AvailabilitySchedule;
+import com.alsaeedcullivan.ourtrips.models.GroupMatch;
 import com.alsaeedcullivan.ourtrips.models.UserSummary;
+import com.alsaeedcullivan.ourtrips.utils.AvailabilityCodec;
 import com.alsaeedcullivan.ourtrips.utils.Const;
-import com.google.android.gms.tasks.Continuation;
+import com.alsaeedcullivan.ourtrips.utils.DateCodec;
+import com.alsaeedcullivan.ourtrips.utils.TaskPipeline;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
@@ -31,41 +39,45 @@ import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.QuerySnapshot;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 
 public class MatchOrAddActivity extends AppCompatActivity {
 
     // constants
     private static final String FRIENDS_KEY = "friends";
     private static final String DATES_KEY = "dates";
+    private static final String BASE_KEY = "base";
     private static final String NAME_KEY = "name";
     private static final String SELECTED_KEY = "selected";
+    // the number of days from today that are matched, the same range the calendar displays
+    private static final int MATCH_WINDOW_DAYS = 366;
 
     // widgets
     private ProgressBar mSpinner;
     private TextView mLoading;
     private LinearLayout mLayout;
+    private ListView mListView;
+    private TextView mHeader;
 
     private FriendAdapter mAdapter;
-    private List<Date> mUserDates = new ArrayList<>();
-    private List<String> sDates = new ArrayList<>();
+    private Availability mUserDates = new Availability();
+    private boolean mUserDatesLoaded;
+    private Map<String, Integer> mOverlaps = new HashMap<>();
+    private DocumentSnapshot mUserDoc;
     private HashSet<UserSummary> mTrippers = new HashSet<>();
-    private List<DocumentSnapshot> mTripperDocs = new ArrayList<>();
     private ArrayList<UserSummary> mFriends;
-    private List<Date> mFriendDates = new ArrayList<>();
-    private List<String> mFriendSDates = new ArrayList<>();
-    private List<DocumentSnapshot> mFriendAddDocs = new ArrayList<>();
-    private List<DocumentSnapshot> mFriendMatchDocs = new ArrayList<>();
+    private ArrayList<UserSummary> mGroup = new ArrayList<>();
+    private Map<String, AvailabilitySchedule> mGroupDates = new HashMap<>();
     private List<UserSummary> mExcludedFriends = new ArrayList<>();
-    private long[] mMatched;
+    private GroupMatch mMatch;
+    private boolean mGroupMode;
     private String mUserName;
     private String mTripId;
     private String mTripTitle;
@@ -73,7 +85,6 @@ public class MatchOrAddActivity extends AppCompatActivity {
     private FirebaseUser mUser;
     private UserSummary mSelected;
     private String mSource;
-    private String mFriendId;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -102,13 +113,14 @@ public class MatchOrAddActivity extends AppCompatActivity {
         mUser = FirebaseAuth.getInstance().getCurrentUser();
 
         // get a reference to the ListView
-        ListView listView = findViewById(R.id.match_list);
+        mListView = findViewById(R.id.match_list);
+        mHeader = findViewById(R.id.match_text);
 
         // instantiate the adapter
         mAdapter = new FriendAdapter(this, R.layout.activity_match, new ArrayList<UserSummary>());
 
         // assign the adapter to the list view
-        listView.setAdapter(mAdapter);
+        mListView.setAdapter(mAdapter);
 
         // if a user has been selected, restore them
         if (savedInstanceState != null && savedInstanceState.getParcelable(SELECTED_KEY) != null) {
@@ -122,14 +134,13 @@ public class MatchOrAddActivity extends AppCompatActivity {
                 .getStringExtra(Const.TRIP_TITLE_TAG) != null) {
 
             setTitle("Add Tripper");
-            TextView header = findViewById(R.id.match_text);
-            header.setText(R.string.add_tripper_friend);
+            mHeader.setText(R.string.add_tripper_friend);
             // get the trip info
             mTripId = intent.getStringExtra(Const.TRIP_ID_TAG);
             mTripTitle = intent.getStringExtra(Const.TRIP_TITLE_TAG);
             mTripStart = intent.getStringExtra(Const.TRIP_START_TAG);
             // set the on item click listener
-            listView.setOnItemClickListener(addTripperListener());
+            mListView.setOnItemClickListener(addTripperListener());
 
             // if the instance state has been saved
             if (savedInstanceState != null && savedInstanceState.getParcelableArrayList(FRIENDS_KEY) != null) {
@@ -144,13 +155,15 @@ public class MatchOrAddActivity extends AppCompatActivity {
                 showList();
             }
             // else load the user's friends from the db
-            else if (mUser != null) new LoadFriendsTask().execute();
+            else if (mUser != null) loadFriendsToAdd();
         }
         // if this is to match dates
         else {
             setTitle("Match Dates");
+            // show how many days each friend has in common with this user
+            mAdapter.setOverlaps(mOverlaps);
             // set the on item click listener
-            listView.setOnItemClickListener(getMatchListener());
+            mListView.setOnItemClickListener(getMatchListener());
 
             // if the instance state has been saved
             if (savedInstanceState != null && savedInstanceState.getLongArray(DATES_KEY) != null &&
@@ -158,11 +171,9 @@ public class MatchOrAddActivity extends AppCompatActivity {
                     savedInstanceState.getString(NAME_KEY) != null) {
                 long[] dates = savedInstanceState.getLongArray(DATES_KEY);
                 if (dates != null) {
-                    mUserDates = new ArrayList<>();
                     // get the dates
-                    for (long date : dates) {
-                        mUserDates.add(new Date(date));
-                    }
+                    mUserDates = new Availability(savedInstanceState.getInt(BASE_KEY), dates);
+                    mUserDatesLoaded = true;
                     // get the name of this user
                     mUserName = savedInstanceState.getString(NAME_KEY);
                     // get the list of friends
@@ -170,12 +181,16 @@ public class MatchOrAddActivity extends AppCompatActivity {
                     if (mFriends != null) {
                         mAdapter.addAll(mFriends);
                         mAdapter.notifyDataSetChanged();
+                        prefetchDates();
                     }
                     showList();
                 }
             }
             // load the data
-            else if (mUser != null) new LoadForMatchTask().execute();
+            else if (mUser != null) {
+                new LoadForMatchTask().execute();
+                loadFriendsToMatch();
+            }
         }
     }
 
@@ -200,6 +215,10 @@ public class MatchOrAddActivity extends AppCompatActivity {
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.match_menu, menu);
+        // group matching is only available when matching dates
+        MenuItem group = menu.findItem(R.id.group_match_button);
+        if (mSource != null && mSource.equals(Const.TRIP_ACTIVITY_TAG)) group.setVisible(false);
+        else group.setTitle(mGroupMode ? R.string.match : R.string.group);
         return super.onCreateOptionsMenu(menu);
     }
 
@@ -220,6 +239,9 @@ public class MatchOrAddActivity extends AppCompatActivity {
             case R.id.search_button:
                 onSearchClicked();
                 return true;
+            case R.id.group_match_button:
+                onGroupClicked();
+                return true;
         }
         return super.onOptionsItemSelected(item);
     }
@@ -237,7 +259,10 @@ public class MatchOrAddActivity extends AppCompatActivity {
     protected void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
         if (mFriends != null) outState.putParcelableArrayList(FRIENDS_KEY, mFriends);
-        if (mUserDates != null) outState.putLongArray(DATES_KEY, toLongs(mUserDates));
+        if (mUserDates != null) {
+            outState.putLongArray(DATES_KEY, mUserDates.getWords());
+            outState.putInt(BASE_KEY, mUserDates.getBase());
+        }
         if (mUserName != null) outState.putString(NAME_KEY, mUserName);
         if (mSelected != null) outState.putParcelable(SELECTED_KEY, mSelected);
     }
@@ -312,11 +337,204 @@ public class MatchOrAddActivity extends AppCompatActivity {
      */
     public void onMatchClicked() {
         if (mSelected == null) return;
-        mLoading.setText(R.string.matching);
-        hideList();
-        mFriendId = mSelected.getUserId();
-        // get the friends dates and then match them with this user's dates
-        new GetFriendDatesForMatchTask().execute();
+        // a pairwise match is a group match with a single friend
+        ArrayList<UserSummary> friends = new ArrayList<>();
+        friends.add(mSelected);
+        startGroupMatch(friends);
+    }
+
+    /**
+     * onGroupClicked()
+     * called when the user clicks "group" to start selecting friends, or "match" once they have
+     * selected the friends they want to match with
+     */
+    private void onGroupClicked() {
+        if (!mGroupMode) {
+            // let the user check as many friends as they want
+            mGroupMode = true;
+            mListView.clearChoices();
+            mListView.setChoiceMode(ListView.CHOICE_MODE_MULTIPLE);
+            mHeader.setText(R.string.select_group);
+            invalidateOptionsMenu();
+            return;
+        }
+
+        // collect the friends that were checked
+        ArrayList<UserSummary> friends = new ArrayList<>();
+        SparseBooleanArray checked = mListView.getCheckedItemPositions();
+        for (int i = 0; i < checked.size(); i++) {
+            int position = checked.keyAt(i);
+            if (checked.valueAt(i) && position < mFriends.size()) friends.add(mFriends.get(position));
+        }
+        if (friends.size() >= GroupMatch.MAX_PARTICIPANTS) {
+            Toast t = Toast.makeText(this, "You can match with at most " +
+                    (GroupMatch.MAX_PARTICIPANTS - 1) + " friends at once.", Toast.LENGTH_SHORT);
+            t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+            t.show();
+            return;
+        }
+
+        // leave group mode
+        mGroupMode = false;
+        mListView.clearChoices();
+        mListView.setChoiceMode(ListView.CHOICE_MODE_NONE);
+        mHeader.setText(R.string.available_match);
+        invalidateOptionsMenu();
+        // apply any ranking that was held back while friends were being checked
+        rankFriends();
+
+        if (friends.size() > 0) startGroupMatch(friends);
+    }
+
+    /**
+     * startGroupMatch()
+     * gets the dates of each of the friends and matches them with this user's dates
+     * @param friends the friends to match with
+     */
+    private void startGroupMatch(ArrayList<UserSummary> friends) {
+        if (mUser == null) return;
+        // only show the spinner if some of the friends' dates still need to be loaded
+        if (!UserRepository.hasAvailability(getIds(friends))) {
+            mLoading.setText(R.string.matching);
+            hideList();
+        }
+        // this user is always the first participant
+        UserSummary me = new UserSummary();
+        me.setUserId(mUser.getUid());
+        me.setEmail(mUser.getEmail());
+        me.setName(mUserName);
+        mGroup = new ArrayList<>();
+        mGroup.add(me);
+        mGroup.addAll(friends);
+        new GetGroupDatesTask().execute();
+    }
+
+    /**
+     * loadFriendsToAdd()
+     * loads this user's friends and the trippers of the current trip, and displays the friends
+     * that are not part of the trip, the lists are mapped and filtered on the background pool
+     */
+    private void loadFriendsToAdd() {
+        if (mTripId == null) return;
+        final Task<ArrayList<UserSummary>> friendTask = AccessDB.loadFriends(mUser.getUid());
+        final Task<ArrayList<UserSummary>> tripperTask = AccessDB.loadTrippers(mTripId);
+        TaskPipeline.start(this, Tasks.whenAllComplete(friendTask, tripperTask))
+                .then(new TaskPipeline.Stage<List<Task<?>>, ArrayList<UserSummary>>() {
+                    @Override
+                    public ArrayList<UserSummary> run(List<Task<?>> tasks) {
+                        ArrayList<UserSummary> excluded = new ArrayList<>();
+                        if (!friendTask.isSuccessful()) return excluded;
+                        // add the friends to a list that are not part of the trip
+                        HashSet<UserSummary> trippers = new HashSet<>();
+                        if (tripperTask.isSuccessful()) trippers.addAll(tripperTask.getResult());
+                        for (UserSummary user : friendTask.getResult()) {
+                            if (!trippers.contains(user)) excluded.add(user);
+                        }
+                        return excluded;
+                    }
+                })
+                .deliver(this, new TaskPipeline.Callback<ArrayList<UserSummary>>() {
+                    @Override
+                    public void onSuccess(ArrayList<UserSummary> excluded) {
+                        mFriends = friendTask.isSuccessful() ? friendTask.getResult() : new ArrayList<UserSummary>();
+                        mTrippers.clear();
+                        if (tripperTask.isSuccessful()) mTrippers.addAll(tripperTask.getResult());
+                        mExcludedFriends = excluded;
+                        // add the friends to the list view and show it
+                        mAdapter.clear();
+                        mAdapter.addAll(mExcludedFriends);
+                        mAdapter.notifyDataSetChanged();
+                        showList();
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(Const.TAG, "loadFriendsToAdd: " + e);
+                        showList();
+                    }
+                });
+    }
+
+    /**
+     * loadFriendsToMatch()
+     * loads this user's friends, which are mapped on the background pool, adds them to the list
+     * view and starts loading their dates
+     */
+    private void loadFriendsToMatch() {
+        TaskPipeline.start(this, AccessDB.loadFriends(mUser.getUid()))
+                .deliver(this, new TaskPipeline.Callback<ArrayList<UserSummary>>() {
+                    @Override
+                    public void onSuccess(ArrayList<UserSummary> friends) {
+                        if (friends.size() == 0) {
+                            Toast t = Toast.makeText(MatchOrAddActivity.this, "You have no friends.",
+                                    Toast.LENGTH_SHORT);
+                            t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                            t.show();
+                            return;
+                        }
+                        // update the list view
+                        mFriends = friends;
+                        mAdapter.clear();
+                        mAdapter.addAll(mFriends);
+                        mAdapter.notifyDataSetChanged();
+                        // load the dates of all of the friends so they are ready to be matched
+                        prefetchDates();
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Toast t = Toast.makeText(MatchOrAddActivity.this, "You have no friends.",
+                                Toast.LENGTH_SHORT);
+                        t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                        t.show();
+                    }
+                });
+    }
+
+    /**
+     * prefetchDates()
+     * loads the dates of every friend in the background so that they can be matched instantly,
+     * and ranks the friends as each chunk of dates arrives
+     */
+    private void prefetchDates() {
+        if (mFriends == null || mFriends.size() == 0) return;
+        for (Task<Map<String, AvailabilitySchedule>> chunk : AccessDB.getAvailabilityChunks(getIds(mFriends))) {
+            chunk.addOnSuccessListener(new OnSuccessListener<Map<String, AvailabilitySchedule>>() {
+                @Override
+                public void onSuccess(Map<String, AvailabilitySchedule> dates) {
+                    // if this user's dates are not ready, the chunk is scored once they are
+                    if (mUserDatesLoaded) new ScoreTask(dates).execute();
+                }
+            });
+        }
+    }
+
+    /**
+     * rankFriends()
+     * sorts the list of friends by the number of days they have in common with this user
+     */
+    private void rankFriends() {
+        if (mFriends == null) return;
+        // re-ordering the list would move the friends that were checked in group mode
+        if (!mGroupMode) {
+            Collections.sort(mFriends, new OverlapComparator(mOverlaps));
+            mAdapter.clear();
+            mAdapter.addAll(mFriends);
+        }
+        mAdapter.notifyDataSetChanged();
+    }
+
+    // returns the ids of the given users
+    private List<String> getIds(List<UserSummary> users) {
+        List<String> ids = new ArrayList<>();
+        for (UserSummary user : users) ids.add(user.getUserId());
+        return ids;
+    }
+
+    // the message displayed when no friend in the group shares a date with this user
+    private String noMatchMessage() {
+        if (mGroup.size() == 2) return "You and " + mGroup.get(1).getName() + " have no dates in common.";
+        return "None of these friends have dates in common with you.";
     }
 
     /**
@@ -339,6 +557,8 @@ public class MatchOrAddActivity extends AppCompatActivity {
         return new AdapterView.OnItemClickListener() {
             @Override
             public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                // in group mode clicking a friend only checks them
+                if (mGroupMode) return;
                 mSelected = mFriends.get(position);
                 // display the match dialog
                 CustomDialogFragment.newInstance(CustomDialogFragment.MATCH_ID)
@@ -374,21 +594,6 @@ public class MatchOrAddActivity extends AppCompatActivity {
         mLoading.setVisibility(View.VISIBLE);
     }
 
-    /**
-     * toLongs()
-     * Converts a List of Date objects to an array of longs.
-     * This will be used in conjunction with onSavedInstanceState because a Date object cannot
-     * be added to a Bundle
-     *
-     * @param dates the List of Dates
-     * @return an array of longs corresponding to the time of each date
-     */
-    private long[] toLongs(List<Date> dates) {
-        long[] times = new long[dates.size()];
-        for (int i = 0; i < dates.size(); i++) times[i] = dates.get(i).getTime();
-        return times;
-    }
-
     // getters
 
     public UserSummary getFriend() {
@@ -398,142 +603,6 @@ public class MatchOrAddActivity extends AppCompatActivity {
 
     // ASYNC TASKS
 
-    /**
-     * LoadFriendsTask
-     * loads the list of friend documents of the current user and tripper documents of the current trip
-     */
-    private class LoadFriendsTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mUser == null || mTripId == null) return null;
-
-            // load this user's list of friends
-            Task<QuerySnapshot> friendTask = AccessDB.getFriendsList(mUser.getUid())
-                    .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                        @Override
-                        public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                            QuerySnapshot result = task.getResult();
-                            if (task.isSuccessful() && result != null && result
-                                    .getDocuments().size() > 0) {
-                                // get the list of documents
-                                mFriendAddDocs = result.getDocuments();
-                            }
-                        }
-                    });
-            // load the list of trippers
-            Task<QuerySnapshot> tripperTask = AccessDB.getTrippers(mTripId)
-                    .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                        @Override
-                        public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                            QuerySnapshot result = task.getResult();
-                            if (task.isSuccessful() && result != null && result
-                                    .getDocuments().size() > 0) {
-                                // get the list of documents
-                                mTripperDocs = result.getDocuments();
-                            }
-                        }
-                    });
-            // add the friends that are not part of the trip to the list of friends
-            Tasks.whenAll(friendTask, tripperTask).continueWith(new Continuation<Void, Object>() {
-                @Override
-                public Object then(@NonNull Task<Void> task) {
-                    mFriends = new ArrayList<>();
-                    // display the friends that are not part of the trip
-                    new FilterFriendsTask().execute();
-                    return null;
-                }
-            });
-
-            return null;
-        }
-    }
-
-    /**
-     * FilterFriendsTask
-     * creates objects for the documents and adds them to the friends list and trippers set
-     */
-    private class FilterFriendsTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mFriendAddDocs == null || mFriendAddDocs.size() == 0) return null;
-
-            // add all of the friends to the friends list
-            for (DocumentSnapshot doc : mFriendAddDocs) {
-                UserSummary u = new UserSummary();
-                u.setUserId(doc.getId());
-                String email = (String)doc.get(Const.USER_EMAIL_KEY);
-                if (email != null) u.setEmail(email);
-                String name = (String)doc.get(Const.USER_NAME_KEY);
-                if (name != null) u.setName(name);
-                mFriends.add(u);
-            }
-
-            // add all of the trippers to the trippers set
-            if (mTripperDocs != null && mTripperDocs.size() > 0) {
-                List<UserSummary> trippers = new ArrayList<>();
-                // extract a user summary from each document and return the list of trippers
-                for (DocumentSnapshot doc : mTripperDocs) {
-                    UserSummary tripper = new UserSummary();
-                    tripper.setUserId(doc.getId());
-                    String email = (String)doc.get(Const.USER_EMAIL_KEY);
-                    if (email != null) tripper.setEmail(email);
-                    String name = (String)doc.get(Const.USER_NAME_KEY);
-                    if (name != null) tripper.setName(name);
-                    trippers.add(tripper);
-                }
-                // add all the trippers to the trippers set
-                mTrippers.clear();
-                mTrippers.addAll(trippers);
-            }
-
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-
-            // start the task that will update the list view
-            new DisplayFriendsTask().execute();
-        }
-    }
-
-    /**
-     * DisplayFriendTask
-     * adds friends that are not part of the trip to the list view
-     */
-    private class DisplayFriendsTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            // add the friends to a list that are not part of the trip
-            if (mFriends == null || mTrippers == null) return null;
-            mExcludedFriends.clear();
-            for (UserSummary user : mFriends) {
-                if (!mTrippers.contains(user)) mExcludedFriends.add(user);
-            }
-
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-            if (mExcludedFriends == null) {
-                showList();
-                return;
-            }
-            // add the friends to the list view and show it
-            mAdapter.clear();
-            mAdapter.addAll(mExcludedFriends);
-            mAdapter.notifyDataSetChanged();
-            // show the list
-            showList();
-        }
-    }
-
     /**
      * AddTripperTask
      * adds the selected friend to the current trip
@@ -545,21 +614,8 @@ public class MatchOrAddActivity extends AppCompatActivity {
             if (mTripId == null || mSelected == null || mTripTitle == null || mTripStart == null) return null;
 
             // add the friend to the trippers sub collection and add the trip to the friend's trips
-            // sub-collection
-            Task<Void> tripTask = AccessDB.addTripper(mTripId, mSelected.getUserId(),
-                    mSelected.getEmail(), mSelected.getName())
-                    .addOnCompleteListener(new OnCompleteListener<Void>() {
-                        @Override
-                        public void onComplete(@NonNull Task<Void> task) {
-                            if (!task.isSuccessful()) {
-                                Toast t = Toast.makeText(MatchOrAddActivity.this, mSelected.getName() +
-                                        " could not be added to the trip.", Toast.LENGTH_SHORT);
-                                t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
-                                t.show();
-                            }
-                        }
-                    });
-            Task<Void> friendTask = AccessDB.addUserTrip(mSelected.getUserId(), mTripId, mTripTitle, mTripStart)
+            // sub-collection, both writes are committed together
+            AccessDB.addTrippers(mTripId, mTripTitle, mTripStart, Collections.singletonList(mSelected))
                     .addOnCompleteListener(new OnCompleteListener<Void>() {
                         @Override
                         public void onComplete(@NonNull Task<Void> task) {
@@ -568,19 +624,14 @@ public class MatchOrAddActivity extends AppCompatActivity {
                                         " could not be added to the trip.", Toast.LENGTH_SHORT);
                                 t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
                                 t.show();
+                                return;
                             }
+                            // send the user back to trip activity
+                            Intent intent = new Intent(MatchOrAddActivity.this, TripActivity.class);
+                            intent.putExtra(Const.TRIP_ID_TAG, mTripId);
+                            startActivity(intent);
                         }
                     });
-            // if both the tasks succeed, head back to trip activity
-            Tasks.whenAll(tripTask, friendTask).addOnSuccessListener(new OnSuccessListener<Void>() {
-                @Override
-                public void onSuccess(Void aVoid) {
-                    // send the user back to trip activity
-                    Intent intent = new Intent(MatchOrAddActivity.this, TripActivity.class);
-                    intent.putExtra(Const.TRIP_ID_TAG, mTripId);
-                    startActivity(intent);
-                }
-            });
 
             return null;
         }
@@ -588,7 +639,7 @@ public class MatchOrAddActivity extends AppCompatActivity {
 
     /**
      * LoadForMatchTask
-     * loads this user's friends, name and dates
+     * loads this user's name and dates
      */
     private class LoadForMatchTask extends AsyncTask<Void, Void, Void> {
 
@@ -600,12 +651,9 @@ public class MatchOrAddActivity extends AppCompatActivity {
                 @Override
                 public void onComplete(@NonNull Task<DocumentSnapshot> task) {
                     DocumentSnapshot doc = task.getResult();
-                    if (task.isSuccessful() && doc != null &&
-                            doc.contains(Const.DATE_LIST_KEY) &&
-                            doc.get(Const.DATE_LIST_KEY) instanceof  List) {
-                        // this will not produce an exception
-                        sDates = (List<String>) doc.get(Const.DATE_LIST_KEY);
-                        //convert the strings to Dates
+                    if (task.isSuccessful() && doc != null) {
+                        mUserDoc = doc;
+                        // unpack the dates
                         new UserDatesTask().execute();
                     } else {
                         Toast t = Toast.makeText(MatchOrAddActivity.this, "Could not load your dates.",
@@ -625,28 +673,6 @@ public class MatchOrAddActivity extends AppCompatActivity {
                     }
                 }
             });
-            // load this user's list of friends
-            AccessDB.getFriendsList(mUser.getUid())
-                    .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                        @Override
-                        public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                            QuerySnapshot result = task.getResult();
-                            if (task.isSuccessful() && result != null && result.getDocuments().size() > 0) {
-                                // get the list of documents and begin the async task
-                                // that will set up the list view
-                                mFriendMatchDocs = result.getDocuments();
-                                mFriends = new ArrayList<>();
-                                new FriendSetUpTask().execute();
-                            } else {
-                                Toast t = Toast.makeText(MatchOrAddActivity.this,
-                                        "You have no friends.",
-                                        Toast.LENGTH_SHORT);
-                                t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL,
-                                        0, 0);
-                                t.show();
-                            }
-                        }
-                    });
 
             return null;
         }
@@ -655,105 +681,96 @@ public class MatchOrAddActivity extends AppCompatActivity {
 
     /**
      * UserDatesTask
-     * converts a list of strings to a list of dates
+     * unpacks the days this user is available from their document
      */
     private class UserDatesTask extends AsyncTask<Void, Void, Void> {
 
         @Override
         protected Void doInBackground(Void... voids) {
-            if (sDates == null || sDates.size() == 0) return null;
-            SimpleDateFormat format = new SimpleDateFormat("MM/dd/yyyy", Locale.getDefault());
-            try {
-                Date today = format.parse(format.format(new Date()));
-
-                // convert each string date into a date object
-                // make sure that none of these dates are before today
-                for (String date : sDates) {
-                    Date d = format.parse(date);
-                    if (d != null && d.compareTo(today) >= 0) {
-                        mUserDates.add(d);
-                    }
-                }
-            } catch (ParseException e) {
-                Log.d(Const.TAG, "doInBackground: " + Log.getStackTraceString(e));
-            }
+            if (mUserDoc == null) return null;
+            // make sure that none of these dates are before today, the rules are only expanded
+            // over the days that are matched
+            int today = DateCodec.toEpochDay(new Date());
+            mUserDates = AvailabilityCodec.scheduleFromDocument(mUserDoc).window(today, MATCH_WINDOW_DAYS);
             return null;
         }
 
         @Override
         protected void onPostExecute(Void aVoid) {
             super.onPostExecute(aVoid);
+            mUserDatesLoaded = true;
+            // score the friends whose dates arrived before this user's dates
+            if (mFriends != null) {
+                Map<String, AvailabilitySchedule> cached = new HashMap<>();
+                for (UserSummary friend : mFriends) {
+                    AvailabilitySchedule dates = UserRepository.getAvailability(friend.getUserId());
+                    if (dates != null) cached.put(friend.getUserId(), dates);
+                }
+                if (cached.size() > 0) new ScoreTask(cached).execute();
+            }
             // show the list
             showList();
         }
     }
 
     /**
-     * FriendSetUpTask
-     * sets up the list of friends and adds it to the list view
+     * ScoreTask
+     * counts the days that each friend in a chunk has in common with this user and re-ranks
+     * the list of friends
      */
-    private class FriendSetUpTask extends AsyncTask<Void, Void, Void> {
+    private class ScoreTask extends AsyncTask<Void, Void, Map<String, Integer>> {
 
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mFriendMatchDocs == null || mFriendMatchDocs.size() == 0 || mFriends == null) return null;
-
-            for (DocumentSnapshot doc : mFriendMatchDocs) {
-                UserSummary u = new UserSummary();
-                u.setUserId(doc.getId());
-                String email = (String)doc.get(Const.USER_EMAIL_KEY);
-                if (email != null) u.setEmail(email);
-                String name = (String)doc.get(Const.USER_NAME_KEY);
-                if (name != null) u.setName(name);
-                mFriends.add(u);
-            }
+        private Map<String, AvailabilitySchedule> mDates;
 
-            return null;
+        ScoreTask(Map<String, AvailabilitySchedule> dates) {
+            mDates = dates;
         }
 
         @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-
-            // update the list view
-            if (mFriends != null && mAdapter != null) {
-                mAdapter.clear();
-                mAdapter.addAll(mFriends);
-                mAdapter.notifyDataSetChanged();
+        protected Map<String, Integer> doInBackground(Void... voids) {
+            Map<String, Integer> scores = new HashMap<>();
+            if (mUserDates == null) return scores;
+            // this user's dates start today, so past days are never counted
+            int today = DateCodec.toEpochDay(new Date());
+            for (Map.Entry<String, AvailabilitySchedule> entry : mDates.entrySet()) {
+                Availability dates = entry.getValue().window(today, MATCH_WINDOW_DAYS);
+                scores.put(entry.getKey(), mUserDates.intersectionSize(dates));
             }
+            return scores;
+        }
 
+        @Override
+        protected void onPostExecute(Map<String, Integer> scores) {
+            super.onPostExecute(scores);
+            mOverlaps.putAll(scores);
+            rankFriends();
         }
     }
 
     /**
-     * GetFriendDatesForMatchTask
-     * gets the friends dates and begins the matching algorithm
+     * GetGroupDatesTask
+     * gets the dates of every friend in the group, from the cache if they have already been loaded,
+     * and begins the matching algorithm
      */
-    private class GetFriendDatesForMatchTask extends AsyncTask<Void, Void, Void> {
+    private class GetGroupDatesTask extends AsyncTask<Void, Void, Void> {
 
         @Override
         protected Void doInBackground(Void... voids) {
-            if (mFriendId == null) return null;
-
-            Log.d(Const.TAG, "doInBackground: " + mSelected.getName());
-            Log.d(Const.TAG, "doInBackground: " + mSelected.getUserId() + " " + mFriendId);
+            if (mGroup == null || mGroup.size() < 2) return null;
 
-            AccessDB.getUserDates(mFriendId).addOnCompleteListener(new OnCompleteListener<DocumentSnapshot>() {
+            // load the dates of everyone except this user
+            List<String> ids = getIds(mGroup.subList(1, mGroup.size()));
+            AccessDB.getAvailabilities(ids).addOnCompleteListener(new OnCompleteListener<Map<String, AvailabilitySchedule>>() {
                 @Override
-                public void onComplete(@NonNull Task<DocumentSnapshot> task) {
-                    DocumentSnapshot doc = task.getResult();
-                    if (task.isSuccessful() && doc != null &&
-                            doc.contains(Const.DATE_LIST_KEY) &&
-                            doc.get(Const.DATE_LIST_KEY) instanceof List) {
-                        // this will not produce an exception
-                        mFriendSDates = (List<String>) doc.get(Const.DATE_LIST_KEY);
-                        mFriendDates = new ArrayList<>();
-                        //convert the strings to Dates
+                public void onComplete(@NonNull Task<Map<String, AvailabilitySchedule>> task) {
+                    if (task.isSuccessful() && task.getResult() != null) {
+                        mGroupDates = task.getResult();
+                        // match the dates
                         new MatchTask().execute();
                     } else {
                         // unable to be matched
-                        Toast t = Toast.makeText(MatchOrAddActivity.this, "You and " +
-                                mSelected.getName() + " were not able to be matched.", Toast.LENGTH_LONG);
+                        Toast t = Toast.makeText(MatchOrAddActivity.this, "Your dates could not " +
+                                "be matched.", Toast.LENGTH_LONG);
                         t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
                         t.show();
                         showList();
@@ -767,90 +784,42 @@ public class MatchOrAddActivity extends AppCompatActivity {
 
     /**
      * MatchTask
-     * matches dates between this user and a friend
+     * matches dates between this user and every friend in the group
      */
-    private class MatchTask extends AsyncTask<Void, String, Void> {
+    private class MatchTask extends AsyncTask<Void, Void, Void> {
 
         @Override
         protected Void doInBackground(Void... voids) {
-            if (mFriendSDates == null || mFriendSDates.size() == 0) {
-                publishProgress("None");
-                return null;
-            }
-
-            // get a date format
-            SimpleDateFormat format = new SimpleDateFormat("MM/dd/yyyy", Locale.getDefault());
-            try {
-                // convert the strings to dates
-                for (String date : mFriendSDates) {
-                    mFriendDates.add(format.parse(date));
-                }
-            } catch (ParseException e) {
-                Log.d(Const.TAG, "doInBackground: " + Log.getStackTraceString(e));
+            if (mGroup == null || mGroupDates == null || mUserDates == null) return null;
+
+            // collect the availability of each participant, this user is always first
+            int today = DateCodec.toEpochDay(new Date());
+            List<Availability> availabilities = new ArrayList<>();
+            availabilities.add(mUserDates);
+            for (int i = 1; i < mGroup.size(); i++) {
+                AvailabilitySchedule dates = mGroupDates.get(mGroup.get(i).getUserId());
+                availabilities.add(dates != null ? dates.window(today, MATCH_WINDOW_DAYS) : new Availability());
             }
 
-            // if there are no friend dates, return
-            if (mFriendDates.size() == 0 || mUserDates == null || mUserDates.size() == 0) {
-                publishProgress("None");
-                return null;
-            }
-
-            // initialize a list to hold the matched dates
-            List<Date> matched = new ArrayList<>();
-
-            Log.d(Const.TAG, "then: match: userDates: " + mUserDates);
-            Log.d(Const.TAG, "then: match: friend: " + mFriendDates);
-
-            int a = 0;
-            int b = 0;
-            while (a < mUserDates.size() && b < mFriendDates.size()) {
-                int result = mUserDates.get(a).compareTo(mFriendDates.get(b));
-                if (result < 0) a++;
-                else if (result > 0 ) b++;
-                else {
-                    matched.add(mUserDates.get(a));
-                    a++;
-                    b++;
-                }
-            }
-            // create an array of the times of the matched dates
-            mMatched = new long[matched.size()];
-            for (int i = 0; i < matched.size(); i++) mMatched[i] = matched.get(i).getTime();
-
-            Log.d(Const.TAG, "doInBackground: " + mMatched.length);
+            // record which participants are free on each day of the window
+            mMatch = GroupMatch.compute(mGroup, availabilities, today, MATCH_WINDOW_DAYS);
             return null;
         }
 
-        @Override
-        protected void onProgressUpdate(String... values) {
-            super.onProgressUpdate(values);
-            if (values != null && mSelected != null && values.length > 0 && values[0].equals("None")) {
-                Log.d(Const.TAG, "onProgressUpdate: None");
-                // the two users have no dates in common
-                Toast t = Toast.makeText(MatchOrAddActivity.this, "You and " +
-                        mSelected.getName() + " have no dates in common.", Toast.LENGTH_LONG);
-                t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
-                t.show();
-                showList();
-            }
-        }
-
         @Override
         protected void onPostExecute(Void aVoid) {
             super.onPostExecute(aVoid);
-            if (mMatched != null && mMatched.length > 0) {
-                Log.d(Const.TAG, "onPostExecute: " + mMatched.length);
-                // start CalendarActivity and pass it an array of all the matched dates
+            if (mMatch != null && mMatch.hasCommonDay()) {
+                // start CalendarActivity and pass it the group match to display as a heat map
                 Intent intent = new Intent(MatchOrAddActivity.this, CalendarActivity.class);
                 intent.putExtra(Const.SOURCE_TAG, Const.MATCH_TAG);
-                intent.putExtra(Const.MATCH_ARR_TAG, mMatched);
-                intent.putExtra(Const.SELECTED_FRIEND_TAG, mSelected);
+                intent.putExtra(Const.GROUP_MATCH_TAG, mMatch);
                 intent.putExtra(Const.USER_NAME_TAG, mUserName);
                 startActivity(intent);
             } else {
-                // the two users have no dates in common
-                Toast t = Toast.makeText(MatchOrAddActivity.this, "You and " +
-                        mSelected.getName() + " have no dates in common.", Toast.LENGTH_LONG);
+                // no friend has a date in common with this user
+                Toast t = Toast.makeText(MatchOrAddActivity.this, noMatchMessage(),
+                        Toast.LENGTH_LONG);
                 t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
                 t.show();
                 showList();
@@ -30,6 +30,8 @@ import com.alsaeedcullivan.ourtrips.cloud.AccessBucket;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
 import com.alsaeedcullivan.ourtrips.fragments.CustomDialogFragment;
 import com.alsaeedcullivan.ourtrips.glide.GlideApp;
+import com.alsaeedcullivan.ourtrips.models.Availability;
+import com.alsaeedcullivan.ourtrips.utils.AvailabilityCodec;
 import com.alsaeedcullivan.ourtrips.utils.Const;
 import com.alsaeedcullivan.ourtrips.utils.SharedPreference;
 import com.google.android.gms.tasks.OnCompleteListener;
@@ -43,7 +45,6 @@ import com.theartofdev.edmodo.cropper.CropImageView;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -421,7 +422,8 @@ public class RegisterActivity extends AppCompatActivity {
         mData.put(Const.USER_GENDER_KEY, gender);
         mData.put(Const.USER_AFFILIATION_KEY, mAffiliationEditText.getText().toString());
         mData.put(Const.USER_BIO_KEY, mBioEditText.getText().toString());
-        mData.put(Const.DATE_LIST_KEY, new ArrayList<String>());
+        // new users start with no available days, in the packed format
+        mData.putAll(AvailabilityCodec.toFields(new Availability()));
 
         // if they have set a profile pic
         if (mProfileUri != null) {
@@ -4,7 +4,6 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.Gravity;
@@ -20,31 +19,25 @@ import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
 import com.alsaeedcullivan.ourtrips.fragments.CustomDialogFragment;
 import com.alsaeedcullivan.ourtrips.models.UserSummary;
 import com.alsaeedcullivan.ourtrips.utils.Const;
-import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.Task;
+import com.alsaeedcullivan.ourtrips.utils.DateCodec;
+import com.google.android.gms.tasks.OnFailureListener;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Locale;
-import java.util.Objects;
+import java.util.List;
+import java.util.Map;
 
 public class RequestTripActivity extends AppCompatActivity {
 
     private final String END_KEY = "end_date";
 
-    private SimpleDateFormat mFormat;
-    private UserSummary mFriend;
+    private ArrayList<UserSummary> mFriends;
     private String mUserName;
     private Date mStart;
     private Date mEnd;
-    private HashMap<String, Object> mData;
-    private FirebaseUser mUser;
-    private String mTripId;
-    private String mTripTitle;
 
     // widgets
     private EditText mTitle;
@@ -69,17 +62,11 @@ public class RequestTripActivity extends AppCompatActivity {
         // set on click listener for the select end date button
         selectButton.setOnClickListener(createSelectListener());
 
-        // initialize the simple date format
-        mFormat = new SimpleDateFormat("MM/dd/yyyy", Locale.getDefault());
-
         // if the end date has already been selected, display it
         if (savedInstanceState != null && savedInstanceState.getString(END_KEY) != null) {
-            try {
-                mEnd = mFormat.parse(Objects.requireNonNull(savedInstanceState.getString(END_KEY)));
-            } catch (ParseException e) {
-                mEnd = new Date();
-            }
-            String end = "End Date: " + mFormat.format(Objects.requireNonNull(mEnd));
+            mEnd = DateCodec.parseDate(savedInstanceState.getString(END_KEY));
+            if (mEnd == null) mEnd = new Date();
+            String end = "End Date: " + DateCodec.format(mEnd);
             mEndDate.setText(end);
         }
 
@@ -88,16 +75,21 @@ public class RequestTripActivity extends AppCompatActivity {
 
         if (intent != null) {
             long time = intent.getLongExtra(Const.SELECTED_DATE_TAG, -1);
-            mFriend = intent.getParcelableExtra(Const.SELECTED_FRIEND_TAG);
+            mFriends = intent.getParcelableArrayListExtra(Const.SELECTED_FRIENDS_TAG);
             mUserName = intent.getStringExtra(Const.USER_NAME_TAG);
-            if (time != -1 && mFriend != null) {
+            if (time != -1 && mFriends != null && mFriends.size() > 0) {
                 // update the text
                 mStart = new Date(time);
-                String start = "Start Date: " + mFormat.format(mStart);
+                String start = "Start Date: " + DateCodec.format(mStart);
                 startDate.setText(start);
-                String name = friendInfo.getText().toString();
-                name += " " + mFriend.getName();
-                friendInfo.setText(name);
+                // prefill the end date if a trip window was chosen
+                long endTime = intent.getLongExtra(Const.SELECTED_END_DATE_TAG, -1);
+                if (mEnd == null && endTime != -1) updateEndDate(new Date(endTime));
+                StringBuilder name = new StringBuilder(friendInfo.getText().toString());
+                for (int i = 0; i < mFriends.size(); i++) {
+                    name.append(i == 0 ? " " : ", ").append(mFriends.get(i).getName());
+                }
+                friendInfo.setText(name.toString());
             }
         }
     }
@@ -124,13 +116,13 @@ public class RequestTripActivity extends AppCompatActivity {
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
-        if (mEnd != null) outState.putString(END_KEY, mFormat.format(mEnd));
+        if (mEnd != null) outState.putString(END_KEY, DateCodec.format(mEnd));
     }
 
     /**
      * onSaveClicked()
      * called when the user presses save in the menu
-     * saves the trip to the db and adds it to the trips sub-collections of the user and their friend
+     * saves the trip to the db and adds it to the trips sub-collections of the user and their friends
      */
     private void onSaveClicked() {
         // make sure the user selected an end date
@@ -150,14 +142,42 @@ public class RequestTripActivity extends AppCompatActivity {
             return;
         }
 
+        // get the current user
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null || mFriends == null || mStart == null || mUserName == null) {
+            Log.d(Const.TAG, "onSaveClicked: friend or user fail");
+            return;
+        }
+
         // add the initial trip data to a map
-        mData = new HashMap<>();
-        mData.put(Const.TRIP_START_DATE_KEY, mFormat.format(mStart));
-        mData.put(Const.TRIP_END_DATE_KEY, mFormat.format(mEnd));
-        mData.put(Const.TRIP_TITLE_KEY, mTitle.getText().toString());
+        Map<String, Object> data = new HashMap<>();
+        data.put(Const.TRIP_START_DATE_KEY, DateCodec.format(mStart));
+        data.put(Const.TRIP_END_DATE_KEY, DateCodec.format(mEnd));
+        data.put(Const.TRIP_TITLE_KEY, mTitle.getText().toString());
+
+        // this user and each friend are trippers
+        UserSummary me = new UserSummary();
+        me.setUserId(user.getUid());
+        me.setEmail(user.getEmail());
+        me.setName(mUserName);
+        List<UserSummary> trippers = new ArrayList<>();
+        trippers.add(me);
+        trippers.addAll(mFriends);
+
+        // the id is allocated locally, so the trip, its trippers and the trips sub-collection
+        // entries are all written in one batch
+        AccessDB.createTrip(AccessDB.newTripId(), data, trippers)
+                .addOnFailureListener(new OnFailureListener() {
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(Const.TAG, "onFailure: trip not added " + e);
+                    }
+                });
 
-        // add this trip to the db
-        new AddTripTask().execute();
+        // the batch is already in the local cache, so the new trip is listed right away
+        Intent intent = new Intent(RequestTripActivity.this, MainActivity.class);
+        startActivity(intent);
+        finishAffinity();
     }
 
     /**
@@ -167,7 +187,7 @@ public class RequestTripActivity extends AppCompatActivity {
      */
     public void updateEndDate(Date date) {
         mEnd = date;
-        String end = "End Date: " + mFormat.format(mEnd);
+        String end = "End Date: " + DateCodec.format(mEnd);
         mEndDate.setText(end);
     }
 
@@ -205,75 +225,4 @@ public class RequestTripActivity extends AppCompatActivity {
     public Date getStart() {
         return mStart;
     }
-
-
-    // ASYNC TASKS
-
-    /**
-     * AddTripTask
-     * adds this trip to the db
-     */
-    private class AddTripTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mData == null) return null;
-
-            // add the trip to the db
-            AccessDB.addTrip(mData).addOnCompleteListener(new OnCompleteListener<String>() {
-                @Override
-                public void onComplete(@NonNull Task<String> task) {
-                    if (task.isSuccessful()) {
-                        // get the id of the new trip
-                        mTripId = task.getResult();
-                        // get the current user
-                        mUser = FirebaseAuth.getInstance().getCurrentUser();
-                        // get the trip title
-                        mTripTitle = mTitle.getText().toString();
-                        if (mTripId == null || mTripId.equals("") || mFriend == null || mUser == null) {
-                            Log.d(Const.TAG, "onComplete: friend or trip fail");
-                            return;
-                        }
-                        // update the sub collections
-                        new SubCollectionTask().execute();
-
-                        Log.d(Const.TAG, "onComplete: done yay");
-                        Intent intent = new Intent(RequestTripActivity.this, MainActivity.class);
-                        startActivity(intent);
-                        finishAffinity();
-                    } else {
-                        // toast the user
-                        Toast t = Toast.makeText(RequestTripActivity.this, "This trip could"
-                                + " not be added.", Toast.LENGTH_SHORT);
-                        t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
-                        t.show();
-                    }
-                }
-            });
-
-            return null;
-        }
-    }
-
-    /**
-     * SubCollectionTask
-     * updates the user trips and trip trippers sub collections
-     */
-    private class SubCollectionTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mUser == null || mFriend == null || mTripId == null || mTripTitle == null ||
-                    mFormat == null || mStart == null || mUserName == null) return null;
-
-            // update the sub collections
-            AccessDB.addUserTrip(mUser.getUid(), mTripId, mTripTitle, mFormat.format(mStart));
-            AccessDB.addUserTrip(mFriend.getUserId(), mTripId, mTripTitle, mFormat.format(mStart));
-            AccessDB.addTripper(mTripId, mUser.getUid(), mUser.getEmail(), mUserName);
-            AccessDB.addTripper(mTripId, mFriend.getUserId(), mFriend.getEmail(), mFriend.getName());
-
-            return null;
-        }
-    }
-
 }
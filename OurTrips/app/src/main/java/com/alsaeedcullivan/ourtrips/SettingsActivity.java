@@ -21,6 +21,7 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.alsaeedcullivan.ourtrips.cloud.AccessBucket;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
+import com.alsaeedcullivan.ourtrips.cloud.UserRepository;
 import com.alsaeedcullivan.ourtrips.fragments.CustomDialogFragment;
 import com.alsaeedcullivan.ourtrips.utils.Const;
 import com.google.android.gms.tasks.OnCompleteListener;
@@ -131,6 +132,7 @@ public class SettingsActivity extends AppCompatActivity {
             public void onClick(View v) {
                 // log the user out of firebase
                 FirebaseAuth.getInstance().signOut();
+                UserRepository.clear();
 
                 // send user back to login
                 Intent intent = new Intent(SettingsActivity.this, LoginActivity.class);
@@ -432,6 +434,7 @@ public class SettingsActivity extends AppCompatActivity {
                 @Override
                 public void onComplete(@NonNull Task<Void> task) {
                     Log.d(Const.TAG, "onComplete: done deleting user from both");
+                    UserRepository.clear();
                     // send user back to login
                     Intent intent = new Intent(SettingsActivity.this, LoginActivity.class);
                     intent.putExtra(Const.SOURCE_TAG, Const.SETTINGS_TAG);
@@ -8,7 +8,6 @@ import androidx.fragment.app.FragmentPagerAdapter;
 import androidx.viewpager.widget.ViewPager;
 
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.Gravity;
@@ -20,8 +19,10 @@ import android.widget.Toast;
 
 import com.alsaeedcullivan.ourtrips.adapters.PageAdapter;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
+import com.alsaeedcullivan.ourtrips.mappers.TripAggregateMapper;
+import com.alsaeedcullivan.ourtrips.models.TripAggregate;
 import com.alsaeedcullivan.ourtrips.utils.Const;
-import com.google.android.gms.tasks.OnCompleteListener;
+import com.alsaeedcullivan.ourtrips.utils.TaskPipeline;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
@@ -44,6 +45,7 @@ public class TripActivity extends AppCompatActivity {
     private static final String START_KEY = "start";
     private static final String END_KEY = "end";
     private static final String OVER_KEY = "overview";
+    private static final String AGGREGATE_KEY = "aggregate";
 
     // widgets
     private BottomNavigationView mNavigation;
@@ -51,11 +53,10 @@ public class TripActivity extends AppCompatActivity {
     private ActionBar mActionBar;
     private ProgressBar mSpinner;
     private TextView mLoadingText;
-    private List<DocumentSnapshot> mTrippersList = new ArrayList<>();
-    private List<DocumentSnapshot> mPicsList = new ArrayList<>();
 
     // trip data
     private String mTripId, mTripTitle, mStartDate, mEndDate, mOverview;
+    private TripAggregate mAggregate;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -110,6 +111,7 @@ public class TripActivity extends AppCompatActivity {
             mStartDate = savedInstanceState.getString(START_KEY);
             mEndDate = savedInstanceState.getString(END_KEY);
             mOverview = savedInstanceState.getString(OVER_KEY);
+            mAggregate = savedInstanceState.getParcelable(AGGREGATE_KEY);
             // display the fragments
             showFrags();
         }
@@ -119,7 +121,7 @@ public class TripActivity extends AppCompatActivity {
                 finish();
                 return;
             }
-            new LoadTripTask().execute();
+            loadTrip();
         }
     }
 
@@ -140,6 +142,7 @@ public class TripActivity extends AppCompatActivity {
         if (mStartDate != null) outState.putString(START_KEY, mStartDate);
         if (mEndDate != null) outState.putString(END_KEY, mEndDate);
         if (mOverview != null) outState.putString(OVER_KEY, mOverview);
+        if (mAggregate != null) outState.putParcelable(AGGREGATE_KEY, mAggregate);
     }
 
     private ViewPager.OnPageChangeListener createPageChangeListener() {
@@ -214,12 +217,119 @@ public class TripActivity extends AppCompatActivity {
     /**
      * deleteTrip()
      * deletes this trip from the db and from all the user's trips sub-collections
+     * each step runs on the background pool, and the steps keep running if this activity is
+     * destroyed so that the trip is never left half deleted
      */
     public void deleteTrip() {
         if (mTripId == null) return;
         mLoadingText.setText(R.string.deleting_trip);
         hideFrags();
-        new GetTrippersTask().execute();
+
+        final String tripId = mTripId;
+        TaskPipeline.startDetached(AccessDB.getTrippers(tripId))
+                // remove the trip from each tripper's trips sub-collection
+                .thenTask(new TaskPipeline.Stage<QuerySnapshot, Task<List<Task<?>>>>() {
+                    @Override
+                    public Task<List<Task<?>>> run(QuerySnapshot trippers) {
+                        List<Task<Void>> taskList = new ArrayList<>();
+                        for (DocumentSnapshot doc : trippers.getDocuments()) {
+                            taskList.add(FirebaseFirestore.getInstance()
+                                    .collection(Const.USERS_COLLECTION)
+                                    .document(doc.getId())
+                                    .collection(Const.USER_TRIPS_COLLECTION)
+                                    .document(tripId)
+                                    .delete());
+                        }
+                        return Tasks.whenAllComplete(taskList);
+                    }
+                })
+                .thenTask(new TaskPipeline.Stage<List<Task<?>>, Task<QuerySnapshot>>() {
+                    @Override
+                    public Task<QuerySnapshot> run(List<Task<?>> deleted) {
+                        Log.d(Const.TAG, "deleteTrip: done deleting from trippers");
+                        return AccessDB.getTripPhotos(tripId);
+                    }
+                })
+                // delete each of the trip's photos from the storage bucket
+                .thenTask(new TaskPipeline.Stage<QuerySnapshot, Task<List<Task<?>>>>() {
+                    @Override
+                    public Task<List<Task<?>>> run(QuerySnapshot pics) {
+                        List<Task<Void>> taskList = new ArrayList<>();
+                        for (DocumentSnapshot doc : pics.getDocuments()) {
+                            String path = (String) doc.get(Const.TRIP_PHOTO_KEY);
+                            if (path != null) {
+                                taskList.add(FirebaseStorage.getInstance().getReference().child(path).delete());
+                            }
+                        }
+                        return Tasks.whenAllComplete(taskList);
+                    }
+                })
+                // remove the document corresponding to this trip from the db
+                .thenTask(new TaskPipeline.Stage<List<Task<?>>, Task<Void>>() {
+                    @Override
+                    public Task<Void> run(List<Task<?>> deleted) {
+                        Log.d(Const.TAG, "deleteTrip: done deleting photos");
+                        return AccessDB.deleteTrip(tripId);
+                    }
+                })
+                .deliver(this, new TaskPipeline.Callback<Void>() {
+                    @Override
+                    public void onSuccess(Void result) {
+                        Intent intent = new Intent(TripActivity.this, MainActivity.class);
+                        intent.putExtra(Const.TRIP_ID_TAG, tripId);
+                        startActivity(intent);
+                        finish();
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(Const.TAG, "deleteTrip: failed to delete " + e);
+                        Toast t = Toast.makeText(TripActivity.this, "The trip could not be deleted.",
+                                Toast.LENGTH_SHORT);
+                        t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                        t.show();
+                        showFrags();
+                    }
+                });
+    }
+
+    /**
+     * loadTrip()
+     * loads this trip's document from the db, the aggregate fields of the document summarize the
+     * trip's sub-collections so the first screen can be shown after this single read
+     */
+    private void loadTrip() {
+        TaskPipeline.start(this, AccessDB.getTripInfo(mTripId))
+                .deliver(this, new TaskPipeline.Callback<Map<String, Object>>() {
+                    @Override
+                    public void onSuccess(Map<String, Object> data) {
+                        // get the title
+                        String title = (String) data.get(Const.TRIP_TITLE_KEY);
+                        if (title != null) mTripTitle = title;
+                        // get the start date
+                        String start = (String) data.get(Const.TRIP_START_DATE_KEY);
+                        if (start != null) mStartDate = start;
+                        // get the end date
+                        String end = (String) data.get(Const.TRIP_END_DATE_KEY);
+                        if (end != null) mEndDate = end;
+                        // get the overview
+                        String over = (String) data.get(Const.TRIP_OVERVIEW_KEY);
+                        if (over != null) mOverview = over;
+                        // get the photo, location, plan and tripper aggregates
+                        mAggregate = TripAggregateMapper.INSTANCE.map(mTripId, data);
+                        showFrags();
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(Const.TAG, "loadTrip: " + e);
+                        Toast t = Toast.makeText(TripActivity.this, "The trip info could " +
+                                "not be loaded", Toast.LENGTH_SHORT);
+                        t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                        t.show();
+                        finish();
+                    }
+                });
     }
 
     // visibility
@@ -263,182 +373,8 @@ public class TripActivity extends AppCompatActivity {
         else return "";
     }
 
-
-    // ASYNC TASKS
-
-    /**
-     * LoadTripTask
-     * loads this trip's info from the db
-     * updates the instance variables on the UI thread in onComplete()
-     */
-    private class LoadTripTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mTripId == null) return null;
-
-            Log.d(Const.TAG, "doInBackground: " + mTripId);
-            // load the trip info
-            AccessDB.getTripInfo(mTripId).addOnCompleteListener(new OnCompleteListener<Map<String, Object>>() {
-                @Override
-                public void onComplete(@NonNull Task<Map<String, Object>> task) {
-                    if (task.isSuccessful()) {
-                        Map<String, Object> data = task.getResult();
-                        if (data != null) {
-                            // get the title
-                            String title = (String) data.get(Const.TRIP_TITLE_KEY);
-                            if (title != null) mTripTitle = title;
-                            // get the start date
-                            String start = (String) data.get(Const.TRIP_START_DATE_KEY);
-                            if (start != null) mStartDate = start;
-                            // get the end date
-                            String end = (String) data.get(Const.TRIP_END_DATE_KEY);
-                            if (end != null) mEndDate = end;
-                            // get the overview
-                            String over = (String) data.get(Const.TRIP_OVERVIEW_KEY);
-                            if (over != null) mOverview = over;
-                        }
-                        showFrags();
-                    } else {
-                        Toast t = Toast.makeText(TripActivity.this, "The trip info could " +
-                                "not be loaded", Toast.LENGTH_SHORT);
-                        t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
-                        t.show();
-                        finish();
-                    }
-                }
-            });
-
-            return null;
-        }
-    }
-
-
-    // ASYNC TASKS FOR TRIP DELETION
-
-    private class GetTrippersTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mTripId == null) return null;
-
-            AccessDB.getTrippers(mTripId).addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                @Override
-                public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        mTrippersList = task.getResult().getDocuments();
-                        if (mTrippersList.size() == 0) new GetPicsTask().execute();
-                        else new DeleteFromTrippersTask().execute();
-                    } else new GetPicsTask().execute();
-                }
-            });
-
-
-            return null;
-        }
-    }
-
-    private class DeleteFromTrippersTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mTripId == null || mTrippersList == null || mTrippersList.size() == 0) return null;
-
-            List<Task<Void>> taskList = new ArrayList<>();
-            for (DocumentSnapshot doc : mTrippersList) {
-                Task<Void> t = FirebaseFirestore.getInstance()
-                        .collection(Const.USERS_COLLECTION)
-                        .document(doc.getId())
-                        .collection(Const.USER_TRIPS_COLLECTION)
-                        .document(mTripId)
-                        .delete();
-                taskList.add(t);
-            }
-            Tasks.whenAll(taskList).addOnCompleteListener(new OnCompleteListener<Void>() {
-                @Override
-                public void onComplete(@NonNull Task<Void> task) {
-                    Log.d(Const.TAG, "onComplete: done deleting from trippers");
-                    new GetPicsTask().execute();
-                }
-            });
-            return null;
-        }
-    }
-
-    private class GetPicsTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mTripId == null) return null;
-
-            AccessDB.getTripPhotos(mTripId).addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                @Override
-                public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        mPicsList = task.getResult().getDocuments();
-                        if (mPicsList.size() == 0) new DeleteTripTask().execute();
-                        else new DeletePicsTask().execute();
-                    } else new DeleteTripTask().execute();
-                }
-            });
-
-
-            return null;
-        }
-    }
-
-    private class DeletePicsTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mTripId == null || mPicsList == null || mPicsList.size() == 0) return null;
-
-            List<Task<Void>> taskList = new ArrayList<>();
-
-            for (DocumentSnapshot doc : mPicsList) {
-                String path = (String) doc.get(Const.TRIP_PHOTO_KEY);
-                if (path != null) {
-                    Task<Void> t = FirebaseStorage.getInstance().getReference().child(path).delete();
-                    taskList.add(t);
-                }
-            }
-
-            Tasks.whenAll(taskList).addOnCompleteListener(new OnCompleteListener<Void>() {
-                @Override
-                public void onComplete(@NonNull Task<Void> task) {
-                    Log.d(Const.TAG, "onComplete: done deleting photos");
-                    new DeleteTripTask().execute();
-                }
-            });
-
-            return null;
-        }
-    }
-
-    private class DeleteTripTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mTripId == null) return null;
-
-            // remove the document corresponding to this trip from the db
-            AccessDB.deleteTrip(mTripId).addOnCompleteListener(new OnCompleteListener<Void>() {
-                @Override
-                public void onComplete(@NonNull Task<Void> task) {
-                    if (task.isSuccessful()) {
-                        Intent intent = new Intent(TripActivity.this, MainActivity.class);
-                        intent.putExtra(Const.TRIP_ID_TAG, mTripId);
-                        startActivity(intent);
-                        finish();
-                    }
-                    else {
-                        showFrags();
-                        Log.d(Const.TAG, "onComplete: fuck, it failed to delete");
-                    }
-                }
-            });
-
-            return null;
-        }
+    public TripAggregate getAggregate() {
+        if (mAggregate != null) return mAggregate;
+        else return new TripAggregate();
     }
 }
@@ -15,12 +15,14 @@ import com.alsaeedcullivan.ourtrips.models.UserSummary;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Objects;
 
 public class FriendAdapter extends ArrayAdapter<UserSummary> {
 
     private ArrayList<UserSummary> items;
     private Context context;
+    private Map<String, Integer> overlaps;
 
 
     public FriendAdapter(@NonNull Context context, int resource, ArrayList<UserSummary> items) {
@@ -48,6 +50,7 @@ public class FriendAdapter extends ArrayAdapter<UserSummary> {
         // get reference to TextViews
         TextView name = convertView.findViewById(R.id.friend_name);
         TextView email = convertView.findViewById(R.id.friend_email);
+        TextView overlap = convertView.findViewById(R.id.friend_overlap);
 
         // fill TextView with appropriate data
         UserSummary user = items.get(position);
@@ -55,11 +58,29 @@ public class FriendAdapter extends ArrayAdapter<UserSummary> {
         name.setText(user.getName());
         // friend email
         email.setText(user.getEmail());
+        // number of days in common, if they have been counted
+        Integer days = overlaps != null ? overlaps.get(user.getUserId()) : null;
+        if (days != null) {
+            String text = days == 1 ? "1 day in common" : days + " days in common";
+            overlap.setText(text);
+            overlap.setVisibility(View.VISIBLE);
+        } else overlap.setVisibility(View.GONE);
 
         // return view
         return convertView;
     }
 
+    // setters //
+
+    /**
+     * setOverlaps()
+     * @param overlaps a map from the id of each friend to the number of days they have in common
+     *                 with the current user
+     */
+    public void setOverlaps(Map<String, Integer> overlaps) {
+        this.overlaps = overlaps;
+    }
+
     // adders //
 
     @Override
@@ -0,0 +1,43 @@
+package com.alsaeedcullivan.ourtrips.adapters;
+
+import android.graphics.Color;
+
+import androidx.core.graphics.ColorUtils;
+
+import com.alsaeedcullivan.ourtrips.models.GroupMatch;
+import com.alsaeedcullivan.ourtrips.utils.DateCodec;
+import com.squareup.timessquare.CalendarCellDecorator;
+import com.squareup.timessquare.CalendarCellView;
+
+import java.util.Date;
+
+/**
+ * Decorates the cells of a CalendarPickerView with a heat map of a group match
+ * The more participants that are free on a day, the more opaque the highlight of that day is.
+ * Days where the current user is not free are left blank.
+ */
+public class HeatMapDecorator implements CalendarCellDecorator {
+
+    private GroupMatch mMatch;
+    private int mColor;
+
+    public HeatMapDecorator(GroupMatch match, int color) {
+        mMatch = match;
+        mColor = color;
+    }
+
+    @Override
+    public void decorate(CalendarCellView cellView, Date date) {
+        int day = DateCodec.toEpochDay(date);
+        int count = mMatch.getCount(day);
+        int total = mMatch.getParticipants().size();
+        // cells are recycled, so the background must always be set
+        if (!mMatch.isFree(day, 0) || count < 2 || total < 2) {
+            cellView.getDayOfMonthTextView().setBackgroundColor(Color.TRANSPARENT);
+            return;
+        }
+        // scale the opacity between a quarter and fully opaque
+        int alpha = 64 + (191 * (count - 1)) / (total - 1);
+        cellView.getDayOfMonthTextView().setBackgroundColor(ColorUtils.setAlphaComponent(mColor, alpha));
+    }
+}
@@ -0,0 +1,77 @@
+package com.alsaeedcullivan.ourtrips.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Scroll listener that asks for the next page of a paged list when the user scrolls close to the
+ * end of the loaded items, or close to the start for lists that page backwards such as a chat
+ * Only one page is requested at a time, and no more pages are requested once a page comes back
+ * shorter than a full page.
+ */
+public abstract class PagingScrollListener extends RecyclerView.OnScrollListener {
+
+    // how many items from the edge the next page is requested
+    private static final int THRESHOLD = 6;
+
+    private final LinearLayoutManager mManager;
+    private final int mPageSize;
+    private final boolean mTowardsStart;
+    private boolean mLoading;
+    private boolean mDone;
+
+    /**
+     * @param manager the layout manager of the recycler view, grid layouts are supported
+     * @param pageSize the number of items in a full page
+     * @param towardsStart whether further pages are added before the first item
+     */
+    public PagingScrollListener(LinearLayoutManager manager, int pageSize, boolean towardsStart) {
+        mManager = manager;
+        mPageSize = pageSize;
+        mTowardsStart = towardsStart;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (mLoading || mDone) return;
+        int count = mManager.getItemCount();
+        if (count == 0) return;
+        boolean near = mTowardsStart ? mManager.findFirstVisibleItemPosition() <= THRESHOLD :
+                mManager.findLastVisibleItemPosition() >= count - 1 - THRESHOLD;
+        if (!near) return;
+        mLoading = true;
+        loadPage();
+    }
+
+    /**
+     * loadPage()
+     * loads the next page, onPageLoaded() or onPageFailed() must be called once it is done
+     */
+    protected abstract void loadPage();
+
+    /**
+     * onPageLoaded()
+     * @param size the number of items in the page that was loaded
+     */
+    public void onPageLoaded(int size) {
+        mLoading = false;
+        if (size < mPageSize) mDone = true;
+    }
+
+    /**
+     * onPageFailed()
+     * allows the page to be requested again the next time the user scrolls
+     */
+    public void onPageFailed() {
+        mLoading = false;
+    }
+
+    /**
+     * setDone()
+     * stops requesting pages, used when the first page was already short
+     */
+    public void setDone(boolean done) {
+        mDone = done;
+    }
+}
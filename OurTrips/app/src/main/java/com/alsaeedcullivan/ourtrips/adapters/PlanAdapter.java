@@ -4,24 +4,55 @@ import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.alsaeedcullivan.ourtrips.R;
 import com.alsaeedcullivan.ourtrips.holders.RecPlanHolder;
 import com.alsaeedcullivan.ourtrips.holders.SentPlanHolder;
 import com.alsaeedcullivan.ourtrips.models.Plan;
+import com.alsaeedcullivan.ourtrips.utils.BackgroundExecutor;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
 import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Adapter for the plans (comments) of a trip
+ * Each new list of plans is compared with the displayed one on the background pool, and only the
+ * plans that were inserted, changed or removed are rebound.
+ */
 public class PlanAdapter extends RecyclerView.Adapter {
 
-    private ArrayList<Plan> mPlans;
+    // the opacity of a plan that has not reached the server yet
+    private static final float PENDING_ALPHA = 0.5f;
+
+    // plans are the same item when they are the same document
+    private static final DiffUtil.ItemCallback<Plan> DIFF = new DiffUtil.ItemCallback<Plan>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Plan oldItem, @NonNull Plan newItem) {
+            return oldItem.getPlanDocId().equals(newItem.getPlanDocId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Plan oldItem, @NonNull Plan newItem) {
+            return oldItem.getMessage().equals(newItem.getMessage()) &&
+                    oldItem.getPlanUserName().equals(newItem.getPlanUserName()) &&
+                    oldItem.getPlanUserId().equals(newItem.getPlanUserId()) &&
+                    oldItem.isPending() == newItem.isPending();
+        }
+    };
+
+    private final AsyncListDiffer<Plan> mDiffer;
     private String userId;
 
-    public PlanAdapter(ArrayList<Plan> plans) {
-        mPlans = plans;
+    public PlanAdapter() {
+        mDiffer = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(DIFF).setBackgroundThreadExecutor(BackgroundExecutor.get()).build());
         FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
         if (user == null) userId = "";
         else userId = user.getUid();
@@ -31,7 +62,7 @@ public class PlanAdapter extends RecyclerView.Adapter {
     public int getItemViewType(int position) {
         // if the plan was made by this user, return 1, if it was made by another user return 0
         // check to see who made the plan
-        if (mPlans.get(position).getPlanUserId().equals(userId)) return 1;
+        if (getPlan(position).getPlanUserId().equals(userId)) return 1;
         else return 0;
     }
 
@@ -49,27 +80,36 @@ public class PlanAdapter extends RecyclerView.Adapter {
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        if (mPlans.get(position).getPlanUserId().equals(userId)) {
-            ((SentPlanHolder) holder).getMessage().setText(mPlans.get(position).getMessage());
+        if (getPlan(position).getPlanUserId().equals(userId)) {
+            ((SentPlanHolder) holder).getMessage().setText(getPlan(position).getMessage());
+            holder.itemView.setAlpha(getPlan(position).isPending() ? PENDING_ALPHA : 1f);
         } else {
-            ((RecPlanHolder) holder).getMessage().setText(mPlans.get(position).getMessage());
-            ((RecPlanHolder) holder).getName().setText(mPlans.get(position).getPlanUserName());
+            ((RecPlanHolder) holder).getMessage().setText(getPlan(position).getMessage());
+            ((RecPlanHolder) holder).getName().setText(getPlan(position).getPlanUserName());
         }
     }
 
     @Override
     public int getItemCount() {
-        return mPlans.size();
+        return mDiffer.getCurrentList().size();
+    }
+
+    /**
+     * getPlan()
+     * @return the plan that is displayed at the given position
+     */
+    public Plan getPlan(int position) {
+        return mDiffer.getCurrentList().get(position);
     }
 
     /**
-     * setData()
-     * sets the list of plans for this adapter
-     * @param plans the list of plans
+     * submitList()
+     * displays a new list of plans, the differences with the displayed list are computed on the
+     * background pool and dispatched as precise notifications
+     * @param plans the plans, sorted from the oldest to the newest, the list is copied
+     * @param committed run on the main thread once the list is displayed, may be null
      */
-    public void setData(ArrayList<Plan> plans) {
-        mPlans.clear();
-        mPlans.addAll(plans);
-        notifyDataSetChanged();
+    public void submitList(List<Plan> plans, Runnable committed) {
+        mDiffer.submitList(new ArrayList<>(plans), committed);
     }
 }
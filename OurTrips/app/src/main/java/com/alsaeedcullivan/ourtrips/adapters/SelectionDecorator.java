@@ -0,0 +1,46 @@
+package com.alsaeedcullivan.ourtrips.adapters;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+
+import com.alsaeedcullivan.ourtrips.models.Availability;
+import com.alsaeedcullivan.ourtrips.models.AvailabilitySchedule;
+import com.alsaeedcullivan.ourtrips.utils.DateCodec;
+import com.squareup.timessquare.CalendarCellDecorator;
+import com.squareup.timessquare.CalendarCellView;
+
+import java.util.Date;
+
+/**
+ * Decorates the cells of a CalendarPickerView with the days a user has selected
+ * The selection is read from a bitset as each cell is bound, instead of selecting every date in the
+ * CalendarPickerView one at a time, so the whole selection is drawn in the one pass over the cells
+ * that are on screen. Days that come from a recurring rule are also shown in bold italics.
+ */
+public class SelectionDecorator implements CalendarCellDecorator {
+
+    private Availability mSelected;
+    private AvailabilitySchedule mSchedule;
+    private int mColor;
+
+    /**
+     * @param selected the days that are selected, read every time a cell is bound
+     * @param schedule the schedule whose rules are shown
+     * @param color the color of the selected days
+     */
+    public SelectionDecorator(Availability selected, AvailabilitySchedule schedule, int color) {
+        mSelected = selected;
+        mSchedule = schedule;
+        mColor = color;
+    }
+
+    @Override
+    public void decorate(CalendarCellView cellView, Date date) {
+        int day = DateCodec.toEpochDay(date);
+        // cells are recycled, so the background and typeface must always be set
+        cellView.getDayOfMonthTextView().setBackgroundColor(mSelected.contains(day) ? mColor :
+                Color.TRANSPARENT);
+        cellView.getDayOfMonthTextView().setTypeface(null, mSchedule.isCovered(day) ?
+                Typeface.BOLD_ITALIC : Typeface.NORMAL);
+    }
+}
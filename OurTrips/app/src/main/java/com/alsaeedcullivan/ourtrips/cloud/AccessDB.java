@@ -2,24 +2,53 @@ package com.alsaeedcullivan.ourtrips.cloud;
 
 import android.util.Log;
 
+import com.alsaeedcullivan.ourtrips.mappers.DocumentMapper;
+import com.alsaeedcullivan.ourtrips.mappers.PicMapper;
+import com.alsaeedcullivan.ourtrips.mappers.PlaceMapper;
+import com.alsaeedcullivan.ourtrips.mappers.PlanMapper;
+import com.alsaeedcullivan.ourtrips.mappers.TripSummaryMapper;
+import com.alsaeedcullivan.ourtrips.mappers.UserSummaryMapper;
+import com.alsaeedcullivan.ourtrips.models.Availability;
+import com.alsaeedcullivan.ourtrips.models.AvailabilityRule;
+import com.alsaeedcullivan.ourtrips.models.AvailabilitySchedule;
+import com.alsaeedcullivan.ourtrips.models.Pic;
+import com.alsaeedcullivan.ourtrips.models.Place;
+import com.alsaeedcullivan.ourtrips.models.Plan;
+import com.alsaeedcullivan.ourtrips.models.TripSummary;
+import com.alsaeedcullivan.ourtrips.models.UserSummary;
+import com.alsaeedcullivan.ourtrips.utils.AvailabilityCodec;
+import com.alsaeedcullivan.ourtrips.utils.BackgroundExecutor;
 import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.alsaeedcullivan.ourtrips.utils.DateCodec;
+import com.alsaeedcullivan.ourtrips.utils.GeoHash;
 
 import androidx.annotation.NonNull;
 
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.tasks.Continuation;
+import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.GeoPoint;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Transaction;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -27,6 +56,12 @@ import java.util.Map;
  */
 public class AccessDB {
 
+    // the maximum number of values in a whereIn query
+    private static final int WHERE_IN_LIMIT = 10;
+
+    // the number of documents in a page of comments or photos
+    public static final int PAGE_SIZE = 30;
+
     // USER SETTERS
 
     /**
@@ -37,10 +72,10 @@ public class AccessDB {
      */
     public static Task<Void> addNewUser(String id, Map<String, Object> data) {
         // add a new document to the users collection
-        return FirebaseFirestore.getInstance()
+        return invalidateUser(id, FirebaseFirestore.getInstance()
                 .collection(Const.USERS_COLLECTION)
                 .document(id)
-                .set(data);
+                .set(data));
     }
 
     /**
@@ -51,35 +86,45 @@ public class AccessDB {
      */
     public static Task<Void> updateUserProfile(String userId, Map<String, Object> data) {
         // update the user's profile info
-        return FirebaseFirestore.getInstance()
+        return invalidateUser(userId, FirebaseFirestore.getInstance()
                 .collection(Const.USERS_COLLECTION)
                 .document(userId)
-                .update(data);
+                .update(data));
     }
 
     /**
-     * setUserDatesFromCal()
-     * updates a users list of dates in the cloud FireStore database
+     * updateUserDates()
+     * applies the days a user added to and removed from their calendar to their available dates
+     * only the changed bits are flipped, inside a transaction, so edits made concurrently on another
+     * device are merged instead of being overwritten
      * @param userId the id of the user
-     * @param dates a list of Date objects, these will be converted to Strings in the desired
-     *              format on a background thread before they are added to the database
-     */
-    public static void setUserDatesFromCal(String userId, List<Date> dates) {
-        // convert the list of dates to a list of strings in the desired format
-        SimpleDateFormat format = new SimpleDateFormat("MM/dd/yyyy",
-                Locale.getDefault());
-        List<String> sDates = new ArrayList<>();
-        for (Date date : dates) {
-            sDates.add(format.format(date));
-        }
-
-        Log.d(Const.TAG, "setUserDatesFromCal: " + Thread.currentThread().getId());
-
-        // add the list of dates to the database
-        FirebaseFirestore.getInstance()
-                .collection(Const.USERS_COLLECTION)
-                .document(userId)
-                .update(Const.DATE_LIST_KEY, sDates);
+     * @param added the days that the user added
+     * @param removed the days that the user removed
+     * @param rules the recurring rules of the user, or null to leave them as they are
+     */
+    public static Task<Void> updateUserDates(String userId, final Availability added,
+                                             final Availability removed,
+                                             final List<AvailabilityRule> rules) {
+        Log.d(Const.TAG, "updateUserDates: " + Thread.currentThread().getId());
+
+        final FirebaseFirestore db = FirebaseFirestore.getInstance();
+        final DocumentReference ref = db.collection(Const.USERS_COLLECTION).document(userId);
+        return invalidateUser(userId, db.runTransaction(new Transaction.Function<Void>() {
+            @Override
+            public Void apply(@NonNull Transaction transaction) throws FirebaseFirestoreException {
+                // flip the changed bits of the latest version of the user's dates
+                Availability availability = AvailabilityCodec.fromDocument(transaction.get(ref));
+                availability.addAll(added);
+                availability.removeAll(removed);
+
+                // add the packed dates to the database and remove the legacy list of strings
+                Map<String, Object> data = AvailabilityCodec.toFields(availability);
+                data.put(Const.DATE_LIST_KEY, FieldValue.delete());
+                if (rules != null) data.put(Const.AVAILABILITY_RULES_KEY, AvailabilityCodec.rulesToField(rules));
+                transaction.update(ref, data);
+                return null;
+            }
+        }));
     }
 
     /**
@@ -109,21 +154,9 @@ public class AccessDB {
      * @param tripId the id of the trip
      */
     public static Task<Void> addUserTrip(String userId, String tripId, String tripTitle, String startDate) {
-        // map to contain the document data
-        Map<String, Object> data = new HashMap<>();
-        data.put(Const.TRIP_ID_KEY, tripId);
-        data.put(Const.TRIP_TITLE_KEY, tripTitle);
-        data.put(Const.TRIP_START_DATE_KEY, startDate);
-
-        Log.d(Const.TAG, "addUserTrip: " + data);
-
         // add the trip to the user_trips sub-collection
-        return FirebaseFirestore.getInstance()
-                .collection(Const.USERS_COLLECTION)
-                .document(userId)
-                .collection(Const.USER_TRIPS_COLLECTION)
-                .document(tripId)
-                .set(data);
+        return userTripRef(FirebaseFirestore.getInstance(), userId, tripId)
+                .set(userTripData(tripId, tripTitle, startDate));
     }
 
     /**
@@ -149,10 +182,10 @@ public class AccessDB {
      */
     public static Task<Void> addUserToken(String userId, String token) {
         // add the token to the given user's document in the db
-        return FirebaseFirestore.getInstance()
+        return invalidateUser(userId, FirebaseFirestore.getInstance()
                 .collection(Const.USERS_COLLECTION)
                 .document(userId)
-                .update(Const.USER_TOKEN_KEY, token);
+                .update(Const.USER_TOKEN_KEY, token));
     }
 
     /**
@@ -168,10 +201,66 @@ public class AccessDB {
      */
     public static Task<Void> deleteUser(String userId) {
         Log.d(Const.TAG, "deleteUser: deleting");
-        return FirebaseFirestore.getInstance()
+        return invalidateUser(userId, FirebaseFirestore.getInstance()
                 .collection(Const.USERS_COLLECTION)
                 .document(userId)
-                .delete();
+                .delete());
+    }
+
+    // returns the document of a trip in the trips sub-collection of a user
+    private static DocumentReference userTripRef(FirebaseFirestore store, String userId, String tripId) {
+        return store.collection(Const.USERS_COLLECTION)
+                .document(userId)
+                .collection(Const.USER_TRIPS_COLLECTION)
+                .document(tripId);
+    }
+
+    // returns the data of a trip in the trips sub-collection of a user
+    private static Map<String, Object> userTripData(String tripId, String tripTitle, String startDate) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(Const.TRIP_ID_KEY, tripId);
+        data.put(Const.TRIP_TITLE_KEY, tripTitle);
+        data.put(Const.TRIP_START_DATE_KEY, startDate);
+        // the start date string does not sort chronologically, so the epoch day is stored as well,
+        // a trip without a valid start date still needs a start day to be listed at all
+        int startDay = DateCodec.parse(startDate);
+        data.put(Const.TRIP_START_DAY_KEY, startDay == DateCodec.INVALID ? Const.UNKNOWN_START_DAY :
+                (long) startDay);
+        return data;
+    }
+
+    // returns the document of a tripper in the trippers sub-collection of a trip
+    private static DocumentReference tripperRef(FirebaseFirestore store, String tripId, String tripperId) {
+        return store.collection(Const.TRIPS_COLLECTION)
+                .document(tripId)
+                .collection(Const.TRIP_TRIPPERS_COLLECTION)
+                .document(tripperId);
+    }
+
+    // returns the data of a tripper in the trippers sub-collection of a trip
+    private static Map<String, Object> tripperData(String tripperId, String tripperEmail, String tripperName) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(Const.USER_ID_KEY, tripperId);
+        data.put(Const.USER_EMAIL_KEY, tripperEmail);
+        data.put(Const.USER_NAME_KEY, tripperName);
+        return data;
+    }
+
+    /**
+     * invalidateUser()
+     * drops a user's document from the UserRepository before and after it is written to, so
+     * that a read that races with the write is not cached
+     * @param userId the id of the user
+     * @param write the write to the user's document
+     */
+    private static Task<Void> invalidateUser(final String userId, Task<Void> write) {
+        UserRepository.invalidate(userId);
+        return write.addOnCompleteListener(new OnCompleteListener<Void>() {
+            @Override
+            public void onComplete(@NonNull Task<Void> task) {
+                UserRepository.invalidate(userId);
+            }
+        });
     }
 
 
@@ -222,8 +311,9 @@ public class AccessDB {
     }
 
     /**
-     * acceptFriendRequest()
-     * allows a user to accept a friend request and updates the db accordingly
+     * acceptRequest()
+     * allows a user to accept a friend request, the request is deleted and each user is added
+     * to the friends sub-collection of the other in a single batch
      * @param userId the id of this user
      * @param userEmail the email of this user
      * @param userName the name of this user
@@ -231,8 +321,8 @@ public class AccessDB {
      * @param friendEmail the email of the user that sent the request
      * @param friendName the name of the user that sent the request
      */
-    public static void acceptRequest(String userId, String userEmail, String userName,
-                                     String friendId, String friendEmail, String friendName) {
+    public static Task<Void> acceptRequest(String userId, String userEmail, String userName,
+                                           String friendId, String friendEmail, String friendName) {
         // add user data to a map
         Map<String, Object> thisMap = new HashMap<>();
         thisMap.put(Const.FRIEND_ID_KEY, userId);
@@ -245,29 +335,23 @@ public class AccessDB {
         otherMap.put(Const.USER_EMAIL_KEY, friendEmail);
         otherMap.put(Const.USER_NAME_KEY, friendName);
 
-        // get a reference to the db
         FirebaseFirestore store = FirebaseFirestore.getInstance();
-
-        Log.d(Const.TAG, "acceptFriendRequest: access db " + Thread.currentThread().getId());
-
-        // delete the friend request
-        store.collection(Const.USERS_COLLECTION)
-                .document(userId)
-                .collection(Const.USER_F_REQUESTS_COLLECTION)
-                .document(friendId)
-                .delete();
-
-        // add each user to the friends sub-collection of the other user
-        store.collection(Const.USERS_COLLECTION)
-                .document(friendId)
-                .collection(Const.USER_FRIENDS_COLLECTION)
-                .document(userId)
-                .set(thisMap);
-        store.collection(Const.USERS_COLLECTION)
-                .document(userId)
-                .collection(Const.USER_FRIENDS_COLLECTION)
-                .document(friendId)
-                .set(otherMap);
+        return new BatchBuilder(store)
+                // delete the friend request
+                .delete(store.collection(Const.USERS_COLLECTION)
+                        .document(userId)
+                        .collection(Const.USER_F_REQUESTS_COLLECTION)
+                        .document(friendId))
+                // add each user to the friends sub-collection of the other user
+                .set(store.collection(Const.USERS_COLLECTION)
+                        .document(friendId)
+                        .collection(Const.USER_FRIENDS_COLLECTION)
+                        .document(userId), thisMap)
+                .set(store.collection(Const.USERS_COLLECTION)
+                        .document(userId)
+                        .collection(Const.USER_FRIENDS_COLLECTION)
+                        .document(friendId), otherMap)
+                .commit();
     }
 
     /**
@@ -293,10 +377,7 @@ public class AccessDB {
      * @param userId the id of the user
      */
     public static Task<Map<String, Object>> loadUserProfile(String userId) {
-        return FirebaseFirestore.getInstance()
-                .collection(Const.USERS_COLLECTION)
-                .document(userId)
-                .get()
+        return UserRepository.getUser(userId)
                 .continueWith(new Continuation<DocumentSnapshot, Map<String, Object>>() {
                     @Override
                     public Map<String, Object> then(@NonNull Task<DocumentSnapshot> task) {
@@ -313,10 +394,7 @@ public class AccessDB {
      * @param userId the id of the user
      */
     public static Task<String> getUserToken(String userId) {
-        return FirebaseFirestore.getInstance()
-                .collection(Const.USERS_COLLECTION)
-                .document(userId)
-                .get()
+        return UserRepository.getUser(userId)
                 .continueWith(new Continuation<DocumentSnapshot, String>() {
                     @Override
                     public String then(@NonNull Task<DocumentSnapshot> task) {
@@ -379,10 +457,86 @@ public class AccessDB {
      */
     public static Task<DocumentSnapshot> getUserDates(String userId) {
         Log.d(Const.TAG, "getUserDatesForCal: " + Thread.currentThread().getId());
-        return FirebaseFirestore.getInstance()
-                .collection(Const.USERS_COLLECTION)
-                .document(userId)
-                .get();
+        return UserRepository.getUser(userId);
+    }
+
+    /**
+     * getAvailabilities()
+     * gets the availability of many users at once, see getAvailabilityChunks()
+     * @param userIds the ids of the users
+     * @return a map from the id of each user to their days and recurring rules, users without a
+     * document are mapped to an empty schedule
+     */
+    public static Task<Map<String, AvailabilitySchedule>> getAvailabilities(List<String> userIds) {
+        return Tasks.whenAllSuccess(getAvailabilityChunks(userIds))
+                .continueWith(new Continuation<List<Object>, Map<String, AvailabilitySchedule>>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Map<String, AvailabilitySchedule> then(@NonNull Task<List<Object>> task) {
+                        // merge the chunks, this rethrows if any of the chunks failed
+                        Map<String, AvailabilitySchedule> availabilities = new HashMap<>();
+                        for (Object chunk : task.getResult()) {
+                            availabilities.putAll((Map<String, AvailabilitySchedule>) chunk);
+                        }
+                        return availabilities;
+                    }
+                });
+    }
+
+    /**
+     * getAvailabilityChunks()
+     * gets the availability of many users at once in chunks that complete independently, so that
+     * callers can use the results as they arrive
+     * users whose documents are fresh in the UserRepository are returned in a single completed
+     * chunk, the rest are loaded with concurrent whereIn queries of up to 10 document ids each and
+     * cached
+     * @param userIds the ids of the users
+     * @return a task for each chunk, each mapping the id of a user to their availability
+     */
+    public static List<Task<Map<String, AvailabilitySchedule>>> getAvailabilityChunks(List<String> userIds) {
+        // separate the users that have already been loaded from the ones that have not
+        Map<String, AvailabilitySchedule> cached = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : userIds) {
+            AvailabilitySchedule availability = UserRepository.getAvailability(id);
+            if (availability != null) cached.put(id, availability);
+            else if (!missing.contains(id)) missing.add(id);
+        }
+
+        List<Task<Map<String, AvailabilitySchedule>>> chunks = new ArrayList<>();
+        if (cached.size() > 0) chunks.add(Tasks.forResult(cached));
+
+        // documents loaded by queries that started before a user was invalidated are not cached
+        final long generation = UserRepository.getGeneration();
+        // issue a query for each chunk of users that have not been loaded
+        for (int i = 0; i < missing.size(); i += WHERE_IN_LIMIT) {
+            final List<String> chunk = new ArrayList<>(missing.subList(i,
+                    Math.min(i + WHERE_IN_LIMIT, missing.size())));
+            chunks.add(FirebaseFirestore.getInstance()
+                    .collection(Const.USERS_COLLECTION)
+                    .whereIn(FieldPath.documentId(), chunk)
+                    .get()
+                    .continueWith(new Continuation<QuerySnapshot, Map<String, AvailabilitySchedule>>() {
+                        @Override
+                        public Map<String, AvailabilitySchedule> then(@NonNull Task<QuerySnapshot> task) {
+                            QuerySnapshot result = task.getResult();
+                            Map<String, AvailabilitySchedule> availabilities = new HashMap<>();
+                            // unpack each of the users that were loaded
+                            if (result != null) {
+                                for (DocumentSnapshot doc : result.getDocuments()) {
+                                    UserRepository.put(doc, generation);
+                                    availabilities.put(doc.getId(), AvailabilityCodec.scheduleFromDocument(doc));
+                                }
+                            }
+                            // users without a document are never available
+                            for (String id : chunk) {
+                                if (!availabilities.containsKey(id)) availabilities.put(id, new AvailabilitySchedule());
+                            }
+                            return availabilities;
+                        }
+                    }));
+        }
+        return chunks;
     }
 
     /**
@@ -391,10 +545,7 @@ public class AccessDB {
      * @param userId the id of the current user
      */
     public static Task<String> getUserName(String userId) {
-        return FirebaseFirestore.getInstance()
-                .collection(Const.USERS_COLLECTION)
-                .document(userId)
-                .get()
+        return UserRepository.getUser(userId)
                 .continueWith(new Continuation<DocumentSnapshot, String>() {
                     @Override
                     public String then(@NonNull Task<DocumentSnapshot> task) {
@@ -411,23 +562,33 @@ public class AccessDB {
     // TRIP SETTERS
 
     /**
-     * addTrip()
-     * adds a new trip to the database
-     * @param data a map of the data and fields to be added
+     * newTripId()
+     * allocates the id of a new trip locally, without a round trip to the server
      */
-    public static Task<String> addTrip(Map<String, Object> data) {
-        // add the trip to the database
+    public static String newTripId() {
         return FirebaseFirestore.getInstance()
                 .collection(Const.TRIPS_COLLECTION)
-                .add(data)
-                .continueWith(new Continuation<DocumentReference, String>() {
-                    @Override
-                    public String then(@NonNull Task<DocumentReference> task) {
-                        DocumentReference doc = task.getResult();
-                        if (doc != null) return doc.getId();
-                        else return "";
-                    }
-                });
+                .document()
+                .getId();
+    }
+
+    /**
+     * createTrip()
+     * adds a new trip to the database together with its trippers and the trips sub-collection
+     * entry of each tripper, in a single batch
+     * the batch is applied to the local cache right away, so the trip can be displayed before the
+     * batch reaches the server
+     * @param tripId the id of the trip, from newTripId()
+     * @param data a map of the data and fields of the trip
+     * @param trippers the users that are on the trip, including the user that created it
+     */
+    public static Task<Void> createTrip(String tripId, Map<String, Object> data, List<UserSummary> trippers) {
+        FirebaseFirestore store = FirebaseFirestore.getInstance();
+        BatchBuilder batch = new BatchBuilder(store)
+                .set(store.collection(Const.TRIPS_COLLECTION).document(tripId), data);
+        addTrippers(batch, store, tripId, (String) data.get(Const.TRIP_TITLE_KEY),
+                (String) data.get(Const.TRIP_START_DATE_KEY), trippers);
+        return batch.commit();
     }
 
     /**
@@ -452,31 +613,64 @@ public class AccessDB {
      */
     public static Task<Void> addTripper(String tripId, String tripperId, String tripperEmail,
                                                                     String tripperName) {
-        // add the tripper id to a map
-        Map<String, Object> data = new HashMap<>();
-        data.put(Const.USER_ID_KEY, tripperId);
-        data.put(Const.USER_EMAIL_KEY, tripperEmail);
-        data.put(Const.USER_NAME_KEY, tripperName);
+        // add a document to the trippers sub-collection of this trip
+        return tripperRef(FirebaseFirestore.getInstance(), tripId, tripperId)
+                .set(tripperData(tripperId, tripperEmail, tripperName));
+    }
+
+    /**
+     * addTrippers()
+     * adds each user to the trippers sub-collection of a trip and adds the trip to the trips
+     * sub-collection of each user, in a single batch
+     * @param tripId the id of the trip
+     * @param tripTitle the title of the trip
+     * @param startDate the start date of the trip
+     * @param trippers the users that are being added to the trip
+     */
+    public static Task<Void> addTrippers(String tripId, String tripTitle, String startDate,
+                                         List<UserSummary> trippers) {
+        FirebaseFirestore store = FirebaseFirestore.getInstance();
+        BatchBuilder batch = new BatchBuilder(store);
+        addTrippers(batch, store, tripId, tripTitle, startDate, trippers);
+        return batch.commit();
+    }
 
-        Log.d(Const.TAG, "addTripper: " + data);
+    // adds the tripper documents and trips sub-collection entries of the trippers to a batch
+    private static void addTrippers(BatchBuilder batch, FirebaseFirestore store, String tripId,
+                                    String tripTitle, String startDate, List<UserSummary> trippers) {
+        Map<String, Object> tripData = userTripData(tripId, tripTitle, startDate);
+        for (UserSummary tripper : trippers) {
+            batch.set(tripperRef(store, tripId, tripper.getUserId()),
+                    tripperData(tripper.getUserId(), tripper.getEmail(), tripper.getName()));
+            batch.set(userTripRef(store, tripper.getUserId(), tripId), tripData);
+        }
+    }
 
-        // add a document to the trippers sub-collection of this trip
+    /**
+     * newTripCommentId()
+     * allocates the id of a new comment of a trip locally, without a round trip to the server
+     * @param tripId the id of the trip
+     */
+    public static String newTripCommentId(String tripId) {
         return FirebaseFirestore.getInstance()
                 .collection(Const.TRIPS_COLLECTION)
                 .document(tripId)
-                .collection(Const.TRIP_TRIPPERS_COLLECTION)
-                .document(tripperId)
-                .set(data);
+                .collection(Const.TRIP_COMMENTS_COLLECTION)
+                .document()
+                .getId();
     }
 
     /**
      * addTripComment()
      * adds a comment to the comments sub-collection of a trip
+     * the comment is written to the id that was allocated for it, so sending the same comment
+     * again after a failure does not add a second copy
      * @param tripId the id of the trip
+     * @param commentId the id of the comment, from newTripCommentId()
      * @param comment the comment to be added
      */
-    public static Task<DocumentReference> addTripComment(String tripId, String comment, String userName,
-                                                         String userId, long timestamp) {
+    public static Task<Void> addTripComment(String tripId, String commentId, String comment, String userName,
+                                            String userId, long timestamp) {
         // add the comment to a map
         Map<String, Object> data = new HashMap<>();
         data.put(Const.TRIP_COMMENT_KEY, comment);
@@ -485,12 +679,13 @@ public class AccessDB {
         data.put(Const.TRIP_TIMESTAMP_KEY, timestamp);
 
 
-        // add a document to the comments sub-collection of this trip
+        // write the document to the comments sub-collection of this trip
         return FirebaseFirestore.getInstance()
                 .collection(Const.TRIPS_COLLECTION)
                 .document(tripId)
                 .collection(Const.TRIP_COMMENTS_COLLECTION)
-                .add(data);
+                .document(commentId)
+                .set(data);
     }
 
     /**
@@ -517,15 +712,16 @@ public class AccessDB {
     /**
      * addTripLocation()
      * adds a location to the locations sub collection of this trip
+     * the location is stored as a GeoPoint together with its geohash, so that it can be found by
+     * range queries on the geohash
      * @param tripId the id of this trip
      * @param location the Place object representing the location
      */
     public static Task<DocumentReference> addTripLocation(String tripId, LatLng location, String name, long timeStamp) {
         // create a map to hold the data
         Map<String, Object> data = new HashMap<>();
-        String coordinate = location.latitude + "," +
-                location.longitude;
-        data.put(Const.TRIP_LOCATION_KEY, coordinate);
+        data.put(Const.TRIP_LOCATION_KEY, new GeoPoint(location.latitude, location.longitude));
+        data.put(Const.TRIP_GEOHASH_KEY, GeoHash.encode(location.latitude, location.longitude));
         data.put(Const.TRIP_LOCATION_NAME_KEY, name);
         data.put(Const.TRIP_TIMESTAMP_KEY, timeStamp);
 
@@ -615,6 +811,24 @@ public class AccessDB {
                 .get();
     }
 
+    /**
+     * getTripSummariesByDate()
+     * returns the trip summaries of all the trips that this user has been on, from the most recent
+     * start date to the oldest
+     * entries with an invalid start date have UNKNOWN_START_DAY and come last, entries without a
+     * start day are left out until the backfill function has reached them, so use
+     * getTripSummaries() when every trip is needed
+     * @param userId the id of this user
+     */
+    public static Task<QuerySnapshot> getTripSummariesByDate(String userId) {
+        return FirebaseFirestore.getInstance()
+                .collection(Const.USERS_COLLECTION)
+                .document(userId)
+                .collection(Const.USER_TRIPS_COLLECTION)
+                .orderBy(Const.TRIP_START_DAY_KEY, Query.Direction.DESCENDING)
+                .get();
+    }
+
     /**
      * getTripInfo
      * gets all of the info within the document of a particular trip
@@ -676,7 +890,7 @@ public class AccessDB {
 
     /**
      * getTripLocations()
-     * get all the locations from this trip
+     * get all the locations from this trip, in the order they were added to the map
      * @param tripId the id of the trip
      */
     public static Task<QuerySnapshot> getTripLocations(String tripId) {
@@ -684,6 +898,221 @@ public class AccessDB {
                 .collection(Const.TRIPS_COLLECTION)
                 .document(tripId)
                 .collection(Const.TRIP_LOCATIONS_COLLECTION)
+                .orderBy(Const.TRIP_TIMESTAMP_KEY, Query.Direction.ASCENDING)
+                .get();
+    }
+
+
+    /**
+     * getTripCommentsPage()
+     * gets a page of the comments of a given trip, from the newest to the oldest
+     * @param tripId the id of the trip
+     * @param afterTimestamp the timestamp of the last comment of the previous page
+     * @param afterId the id of the last comment of the previous page, or null for the first page
+     */
+    public static Task<QuerySnapshot> getTripCommentsPage(String tripId, long afterTimestamp, String afterId) {
+        return page(FirebaseFirestore.getInstance()
+                .collection(Const.TRIPS_COLLECTION)
+                .document(tripId)
+                .collection(Const.TRIP_COMMENTS_COLLECTION), Query.Direction.DESCENDING, afterTimestamp, afterId)
                 .get();
     }
+
+    /**
+     * getTripPhotosPage()
+     * gets a page of the photos of a given trip, from the newest to the oldest
+     * @param tripId the id of the trip
+     * @param afterTimestamp the timestamp of the last photo of the previous page
+     * @param afterId the id of the last photo of the previous page, or null for the first page
+     */
+    public static Task<QuerySnapshot> getTripPhotosPage(String tripId, long afterTimestamp, String afterId) {
+        return page(FirebaseFirestore.getInstance()
+                .collection(Const.TRIPS_COLLECTION)
+                .document(tripId)
+                .collection(Const.TRIP_PHOTO_PATHS_COLLECTION), Query.Direction.DESCENDING, afterTimestamp, afterId)
+                .get();
+    }
+
+    /**
+     * listenToTripComments()
+     * listens to the newest page of the comments of a given trip, from the newest to the oldest
+     * the first snapshot holds the whole page, after that the document changes of each snapshot
+     * only hold the comments that were added, changed or removed, so only those are read
+     * a comment is also removed from the page when a newer comment pushes it out of a full page
+     * snapshots are also delivered when a comment that was written on this device reaches the
+     * server, so that it can stop being displayed as pending
+     * @param tripId the id of the trip
+     * @param listener called on the main thread with each snapshot
+     * @return the registration, which must be removed once the comments are no longer displayed
+     */
+    public static ListenerRegistration listenToTripComments(String tripId, EventListener<QuerySnapshot> listener) {
+        return page(FirebaseFirestore.getInstance()
+                .collection(Const.TRIPS_COLLECTION)
+                .document(tripId)
+                .collection(Const.TRIP_COMMENTS_COLLECTION), Query.Direction.DESCENDING, 0, null)
+                .addSnapshotListener(MetadataChanges.INCLUDE, listener);
+    }
+
+    /**
+     * page()
+     * orders a sub-collection by timestamp and limits it to a page, the document id breaks ties
+     * between documents with the same timestamp so that no document is skipped between pages
+     * @param collection the sub-collection
+     * @param direction the order of the pages
+     * @param afterTimestamp the timestamp of the last document of the previous page
+     * @param afterId the id of the last document of the previous page, or null for the first page
+     */
+    private static Query page(CollectionReference collection, Query.Direction direction,
+                              long afterTimestamp, String afterId) {
+        Query query = collection
+                .orderBy(Const.TRIP_TIMESTAMP_KEY, direction)
+                .orderBy(FieldPath.documentId(), direction)
+                .limit(PAGE_SIZE);
+        if (afterId != null) query = query.startAfter(afterTimestamp, afterId);
+        return query;
+    }
+
+
+    // MAPPED GETTERS
+    // the documents arrive in the order requested from FireStore and are mapped to models on the
+    // background pool, so only the finished list is delivered to the main thread
+
+    /**
+     * loadTripSummaries()
+     * @param userId the id of the user
+     * @return the summaries of all the trips that this user has been on, the most recent first
+     */
+    public static Task<ArrayList<TripSummary>> loadTripSummaries(String userId) {
+        return mapDocuments(getTripSummariesByDate(userId), TripSummaryMapper.INSTANCE);
+    }
+
+    /**
+     * loadTrippers()
+     * @param tripId the id of the trip
+     * @return the trippers of the trip
+     */
+    public static Task<ArrayList<UserSummary>> loadTrippers(String tripId) {
+        return mapDocuments(getTrippers(tripId), UserSummaryMapper.INSTANCE);
+    }
+
+    /**
+     * loadFriends()
+     * @param userId the id of the user
+     * @return the friends of the user
+     */
+    public static Task<ArrayList<UserSummary>> loadFriends(String userId) {
+        return mapDocuments(getFriendsList(userId), UserSummaryMapper.INSTANCE);
+    }
+
+    /**
+     * loadTripPlansPage()
+     * the pages go from the newest plans to the oldest, but the plans within a page are sorted
+     * from the oldest to the newest so that they can be displayed as they are
+     * @param tripId the id of the trip
+     * @param after the oldest plan that has already been loaded, or null for the newest page
+     * @return a page of the plans (comments) of the trip
+     */
+    public static Task<ArrayList<Plan>> loadTripPlansPage(String tripId, Plan after) {
+        Task<QuerySnapshot> query = after == null ? getTripCommentsPage(tripId, 0, null) :
+                getTripCommentsPage(tripId, after.getPlanTimeStamp(), after.getPlanDocId());
+        return mapDocuments(query, PlanMapper.INSTANCE).continueWith(BackgroundExecutor.get(),
+                new Continuation<ArrayList<Plan>, ArrayList<Plan>>() {
+                    @Override
+                    public ArrayList<Plan> then(@NonNull Task<ArrayList<Plan>> task) {
+                        ArrayList<Plan> plans = task.getResult();
+                        Collections.reverse(plans);
+                        return plans;
+                    }
+                });
+    }
+
+    /**
+     * loadTripPicsPage()
+     * @param tripId the id of the trip
+     * @param after the last pic that has already been loaded, or null for the first page
+     * @return a page of the pics of the trip, from the newest to the oldest
+     */
+    public static Task<ArrayList<Pic>> loadTripPicsPage(String tripId, Pic after) {
+        Task<QuerySnapshot> query = after == null ? getTripPhotosPage(tripId, 0, null) :
+                getTripPhotosPage(tripId, after.getPicDate(), after.getDocId());
+        return mapDocuments(query, PicMapper.INSTANCE);
+    }
+
+    /**
+     * loadTripPlaces()
+     * @param tripId the id of the trip
+     * @return the places of the trip in the order they were added to the map, places without a
+     * valid location are skipped
+     */
+    public static Task<ArrayList<Place>> loadTripPlaces(String tripId) {
+        return mapDocuments(getTripLocations(tripId), PlaceMapper.INSTANCE);
+    }
+
+    /**
+     * loadPlacesNear()
+     * finds the places of all the trips of a user that are within a radius of a location
+     * the user_places index is kept up to date by cloud functions, each geohash range of the circle
+     * is read with a single range query, and the places outside of the circle are filtered out on
+     * the background pool
+     * @param userId the id of the user
+     * @param center the center of the circle
+     * @param radius the radius of the circle in meters
+     * @return the places, from the closest to the farthest
+     */
+    public static Task<ArrayList<Place>> loadPlacesNear(String userId, final LatLng center, final double radius) {
+        CollectionReference places = FirebaseFirestore.getInstance()
+                .collection(Const.USERS_COLLECTION)
+                .document(userId)
+                .collection(Const.USER_PLACES_COLLECTION);
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (String[] range : GeoHash.queryRanges(center.latitude, center.longitude, radius)) {
+            queries.add(places.orderBy(Const.TRIP_GEOHASH_KEY).startAt(range[0]).endAt(range[1]).get());
+        }
+        return Tasks.whenAllSuccess(queries).continueWith(BackgroundExecutor.get(),
+                new Continuation<List<Object>, ArrayList<Place>>() {
+                    @Override
+                    public ArrayList<Place> then(@NonNull Task<List<Object>> task) {
+                        // rethrows if any of the ranges failed
+                        List<Object> results = task.getResult();
+                        ArrayList<Place> near = new ArrayList<>();
+                        final Map<Place, Double> distances = new HashMap<>();
+                        for (Object result : results) {
+                            for (Place place : PlaceMapper.INSTANCE.mapAll(((QuerySnapshot) result).getDocuments())) {
+                                LatLng location = place.getLocation();
+                                double distance = GeoHash.distance(center.latitude, center.longitude,
+                                        location.latitude, location.longitude);
+                                if (distance > radius) continue;
+                                near.add(place);
+                                distances.put(place, distance);
+                            }
+                        }
+                        Collections.sort(near, new Comparator<Place>() {
+                            @Override
+                            public int compare(Place a, Place b) {
+                                return Double.compare(distances.get(a), distances.get(b));
+                            }
+                        });
+                        return near;
+                    }
+                });
+    }
+
+    /**
+     * mapDocuments()
+     * maps the documents of a query to models on the background pool
+     * @param query the query task
+     * @param mapper maps each document
+     */
+    private static <T> Task<ArrayList<T>> mapDocuments(Task<QuerySnapshot> query,
+                                                      final DocumentMapper<T> mapper) {
+        return query.continueWith(BackgroundExecutor.get(), new Continuation<QuerySnapshot, ArrayList<T>>() {
+            @Override
+            public ArrayList<T> then(@NonNull Task<QuerySnapshot> task) {
+                // rethrows the failure of the query
+                QuerySnapshot result = task.getResult();
+                if (result == null) return new ArrayList<>();
+                return mapper.mapAll(result.getDocuments());
+            }
+        });
+    }
 }
@@ -0,0 +1,102 @@
+package com.alsaeedcullivan.ourtrips.cloud;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.Map;
+
+/**
+ * Class to build a group of writes that are committed atomically in a single round trip
+ * Either every write in the batch is applied or none of them are, so an operation that touches
+ * several documents never leaves some of them behind when it fails part way through.
+ * A builder can only be committed once.
+ */
+public class BatchBuilder {
+
+    // the maximum number of writes FireStore allows in a single batch
+    public static final int MAX_WRITES = 500;
+
+    private final WriteBatch mBatch;
+    private int mWrites;
+    private boolean mCommitted;
+
+    public BatchBuilder() {
+        this(FirebaseFirestore.getInstance());
+    }
+
+    public BatchBuilder(FirebaseFirestore db) {
+        mBatch = db.batch();
+    }
+
+    /**
+     * set()
+     * overwrites the document with the given data
+     */
+    public BatchBuilder set(DocumentReference ref, Map<String, Object> data) {
+        count();
+        mBatch.set(ref, data);
+        return this;
+    }
+
+    /**
+     * merge()
+     * writes the given fields to the document, creating it if it does not exist, and leaves
+     * its other fields as they are
+     */
+    public BatchBuilder merge(DocumentReference ref, Map<String, Object> data) {
+        count();
+        mBatch.set(ref, data, SetOptions.merge());
+        return this;
+    }
+
+    /**
+     * update()
+     * updates the given fields of an existing document, the batch fails if it does not exist
+     */
+    public BatchBuilder update(DocumentReference ref, Map<String, Object> data) {
+        count();
+        mBatch.update(ref, data);
+        return this;
+    }
+
+    /**
+     * delete()
+     * deletes the document
+     */
+    public BatchBuilder delete(DocumentReference ref) {
+        count();
+        mBatch.delete(ref);
+        return this;
+    }
+
+    /**
+     * size()
+     * @return the number of writes in the batch
+     */
+    public int size() {
+        return mWrites;
+    }
+
+    /**
+     * commit()
+     * commits every write in the batch atomically
+     * @return a task that completes once the batch has been written to the server
+     */
+    public Task<Void> commit() {
+        if (mCommitted) throw new IllegalStateException("the batch has already been committed");
+        mCommitted = true;
+        return mBatch.commit();
+    }
+
+    // counts a write, making sure the batch can still hold it
+    private void count() {
+        if (mCommitted) throw new IllegalStateException("the batch has already been committed");
+        if (mWrites == MAX_WRITES) {
+            throw new IllegalStateException("a batch can hold at most " + MAX_WRITES + " writes");
+        }
+        mWrites++;
+    }
+}
@@ -0,0 +1,224 @@
+package com.alsaeedcullivan.ourtrips.cloud;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.alsaeedcullivan.ourtrips.models.Plan;
+import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class to hold the plans (comments) that were sent from this device until they reach the server
+ * Each plan is saved to a local outbox before it is written, so a plan that has not reached the
+ * server when the app is closed is sent again the next time the trip is opened. Plans are written
+ * to an id that is allocated on the device, so sending a plan twice never adds a second copy and
+ * the copy that comes back from the server replaces the pending one.
+ * Writes that fail for a reason that may go away (the server being unavailable, a timeout) are
+ * retried with an exponential backoff. A plan the server rejects outright, for example because
+ * the user was removed from the trip, is dropped from the outbox and reported to the listener.
+ */
+public class PlanOutbox {
+
+    private static final String PREFERENCES = "plan_outbox";
+    private static final long FIRST_DELAY_MILLIS = 1000;
+    private static final long MAX_DELAY_MILLIS = 60 * 1000;
+
+    private final SharedPreferences mPrefs;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final String mTripId;
+    // the ids of the plans that are being written
+    private final Set<String> mSending = new HashSet<>();
+    private long mDelay = FIRST_DELAY_MILLIS;
+    private boolean mClosed;
+    private FailureListener mFailureListener;
+
+    /**
+     * FailureListener
+     * notified on the main thread when the server rejects a plan, the plan is no longer pending
+     */
+    public interface FailureListener {
+        void onPlanFailed(Plan plan);
+    }
+
+    private final Runnable mRetry = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public PlanOutbox(Context context, String tripId) {
+        mPrefs = context.getApplicationContext().getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+        mTripId = tripId;
+    }
+
+    /**
+     * send()
+     * saves a new plan to the outbox and writes it to the db
+     * @param message the message of the plan
+     * @param userName the name of this user
+     * @param userId the id of this user
+     * @return the plan, marked as pending
+     */
+    public Plan send(String message, String userName, String userId) {
+        Plan plan = new Plan();
+        plan.setPlanDocId(AccessDB.newTripCommentId(mTripId));
+        plan.setMessage(message);
+        plan.setPlanUserName(userName);
+        plan.setPlanUserId(userId);
+        plan.setPlanTimeStamp(new Date().getTime());
+        plan.setPending(true);
+
+        String data = toJson(plan);
+        if (data != null) mPrefs.edit().putString(key(plan.getPlanDocId()), data).apply();
+        write(plan);
+        return plan;
+    }
+
+    /**
+     * getPending()
+     * @return the plans of this trip that have not reached the server yet, marked as pending
+     */
+    public List<Plan> getPending() {
+        List<Plan> plans = new ArrayList<>();
+        String prefix = key("");
+        for (Map.Entry<String, ?> entry : mPrefs.getAll().entrySet()) {
+            if (!entry.getKey().startsWith(prefix) || !(entry.getValue() instanceof String)) continue;
+            Plan plan = fromJson(entry.getKey().substring(prefix.length()), (String) entry.getValue());
+            if (plan != null) plans.add(plan);
+        }
+        return plans;
+    }
+
+    /**
+     * flush()
+     * writes every plan in the outbox that is not already being written
+     */
+    public void flush() {
+        if (mClosed) return;
+        mHandler.removeCallbacks(mRetry);
+        for (Plan plan : getPending()) {
+            if (!mSending.contains(plan.getPlanDocId())) write(plan);
+        }
+    }
+
+    /**
+     * setFailureListener()
+     * sets the listener that is notified when the server rejects a plan
+     */
+    public void setFailureListener(FailureListener listener) {
+        mFailureListener = listener;
+    }
+
+    /**
+     * close()
+     * stops retrying, the plans that are being written are still removed from the outbox once
+     * they reach the server
+     */
+    public void close() {
+        mClosed = true;
+        mHandler.removeCallbacks(mRetry);
+    }
+
+    // writes a plan to the db and removes it from the outbox once it has reached the server
+    private void write(final Plan plan) {
+        final String id = plan.getPlanDocId();
+        mSending.add(id);
+        AccessDB.addTripComment(mTripId, id, plan.getMessage(), plan.getPlanUserName(), plan.getPlanUserId(),
+                plan.getPlanTimeStamp()).addOnCompleteListener(new OnCompleteListener<Void>() {
+            @Override
+            public void onComplete(@NonNull Task<Void> task) {
+                mSending.remove(id);
+                if (task.isSuccessful()) {
+                    mPrefs.edit().remove(key(id)).apply();
+                    mDelay = FIRST_DELAY_MILLIS;
+                    return;
+                }
+                Log.d(Const.TAG, "write: " + task.getException());
+                if (!isTransient(task.getException())) {
+                    // sending the plan again would fail the same way
+                    mPrefs.edit().remove(key(id)).apply();
+                    if (mFailureListener != null && !mClosed) mFailureListener.onPlanFailed(plan);
+                    return;
+                }
+                if (mClosed) return;
+                // try again later, waiting twice as long after each failure
+                mHandler.removeCallbacks(mRetry);
+                mHandler.postDelayed(mRetry, mDelay);
+                mDelay = Math.min(mDelay * 2, MAX_DELAY_MILLIS);
+            }
+        });
+    }
+
+    // returns whether a failed write could succeed if it is tried again
+    private static boolean isTransient(Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) return true;
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case ABORTED:
+            case CANCELLED:
+            case DEADLINE_EXCEEDED:
+            case INTERNAL:
+            case RESOURCE_EXHAUSTED:
+            case UNAVAILABLE:
+            case UNKNOWN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // returns the key of a plan of this trip in the outbox
+    private String key(String planId) {
+        return mTripId + "/" + planId;
+    }
+
+    // returns the plan as a json string, or null if it could not be converted
+    private static String toJson(Plan plan) {
+        try {
+            return new JSONObject()
+                    .put(Const.TRIP_COMMENT_KEY, plan.getMessage())
+                    .put(Const.USER_NAME_KEY, plan.getPlanUserName())
+                    .put(Const.USER_ID_KEY, plan.getPlanUserId())
+                    .put(Const.TRIP_TIMESTAMP_KEY, plan.getPlanTimeStamp())
+                    .toString();
+        } catch (JSONException e) {
+            Log.d(Const.TAG, "toJson: " + e);
+            return null;
+        }
+    }
+
+    // returns the plan stored in a json string, or null if the string is invalid
+    private static Plan fromJson(String id, String data) {
+        try {
+            JSONObject json = new JSONObject(data);
+            Plan plan = new Plan();
+            plan.setPlanDocId(id);
+            plan.setMessage(json.getString(Const.TRIP_COMMENT_KEY));
+            plan.setPlanUserName(json.getString(Const.USER_NAME_KEY));
+            plan.setPlanUserId(json.getString(Const.USER_ID_KEY));
+            plan.setPlanTimeStamp(json.getLong(Const.TRIP_TIMESTAMP_KEY));
+            plan.setPending(true);
+            return plan;
+        } catch (JSONException e) {
+            Log.d(Const.TAG, "fromJson: " + e);
+            return null;
+        }
+    }
+}
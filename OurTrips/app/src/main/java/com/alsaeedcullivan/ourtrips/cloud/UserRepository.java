@@ -0,0 +1,170 @@
+package com.alsaeedcullivan.ourtrips.cloud;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.alsaeedcullivan.ourtrips.models.AvailabilitySchedule;
+import com.alsaeedcullivan.ourtrips.utils.AvailabilityCodec;
+import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.google.android.gms.tasks.Continuation;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class of static methods to load users/{id} documents through an in memory cache
+ * The most recently used documents are kept for a few minutes, and requests for a document that is
+ * already being loaded share the request that is in flight instead of issuing another get(), so
+ * screens that need the name, dates and profile of the same user only read the document once.
+ * The availability of a cached user is unpacked from their document the first time it is needed.
+ * A user's entry is dropped when this device writes to their document.
+ */
+public class UserRepository {
+
+    // the number of documents that are kept and how long they are considered fresh
+    private static final int MAX_ENTRIES = 64;
+    private static final long TTL_MILLIS = 5 * 60 * 1000;
+
+    private static final Map<String, Entry> sCache =
+            new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+    private static final Map<String, Task<DocumentSnapshot>> sInFlight = new HashMap<>();
+    // incremented whenever entries are invalidated, so loads that started before are not cached
+    private static long sGeneration;
+
+    /**
+     * getUser()
+     * gets the document of a user, from the cache if it is fresh
+     * @param userId the id of the user
+     */
+    public static synchronized Task<DocumentSnapshot> getUser(final String userId) {
+        // the cached document is still fresh
+        Entry entry = sCache.get(userId);
+        if (entry != null && SystemClock.elapsedRealtime() - entry.loadedAt < TTL_MILLIS) {
+            return Tasks.forResult(entry.doc);
+        }
+
+        // share the request that is already loading this document
+        Task<DocumentSnapshot> inFlight = sInFlight.get(userId);
+        if (inFlight != null) return inFlight;
+
+        Log.d(Const.TAG, "getUser: loading " + userId);
+        final long generation = sGeneration;
+        final Task<DocumentSnapshot> load = FirebaseFirestore.getInstance()
+                .collection(Const.USERS_COLLECTION)
+                .document(userId)
+                .get()
+                .continueWith(new Continuation<DocumentSnapshot, DocumentSnapshot>() {
+                    @Override
+                    public DocumentSnapshot then(@NonNull Task<DocumentSnapshot> task) throws Exception {
+                        synchronized (UserRepository.class) {
+                            if (task.isSuccessful() && task.getResult() != null && generation == sGeneration) {
+                                sCache.put(userId, new Entry(task.getResult()));
+                            }
+                        }
+                        // rethrows if the document could not be loaded
+                        if (!task.isSuccessful() && task.getException() != null) throw task.getException();
+                        return task.getResult();
+                    }
+                });
+        sInFlight.put(userId, load);
+        load.addOnCompleteListener(new OnCompleteListener<DocumentSnapshot>() {
+            @Override
+            public void onComplete(@NonNull Task<DocumentSnapshot> task) {
+                synchronized (UserRepository.class) {
+                    // a load that started after an invalidation may have replaced this one
+                    sInFlight.remove(userId, load);
+                }
+            }
+        });
+        return load;
+    }
+
+    /**
+     * getAvailability()
+     * @param userId the id of the user
+     * @return the availability of the user if their document is cached and fresh, otherwise null
+     */
+    public static synchronized AvailabilitySchedule getAvailability(String userId) {
+        Entry entry = sCache.get(userId);
+        if (entry == null || SystemClock.elapsedRealtime() - entry.loadedAt >= TTL_MILLIS) return null;
+        if (entry.availability == null) entry.availability = AvailabilityCodec.scheduleFromDocument(entry.doc);
+        return entry.availability;
+    }
+
+    /**
+     * hasAvailability()
+     * @param userIds the ids of the users
+     * @return whether the availability of every one of the users can be read from the cache
+     */
+    public static synchronized boolean hasAvailability(Collection<String> userIds) {
+        for (String id : userIds) if (getAvailability(id) == null) return false;
+        return true;
+    }
+
+    /**
+     * getGeneration()
+     * @return the current generation, to be passed to put() by a query that loads users
+     */
+    public static synchronized long getGeneration() {
+        return sGeneration;
+    }
+
+    /**
+     * put()
+     * caches a user's document that was loaded by another query, unless users were invalidated
+     * after the query started
+     * @param doc the user's document
+     * @param generation the generation when the query started
+     */
+    public static synchronized void put(DocumentSnapshot doc, long generation) {
+        if (generation != sGeneration) return;
+        if (doc != null && doc.exists()) sCache.put(doc.getId(), new Entry(doc));
+    }
+
+    /**
+     * invalidate()
+     * removes a user from the cache so their document is reloaded the next time it is needed
+     * @param userId the id of the user
+     */
+    public static synchronized void invalidate(String userId) {
+        sCache.remove(userId);
+        sInFlight.remove(userId);
+        sGeneration++;
+    }
+
+    /**
+     * clear()
+     * removes every user from the cache
+     */
+    public static synchronized void clear() {
+        sCache.clear();
+        sInFlight.clear();
+        sGeneration++;
+    }
+
+    // a cached document, the time it was loaded and the availability unpacked from it
+    private static class Entry {
+        private final DocumentSnapshot doc;
+        private final long loadedAt;
+        private AvailabilitySchedule availability;
+
+        Entry(DocumentSnapshot doc) {
+            this.doc = doc;
+            this.loadedAt = SystemClock.elapsedRealtime();
+        }
+    }
+}
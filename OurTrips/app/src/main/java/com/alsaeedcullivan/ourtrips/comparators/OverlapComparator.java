@@ -0,0 +1,28 @@
+package com.alsaeedcullivan.ourtrips.comparators;
+
+import com.alsaeedcullivan.ourtrips.models.UserSummary;
+
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Orders friends from the most to the least days in common with the current user,
+ * friends that have not been scored yet go last
+ */
+public class OverlapComparator implements Comparator<UserSummary> {
+
+    private Map<String, Integer> overlaps;
+
+    public OverlapComparator(Map<String, Integer> overlaps) {
+        this.overlaps = overlaps;
+    }
+
+    @Override
+    public int compare(UserSummary o1, UserSummary o2) {
+        Integer a = overlaps.get(o1.getUserId());
+        Integer b = overlaps.get(o2.getUserId());
+        int diff = (b == null ? -1 : b) - (a == null ? -1 : a);
+        if (diff != 0) return diff;
+        return o1.getName().compareToIgnoreCase(o2.getName());
+    }
+}
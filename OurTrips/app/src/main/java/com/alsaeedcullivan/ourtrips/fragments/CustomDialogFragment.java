@@ -16,6 +16,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.DialogFragment;
 
+import com.alsaeedcullivan.ourtrips.CalendarActivity;
 import com.alsaeedcullivan.ourtrips.EditSummaryActivity;
 import com.alsaeedcullivan.ourtrips.FriendActivity;
 import com.alsaeedcullivan.ourtrips.MainActivity;
@@ -60,6 +61,9 @@ public class CustomDialogFragment extends DialogFragment {
     public static final int RECOGNIZE_LOC_ID = 19;
     public static final int DELETE_PIC_ID = 20;
     public static final int POST_PIC_ID = 21;
+    public static final int TRIP_WINDOW_ID = 22;
+    public static final int BEST_WINDOWS_ID = 23;
+    public static final int WEEKLY_RULE_ID = 24;
 
     // private constants
     private static final String KEY_ID = "key_id";
@@ -133,6 +137,12 @@ public class CustomDialogFragment extends DialogFragment {
                 return authenticateDialog();
             case RECOGNIZE_LOC_ID:
                 return recognizeLocationDialog();
+            case TRIP_WINDOW_ID:
+                return tripWindowDialog();
+            case BEST_WINDOWS_ID:
+                return bestWindowsDialog();
+            case WEEKLY_RULE_ID:
+                return weeklyRuleDialog();
         }
 
         // if a dialog has not been returned, return an alert dialog
@@ -662,4 +672,97 @@ public class CustomDialogFragment extends DialogFragment {
 
         return dialog.create();
     }
+
+    // prompts the user to enter the length of the trip and the minimum number of people
+    private AlertDialog tripWindowDialog() {
+        // create alert dialog
+        AlertDialog.Builder dialog = new AlertDialog.Builder(getActivity(), R.style.AlertDialogInput);
+        // set title and view
+        dialog.setTitle(R.string.find_best_dates);
+        final View dialogView = View.inflate(getContext(), R.layout.window_input, null);
+        dialog.setView(dialogView);
+
+        dialog.setPositiveButton("Find", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                EditText length = dialogView.findViewById(R.id.trip_length_input);
+                EditText min = dialogView.findViewById(R.id.min_attendees_input);
+                if (getActivity() != null) {
+                    ((CalendarActivity) getActivity()).findWindows(length.getText().toString(),
+                            min.getText().toString());
+
+                    // hide the keyboard
+                    InputMethodManager imm = (InputMethodManager) getActivity()
+                            .getSystemService(Activity.INPUT_METHOD_SERVICE);
+                    if (imm != null) imm.hideSoftInputFromWindow(min.getWindowToken(),
+                            InputMethodManager.HIDE_NOT_ALWAYS);
+                }
+                dismiss();
+            }
+        }).setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                dismiss();
+            }
+        });
+        return dialog.create();
+    }
+
+    // lists the best windows that were found so the user can arrange a trip for one of them
+    private AlertDialog bestWindowsDialog() {
+        // create alert dialog
+        AlertDialog.Builder dialog = new AlertDialog.Builder(getActivity(), R.style.AlertDialogInput);
+        dialog.setTitle(R.string.best_dates);
+        if (getActivity() == null) return dialog.create();
+
+        String[] windows = ((CalendarActivity) getActivity()).getWindowDescriptions();
+        dialog.setItems(windows, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                if (getActivity() == null) return;
+                ((CalendarActivity) getActivity()).onWindowSelected(which);
+                dismiss();
+            }
+        }).setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                dismiss();
+            }
+        });
+        return dialog.create();
+    }
+
+    // lets the user pick the weekdays they are always free
+    private AlertDialog weeklyRuleDialog() {
+        // create alert dialog
+        AlertDialog.Builder dialog = new AlertDialog.Builder(getActivity(), R.style.AlertDialogInput);
+        dialog.setTitle(R.string.free_every);
+        if (getActivity() == null) return dialog.create();
+
+        // check the weekdays of the user's current rule, Monday is bit 0
+        int weekdays = ((CalendarActivity) getActivity()).getWeekdays();
+        final boolean[] checked = new boolean[7];
+        for (int i = 0; i < checked.length; i++) checked[i] = (weekdays & (1 << i)) != 0;
+        dialog.setMultiChoiceItems(R.array.weekdays, checked, new DialogInterface.OnMultiChoiceClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which, boolean isChecked) {
+                checked[which] = isChecked;
+            }
+        }).setPositiveButton("Save", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                if (getActivity() == null) return;
+                int mask = 0;
+                for (int i = 0; i < checked.length; i++) if (checked[i]) mask |= 1 << i;
+                ((CalendarActivity) getActivity()).setWeekdays(mask);
+                dismiss();
+            }
+        }).setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                dismiss();
+            }
+        });
+        return dialog.create();
+    }
 }
@@ -29,16 +29,14 @@ import com.alsaeedcullivan.ourtrips.R;
 import com.alsaeedcullivan.ourtrips.TripActivity;
 import com.alsaeedcullivan.ourtrips.cloud.AccessBucket;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
-import com.alsaeedcullivan.ourtrips.comparators.PicComparator;
 import com.alsaeedcullivan.ourtrips.models.Pic;
 import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.alsaeedcullivan.ourtrips.utils.TaskPipeline;
 import com.github.dhaval2404.imagepicker.ImagePicker;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.DocumentReference;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.storage.UploadTask;
 
 import java.io.File;
@@ -46,7 +44,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 
 /**
  * This fragment uses the Android ImagePicker open source library
@@ -57,7 +54,6 @@ import java.util.List;
 public class MediaFragment extends Fragment {
 
     private ArrayList<Pic> mPics;
-    private List<DocumentSnapshot> mDocs = new ArrayList<>();
     private long mTimeStamp = -1;
     private String mTripId;
     private String mPath;
@@ -230,8 +226,8 @@ public class MediaFragment extends Fragment {
 
     /**
      * goToGallery()
-     * sends the user to gallery activity, this is called when the pictures are done being
-     * sorted on the Async Task background thread
+     * sends the user to gallery activity, this is called when the first page of pictures has
+     * been loaded
      */
     private void goToGallery() {
         if (getActivity() == null) return;
@@ -254,12 +250,45 @@ public class MediaFragment extends Fragment {
                 mLoading.setText(R.string.loading_photos);
                 showSpinner();
 
-                // load the pic documents
-                new LoadPicsTask().execute();
+                // load the pics
+                loadPics();
             }
         };
     }
 
+    /**
+     * loadPics()
+     * loads the first page of the pics of this trip and then allows the user to go to the gallery,
+     * which loads the rest of the pages as the user scrolls
+     */
+    private void loadPics() {
+        TaskPipeline.start(getViewLifecycleOwner(), AccessDB.loadTripPicsPage(mTripId, null))
+                .deliver(getViewLifecycleOwner(), new TaskPipeline.Callback<ArrayList<Pic>>() {
+                    @Override
+                    public void onSuccess(ArrayList<Pic> pics) {
+                        if (pics.size() > 0) {
+                            mPics = pics;
+                            goToGallery();
+                            return;
+                        }
+                        Toast t = Toast.makeText(getActivity(), "There are no photos " +
+                                "in the photo gallery.", Toast.LENGTH_SHORT);
+                        t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                        t.show();
+                        hideSpinner();
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Toast t = Toast.makeText(getActivity(), "The photo gallery could " +
+                                "not be loaded.", Toast.LENGTH_SHORT);
+                        t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                        t.show();
+                        hideSpinner();
+                    }
+                });
+    }
+
     // on click listener for the add photo button
     private View.OnClickListener photoListener() {
         return new View.OnClickListener() {
@@ -298,106 +327,4 @@ public class MediaFragment extends Fragment {
             return null;
         }
     }
-
-    /**
-     * LoadPicsTask
-     * loads a list of the documents corresponding to each picture
-     */
-    private class LoadPicsTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mTripId == null) return null;
-
-            // load the photo paths associated with this trip
-            AccessDB.getTripPhotos(mTripId).addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                @Override
-                public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                    QuerySnapshot result = task.getResult();
-                    if (task.isSuccessful()) {
-                        if (result != null && result.getDocuments().size() > 0) {
-                            Log.d(Const.TAG, "onComplete: " + Thread.currentThread().getId());
-                            // get the list of documents and start the async task that
-                            // will get the list of Pic objects
-                            mDocs = result.getDocuments();
-                            mPics = new ArrayList<>();
-                            new GetPicsTask().execute();
-                        } else {
-                            Toast t = Toast.makeText(getActivity(), "There are no photos " +
-                                    "in the photo gallery.", Toast.LENGTH_SHORT);
-                            t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
-                            t.show();
-                            hideSpinner();
-                        }
-                    } else {
-                        Toast t = Toast.makeText(getActivity(), "The photo gallery could " +
-                                "not be loaded.", Toast.LENGTH_SHORT);
-                        t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
-                        t.show();
-                        hideSpinner();
-                    }
-                }
-            });
-
-            return null;
-        }
-    }
-
-    /**
-     * GetPicsTask
-     * gets a list of the pics from a list of their documents
-     */
-    private class GetPicsTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mDocs == null || mDocs.size() == 0 || mPics == null) return null;
-
-            // extract a pic from each document
-            for (DocumentSnapshot doc : mDocs) {
-                Pic p = new Pic();
-                p.setDate((long)doc.get(Const.TRIP_TIMESTAMP_KEY));
-                p.setDocId(doc.getId());
-                p.setPath((String)doc.get(Const.TRIP_PHOTO_KEY));
-                mPics.add(p);
-                Log.d(Const.TAG, "then: " + p.getPicPath());
-            }
-
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-
-            if (mPics != null && mPics.size() > 0) {
-                new PicSortTask().execute();
-            } else {
-                Toast t = Toast.makeText(getActivity(), "There are no photos " +
-                        "in the photo gallery.", Toast.LENGTH_SHORT);
-                t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
-                t.show();
-                hideSpinner();
-            }
-        }
-    }
-
-    /**
-     * PicSortTask
-     * sorts the list of pictures and then allows the user to go to the gallery
-     */
-    private class PicSortTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mPics != null && mPics.size() > 0) mPics.sort(new PicComparator());
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-            goToGallery();
-        }
-    }
 }
@@ -1,7 +1,6 @@
 package com.alsaeedcullivan.ourtrips.fragments;
 
 import android.app.Activity;
-import android.os.AsyncTask;
 import android.os.Bundle;
 
 import androidx.annotation.NonNull;
@@ -11,30 +10,37 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import android.util.Log;
+import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.Toast;
 
 import com.alsaeedcullivan.ourtrips.R;
 import com.alsaeedcullivan.ourtrips.TripActivity;
+import com.alsaeedcullivan.ourtrips.adapters.PagingScrollListener;
 import com.alsaeedcullivan.ourtrips.adapters.PlanAdapter;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
-import com.alsaeedcullivan.ourtrips.comparators.PlanComparator;
+import com.alsaeedcullivan.ourtrips.cloud.PlanOutbox;
+import com.alsaeedcullivan.ourtrips.mappers.PlanMapper;
 import com.alsaeedcullivan.ourtrips.models.Plan;
 import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.alsaeedcullivan.ourtrips.utils.TaskPipeline;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentReference;
-import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
 import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 public class PlanFragment extends Fragment {
@@ -44,15 +50,16 @@ public class PlanFragment extends Fragment {
     private static final String NAME_KEY = "name";
 
     private ArrayList<Plan> mPlans = new ArrayList<>();
-    private List<DocumentSnapshot> mDocs = new ArrayList<>();
     private String mTripId;
     private PlanAdapter mAdapter;
     private EditText mMessageEdit;
     private String mUserName;
     private RecyclerView mRecycle;
+    private PagingScrollListener mPaging;
+    private ListenerRegistration mListener;
+    private boolean mNewestLoaded;
+    private PlanOutbox mOutbox;
     private FirebaseUser mUser;
-    private String mMessage;
-    private Plan mPlan;
 
     public PlanFragment() {
         // Required empty public constructor
@@ -68,7 +75,7 @@ public class PlanFragment extends Fragment {
         if (getActivity() == null) return;
 
         // instantiate the adapter
-        mAdapter = new PlanAdapter(new ArrayList<Plan>());
+        mAdapter = new PlanAdapter();
 
         // if instance state has been saved
         if (savedInstanceState != null && savedInstanceState.getString(TRIP_ID_KEY) != null &&
@@ -76,8 +83,9 @@ public class PlanFragment extends Fragment {
                 savedInstanceState.getString(NAME_KEY) != null) {
             mTripId = savedInstanceState.getString(TRIP_ID_KEY);
             mPlans = savedInstanceState.getParcelableArrayList(PLANS_KEY);
-            mAdapter.setData(mPlans);
+            mAdapter.submitList(mPlans, null);
             mUserName = savedInstanceState.getString(NAME_KEY);
+            mOutbox = new PlanOutbox(getActivity(), mTripId);
         }
         // if instance state has not been saved
         else {
@@ -85,9 +93,40 @@ public class PlanFragment extends Fragment {
             mTripId = ((TripActivity)getActivity()).getTripId();
             mUser = FirebaseAuth.getInstance().getCurrentUser();
             if (mTripId == null || mUser == null) return;
-            // get the plans
-            new GetPlansTask().execute();
+            mOutbox = new PlanOutbox(getActivity(), mTripId);
+            // get this user's name
+            loadUserName();
+        }
+        if (mOutbox != null) mOutbox.setFailureListener(failureListener());
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        // listen to the newest plans while the fragment is visible, the plans are loaded by the
+        // first snapshot and after that only the plans that change are read
+        if (mTripId == null || mOutbox == null) return;
+        mListener = AccessDB.listenToTripComments(mTripId, planListener());
+
+        // display the plans that have not reached the server yet and send them again
+        for (Plan plan : mOutbox.getPending()) {
+            if (indexOf(plan.getPlanDocId()) < 0) insert(plan);
         }
+        showPlans();
+        mOutbox.flush();
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        if (mListener != null) mListener.remove();
+        mListener = null;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        if (mOutbox != null) mOutbox.close();
     }
 
     @Override
@@ -118,6 +157,15 @@ public class PlanFragment extends Fragment {
         mRecycle.setLayoutManager(man);
         mRecycle.setAdapter(mAdapter);
 
+        // load older plans as the user scrolls up
+        mPaging = new PagingScrollListener(man, AccessDB.PAGE_SIZE, true) {
+            @Override
+            protected void loadPage() {
+                loadOlderPlans();
+            }
+        };
+        mRecycle.addOnScrollListener(mPaging);
+
         // edit text
         mMessageEdit = view.findViewById(R.id.plan_type_box);
 
@@ -126,171 +174,187 @@ public class PlanFragment extends Fragment {
         send.setOnClickListener(sendListener());
     }
 
-    // on click listener for the send button
-    private View.OnClickListener sendListener() {
-        return new View.OnClickListener() {
+    /**
+     * loadUserName()
+     * loads the name of this user, which is sent with each of their plans
+     */
+    private void loadUserName() {
+        AccessDB.getUserName(mUser.getUid()).addOnCompleteListener(new OnCompleteListener<String>() {
             @Override
-            public void onClick(View v) {
-                // get this user
-                mUser = FirebaseAuth.getInstance().getCurrentUser();
-                // get the message
-                mMessage = mMessageEdit.getText().toString();
-
-                Log.d(Const.TAG, "onClick: user " + mUser);
-                Log.d(Const.TAG, "onClick: tripId " + mTripId);
-                Log.d(Const.TAG, "onClick: name " + mUserName);
-                Log.d(Const.TAG, "onClick: message " + mMessage);
-                // if they have not typed anything, do nothing
-                if (mTripId == null || mUser == null || mUserName == null || mMessage
-                        .replaceAll("\\s","").equals("")) return;
-                mMessageEdit.setText("");
-
-                // create a plan
-                mPlan = new Plan();
-                mPlan.setMessage(mMessage);
-                mPlan.setPlanUserName(mUserName);
-                mPlan.setPlanUserId(mUser.getUid());
+            public void onComplete(@NonNull Task<String> task) {
+                if (task.isSuccessful() && task.getResult() != null) mUserName = task.getResult();
+            }
+        });
+    }
 
-                // send the plan
-                new SendPlanTask().execute();
+    // listener for the newest page of plans, applies the changes of each snapshot to the plans
+    private EventListener<QuerySnapshot> planListener() {
+        return new EventListener<QuerySnapshot>() {
+            @Override
+            public void onEvent(@Nullable QuerySnapshot snapshot, @Nullable FirebaseFirestoreException e) {
+                if (e != null || snapshot == null) {
+                    Log.d(Const.TAG, "planListener: " + e);
+                    return;
+                }
+                // the first snapshot is the newest page, older pages are loaded by scrolling up
+                if (!mNewestLoaded) {
+                    mNewestLoaded = true;
+                    if (mPaging != null) mPaging.onPageLoaded(snapshot.size());
+                }
+                applyChanges(snapshot);
+                showPlans();
             }
         };
     }
 
-
-    // ASYNC TASKS
-
     /**
-     * GetPlansTask
-     * gets the plans from the DB
+     * showPlans()
+     * displays the plans, scrolling to the bottom when a newer plan was added
      */
-    private class GetPlansTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mUser == null || mTripId == null) return null;
-
-            Log.d(Const.TAG, "doInBackground: plans task " + Thread.currentThread().getId());
-            // get this user's name
-            AccessDB.getUserName(mUser.getUid()).addOnCompleteListener(new OnCompleteListener<String>() {
-                @Override
-                public void onComplete(@NonNull Task<String> task) {
-                    Log.d(Const.TAG, "onComplete: name loaded");
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        Log.d(Const.TAG, "onComplete: " + Thread.currentThread().getId());
-                        mUserName = task.getResult();
-                    }
-                }
-            });
-            // get the list of plans, sort them and add them to the adapter
-            AccessDB.getTripComments(mTripId).addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                @Override
-                public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                    QuerySnapshot result = task.getResult();
-                    if (task.isSuccessful() && result != null && result.getDocuments().size() > 0) {
-                        Log.d(Const.TAG, "onComplete: " + Thread.currentThread().getId());
-                        mDocs = result.getDocuments();
-                        mPlans = new ArrayList<>();
-                        // extract the plans from the list of documents
-                        new SetUpPlansTask().execute();
-                    }
-                }
-            });
-            return null;
-        }
+    private void showPlans() {
+        final String newest = mAdapter.getItemCount() == 0 ? null :
+                mAdapter.getPlan(mAdapter.getItemCount() - 1).getPlanDocId();
+        mAdapter.submitList(mPlans, new Runnable() {
+            @Override
+            public void run() {
+                // follow the conversation when a newer plan arrives
+                int count = mAdapter.getItemCount();
+                if (mRecycle == null || count == 0) return;
+                if (!mAdapter.getPlan(count - 1).getPlanDocId().equals(newest)) mRecycle.scrollToPosition(count - 1);
+            }
+        });
     }
 
     /**
-     * SetUpPlansTask
-     * gets the list of plans from a list of documents
+     * failureListener()
+     * takes a plan that the server rejected off the screen
      */
-    private class SetUpPlansTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mDocs == null || mDocs.size() == 0 || mPlans == null) return null;
-
-            // extract a comment from each document
-            for (DocumentSnapshot doc : mDocs) {
-                Plan plan = new Plan();
-                plan.setPlanUserId((String)doc.get(Const.USER_ID_KEY));
-                plan.setPlanUserName((String)doc.get(Const.USER_NAME_KEY));
-                plan.setMessage((String)doc.get(Const.TRIP_COMMENT_KEY));
-                plan.setPlanDocId(doc.getId());
-                plan.setPlanTimeStamp((long)doc.get(Const.TRIP_TIMESTAMP_KEY));
-                mPlans.add(plan);
+    private PlanOutbox.FailureListener failureListener() {
+        return new PlanOutbox.FailureListener() {
+            @Override
+            public void onPlanFailed(Plan plan) {
+                int index = indexOf(plan.getPlanDocId());
+                if (index < 0 || !mPlans.get(index).isPending()) return;
+                mPlans.remove(index);
+                showPlans();
+                if (getActivity() == null) return;
+                Toast t = Toast.makeText(getActivity(), "Your plan could not be sent.", Toast.LENGTH_SHORT);
+                t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                t.show();
             }
-
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-            // if there are plans, start the async task that will sort them
-            if (mPlans != null && mPlans.size() > 0) new SortPlanTask().execute();
-        }
+        };
     }
 
     /**
-     * SortPlanTask
-     * sorts the plans and adds them to the recycler view
+     * applyChanges()
+     * applies the document changes of a snapshot of the newest page to the plans
+     * when the page is full, the plans that a newer plan pushed out of it are reported as removed,
+     * they are still comments of the trip so they are kept
      */
-    private class SortPlanTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mPlans == null || mPlans.size() == 0) return null;
-            mPlans.sort(new PlanComparator());
-            return null;
+    private void applyChanges(QuerySnapshot snapshot) {
+        // metadata changes are included so that a pending plan is updated once it reaches the server
+        List<DocumentChange> changes = snapshot.getDocumentChanges(MetadataChanges.INCLUDE);
+        // the page is sorted from the newest to the oldest
+        Plan oldest = snapshot.size() < AccessDB.PAGE_SIZE ? null :
+                PlanMapper.INSTANCE.map(snapshot.getDocuments().get(snapshot.size() - 1));
+        for (DocumentChange change : changes) {
+            Plan plan = PlanMapper.INSTANCE.map(change.getDocument());
+            plan.setPending(change.getDocument().getMetadata().hasPendingWrites());
+            int index = indexOf(plan.getPlanDocId());
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                if (index >= 0 && (oldest == null || compare(plan, oldest) >= 0)) mPlans.remove(index);
+            } else if (index >= 0) {
+                mPlans.set(index, plan);
+            } else {
+                insert(plan);
+            }
         }
+    }
+
+    // adds a plan in order, new plans almost always belong at the end so the search starts there
+    private void insert(Plan plan) {
+        int i = mPlans.size();
+        while (i > 0 && compare(mPlans.get(i - 1), plan) > 0) i--;
+        mPlans.add(i, plan);
+    }
 
-        @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-            Log.d(Const.TAG, "onPostExecute: done sorting plans");
-            // add the list of plans to the adapter
-            if (mAdapter == null || mPlans == null || mRecycle == null) return;
-            mAdapter.setData(mPlans);
-            mRecycle.scrollToPosition(mPlans.size() - 1);
+    // returns the position of the plan with the given document id, or -1
+    private int indexOf(String docId) {
+        for (int i = mPlans.size() - 1; i >= 0; i--) {
+            if (mPlans.get(i).getPlanDocId().equals(docId)) return i;
         }
+        return -1;
+    }
+
+    // returns the oldest plan that has reached the server, pending plans are not in the pages
+    private Plan oldestSent() {
+        for (Plan plan : mPlans) if (!plan.isPending()) return plan;
+        return null;
+    }
+
+    // orders plans by timestamp, the document id breaks ties the same way the queries do
+    private static int compare(Plan a, Plan b) {
+        int c = Long.compare(a.getPlanTimeStamp(), b.getPlanTimeStamp());
+        return c != 0 ? c : a.getPlanDocId().compareTo(b.getPlanDocId());
     }
 
     /**
-     * SendPlanTask
-     * adds the plan to the db
+     * loadOlderPlans()
+     * loads the page of plans before the oldest one that is displayed and adds it to the top of
+     * the recycler view
      */
-    private class SendPlanTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mTripId == null || mMessage == null || mUser == null || mUserName == null) return null;
-
-            // add the plan to the db
-            AccessDB.addTripComment(mTripId, mMessage, mUserName, mUser.getUid(), new Date().getTime())
-                    .addOnCompleteListener(new OnCompleteListener<DocumentReference>() {
-                        @Override
-                        public void onComplete(@NonNull Task<DocumentReference> task) {
-                            Log.d(Const.TAG, "onComplete: done adding plan to db");
-                            if (task.isSuccessful()) {
-                                Log.d(Const.TAG, "onComplete: " + Thread.currentThread().getId());
-                                if (mPlan == null || mAdapter == null || mRecycle == null) return;
-
-                                // display this plan
-                                mPlans.add(mPlan);
-                                mAdapter.setData(mPlans);
-                                mRecycle.scrollToPosition(mPlans.size() - 1);
-
-                                // hide the keyboard
-                                if (getActivity() == null) return;
-                                InputMethodManager imm = (InputMethodManager) getActivity()
-                                        .getSystemService(Activity.INPUT_METHOD_SERVICE);
-                                if (imm != null) imm.hideSoftInputFromWindow(mMessageEdit.getWindowToken(),
-                                        InputMethodManager.HIDE_NOT_ALWAYS);
-                            }
-                        }
-                    });
-            return null;
+    private void loadOlderPlans() {
+        // wait for the newest page, otherwise the page that is loaded here would be that page
+        Plan oldest = oldestSent();
+        if (mTripId == null || !mNewestLoaded || oldest == null) {
+            mPaging.onPageFailed();
+            return;
         }
+        TaskPipeline.start(getViewLifecycleOwner(), AccessDB.loadTripPlansPage(mTripId, oldest))
+                .deliver(getViewLifecycleOwner(), new TaskPipeline.Callback<ArrayList<Plan>>() {
+                    @Override
+                    public void onSuccess(ArrayList<Plan> plans) {
+                        // skip the plans that the listener added while the page was loading
+                        for (Plan plan : plans) if (indexOf(plan.getPlanDocId()) < 0) insert(plan);
+                        mAdapter.submitList(mPlans, null);
+                        mPaging.onPageLoaded(plans.size());
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(Const.TAG, "loadOlderPlans: " + e);
+                        mPaging.onPageFailed();
+                    }
+                });
+    }
+
+    // on click listener for the send button
+    private View.OnClickListener sendListener() {
+        return new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                // get this user
+                mUser = FirebaseAuth.getInstance().getCurrentUser();
+                // get the message
+                String message = mMessageEdit.getText().toString();
+
+                // if they have not typed anything, do nothing
+                if (mTripId == null || mOutbox == null || mUser == null || mUserName == null || message
+                        .replaceAll("\\s","").equals("")) return;
+                mMessageEdit.setText("");
+
+                // display the plan right away, it is sent from the outbox and shown as pending
+                // until it reaches the server
+                insert(mOutbox.send(message, mUserName, mUser.getUid()));
+                showPlans();
+
+                // hide the keyboard
+                if (getActivity() == null) return;
+                InputMethodManager imm = (InputMethodManager) getActivity()
+                        .getSystemService(Activity.INPUT_METHOD_SERVICE);
+                if (imm != null) imm.hideSoftInputFromWindow(mMessageEdit.getWindowToken(),
+                        InputMethodManager.HIDE_NOT_ALWAYS);
+            }
+        };
     }
 }
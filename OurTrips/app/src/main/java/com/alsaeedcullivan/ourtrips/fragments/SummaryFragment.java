@@ -1,8 +1,8 @@
 package com.alsaeedcullivan.ourtrips.fragments;
 
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -14,6 +14,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -23,22 +24,18 @@ import com.alsaeedcullivan.ourtrips.MatchOrAddActivity;
 import com.alsaeedcullivan.ourtrips.R;
 import com.alsaeedcullivan.ourtrips.TripActivity;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
-import com.alsaeedcullivan.ourtrips.comparators.PlaceComparator;
+import com.alsaeedcullivan.ourtrips.glide.GlideApp;
 import com.alsaeedcullivan.ourtrips.models.Place;
+import com.alsaeedcullivan.ourtrips.models.Plan;
+import com.alsaeedcullivan.ourtrips.models.TripAggregate;
 import com.alsaeedcullivan.ourtrips.utils.Const;
-import com.google.android.gms.maps.model.LatLng;
-import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.Task;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.QuerySnapshot;
+import com.alsaeedcullivan.ourtrips.utils.TaskPipeline;
+import com.google.firebase.storage.FirebaseStorage;
 
 import java.util.ArrayList;
-import java.util.List;
 
 public class SummaryFragment extends Fragment {
 
-    private List<DocumentSnapshot> mDocs = new ArrayList<>();
-    private List<Place> mPlaces;
     private String mTripId;
 
     public SummaryFragment() {
@@ -87,6 +84,18 @@ public class SummaryFragment extends Fragment {
         String over = "Overview: " + ((TripActivity)getActivity()).getOverview();
         overView.setText(over);
 
+        // show the aggregates of the trip, which were read with the trip document
+        TripAggregate aggregate = ((TripActivity)getActivity()).getAggregate();
+        TextView highlights = view.findViewById(R.id.sum_highlights);
+        highlights.setText(highlights(aggregate));
+        if (!aggregate.getCoverPhoto().equals("")) {
+            ImageView cover = view.findViewById(R.id.sum_cover);
+            cover.setVisibility(View.VISIBLE);
+            GlideApp.with(this)
+                    .load(FirebaseStorage.getInstance().getReference(aggregate.getCoverPhoto()))
+                    .into(cover);
+        }
+
         // set up the buttons
         Button edit = view.findViewById(R.id.sum_edit_button);
         edit.setOnClickListener(editListener());
@@ -98,6 +107,25 @@ public class SummaryFragment extends Fragment {
         deleteTrip.setOnClickListener(deleteListener());
     }
 
+    /**
+     * highlights()
+     * @return the trippers, the number of photos and places and the latest plan of the trip
+     */
+    private static String highlights(TripAggregate aggregate) {
+        StringBuilder builder = new StringBuilder();
+        if (aggregate.getTripperNames().size() > 0) {
+            builder.append("Trippers: ").append(TextUtils.join(", ", aggregate.getTripperNames())).append('\n');
+        }
+        builder.append("Photos: ").append(aggregate.getPhotoCount())
+                .append("    Places: ").append(aggregate.getLocationCount());
+        Plan latest = aggregate.getLatestPlan();
+        if (latest != null) {
+            builder.append("\nLatest plan: ").append(latest.getPlanUserName()).append(": ")
+                    .append(latest.getMessage());
+        }
+        return builder.toString();
+    }
+
     /**
      * loadLocations()
      * loads the list of locations for this trip and sends the user to maps activity where they can
@@ -107,8 +135,28 @@ public class SummaryFragment extends Fragment {
         if (getActivity() == null) return;
         // get the trip id
         mTripId = ((TripActivity)getActivity()).getTripId();
-        // load the locations
-        new LocationDocsTask().execute();
+        if (mTripId == null) return;
+        // load the locations, they arrive in order and are mapped on the background pool
+        TaskPipeline.start(getViewLifecycleOwner(), AccessDB.loadTripPlaces(mTripId))
+                .deliver(getViewLifecycleOwner(), new TaskPipeline.Callback<ArrayList<Place>>() {
+                    @Override
+                    public void onSuccess(ArrayList<Place> places) {
+                        // send the user to maps activity
+                        Intent intent = new Intent(getActivity(), MapsActivity.class);
+                        intent.putExtra(Const.PLACE_LIST_TAG, places);
+                        intent.putExtra(Const.TRIP_ID_TAG, mTripId);
+                        startActivity(intent);
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        // tell the user that the locations could not be loaded
+                        Toast t = Toast.makeText(getActivity(), "The locations of this trip " +
+                                "could not be loaded.", Toast.LENGTH_SHORT);
+                        t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
+                        t.show();
+                    }
+                });
     }
 
     // LISTENERS
@@ -172,92 +220,4 @@ public class SummaryFragment extends Fragment {
             }
         };
     }
-
-
-    // ASYNC TASKS
-
-    /**
-     * LocationDocsTask
-     * gets a list of the documents corresponding to all the locations of this trip
-     */
-    private class LocationDocsTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mTripId == null) return null;
-
-            // get the list of places from the database
-            AccessDB.getTripLocations(mTripId).addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                @Override
-                public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                    QuerySnapshot result = task.getResult();
-                    if (task.isSuccessful()) {
-                        Log.d(Const.TAG, "onComplete: " + Thread.currentThread().getId());
-                        // get the documents and start the async task that will bring the user to
-                        // maps activity
-                        if (result != null) mDocs = result.getDocuments();
-                        mPlaces = new ArrayList<>();
-                        new ProcessLocationsTask().execute();
-                    } else {
-                        // tell the user that the locations could not be loaded
-                        Toast t = Toast.makeText(getActivity(), "The locations of this trip " +
-                                "could not be loaded.", Toast.LENGTH_SHORT);
-                        t.setGravity(Gravity.TOP | Gravity.CENTER_HORIZONTAL, 0, 0);
-                        t.show();
-                    }
-                }
-            });
-
-            return null;
-        }
-    }
-
-    /**
-     * ProcessLocationTask
-     * gets a list of the locations of the trip and sends the user to Maps activity
-     */
-    private class ProcessLocationsTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mDocs == null || mDocs.size() == 0 || mPlaces == null) return null;
-
-            Log.d(Const.TAG, "doInBackground: loc " + Thread.currentThread().getId());
-
-            // extract a place from each document and return the list of places
-            for (DocumentSnapshot doc : mDocs) {
-                Place place = new Place();
-                place.setDocId(doc.getId());
-                place.setName((String)doc.get(Const.TRIP_LOCATION_NAME_KEY));
-                String location = (String) doc.get(Const.TRIP_LOCATION_KEY);
-                if (location == null) continue;
-                String[] coordinates = location.split(",");
-                if (coordinates.length < 2) continue;
-                place.setLocation(new LatLng(Double.parseDouble(coordinates[0]),
-                        Double.parseDouble(coordinates[1])));
-                place.setTimeStamp((long)doc.get(Const.TRIP_TIMESTAMP_KEY));
-                mPlaces.add(place);
-            }
-
-            // sort the places in the order they were added to the map
-            if (mPlaces.size() > 0) mPlaces.sort(new PlaceComparator());
-
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-
-            if (mPlaces == null) mPlaces = new ArrayList<>();
-            if (mTripId == null) {
-                if (getActivity() != null) mTripId = ((TripActivity)getActivity()).getTripId();
-                else mTripId = "";
-            }
-            Intent intent = new Intent(getActivity(), MapsActivity.class);
-            intent.putExtra(Const.PLACE_LIST_TAG, (ArrayList<Place>) mPlaces);
-            intent.putExtra(Const.TRIP_ID_TAG, mTripId);
-            startActivity(intent);
-        }
-    }
 }
@@ -1,7 +1,6 @@
 package com.alsaeedcullivan.ourtrips.fragments;
 
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
 
 import androidx.annotation.NonNull;
@@ -22,13 +21,9 @@ import com.alsaeedcullivan.ourtrips.adapters.TripperAdapter;
 import com.alsaeedcullivan.ourtrips.cloud.AccessDB;
 import com.alsaeedcullivan.ourtrips.models.UserSummary;
 import com.alsaeedcullivan.ourtrips.utils.Const;
-import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.Task;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.QuerySnapshot;
+import com.alsaeedcullivan.ourtrips.utils.TaskPipeline;
 
 import java.util.ArrayList;
-import java.util.List;
 
 
 public class TrippersFragment extends Fragment {
@@ -36,7 +31,6 @@ public class TrippersFragment extends Fragment {
     private String mTripId;
     private ArrayList<UserSummary> mTrippers;
     private TripperAdapter mAdapter;
-    private List<DocumentSnapshot> mTripperDocs;
 
     public TrippersFragment() {
         // Required empty public constructor
@@ -103,77 +97,23 @@ public class TrippersFragment extends Fragment {
         // get the trip id
         mTripId = activity.getTripId();
         if (mTripId == null || mAdapter == null) return;
-        // get the trippers documents
-        new GetTrippersTask().execute();
-    }
-
-
-    // ASYNC TASKS
-
-    /**
-     * GetTrippersTask
-     * gets the documents corresponding to each tripper on the trip
-     */
-    private class GetTrippersTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mTripId == null) return null;
-
-            // get the list of documents corresponding to trippers
-            AccessDB.getTrippers(mTripId).addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                @Override
-                public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                    Log.d(Const.TAG, "onComplete: " + Thread.currentThread().getId());
-                    QuerySnapshot result = task.getResult();
-                    if (task.isSuccessful() && result != null && result.getDocuments().size() > 0) {
-                        // get the list of documents and start the async task that will process them
-                        mTripperDocs = result.getDocuments();
-                        mTrippers = new ArrayList<>();
-                        new ExtractTrippersTask().execute();
+        // load the trippers, they are mapped on the background pool
+        TaskPipeline.start(getViewLifecycleOwner(), AccessDB.loadTrippers(mTripId))
+                .deliver(getViewLifecycleOwner(), new TaskPipeline.Callback<ArrayList<UserSummary>>() {
+                    @Override
+                    public void onSuccess(ArrayList<UserSummary> trippers) {
+                        if (trippers.size() == 0) return;
+                        // update the list view
+                        mTrippers = trippers;
+                        mAdapter.clear();
+                        mAdapter.addAll(mTrippers);
+                        mAdapter.notifyDataSetChanged();
                     }
-                }
-            });
-
-            return null;
-        }
-    }
-
-    /**
-     * ExtractTrippersTask
-     * extracts a tripper from each document and then updates the list view
-     */
-    private class ExtractTrippersTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            if (mTripperDocs == null || mTripperDocs.size() == 0 || mTrippers == null) return null;
-
-            // extract a user summary from each document
-            for (DocumentSnapshot doc : mTripperDocs) {
-                UserSummary tripper = new UserSummary();
-                tripper.setUserId(doc.getId());
-                String email = (String)doc.get(Const.USER_EMAIL_KEY);
-                if (email != null) tripper.setEmail(email);
-                String name = (String)doc.get(Const.USER_NAME_KEY);
-                if (name != null) tripper.setName(name);
-                mTrippers.add(tripper);
-            }
-
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
 
-            // update the list view
-            if (mTrippers != null && mTrippers.size() > 0) {
-                mAdapter.clear();
-                mAdapter.addAll(mTrippers);
-                mAdapter.notifyDataSetChanged();
-            }
-
-        }
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(Const.TAG, "onFailure: trippers " + e);
+                    }
+                });
     }
 }
@@ -0,0 +1,69 @@
+package com.alsaeedcullivan.ourtrips.mappers;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base class of the mappers that convert FireStore documents to models
+ * The fields of a document are read in a single pass with getData(), and then looked up in the
+ * resulting map by the mapper of each model. Missing or mistyped fields fall back to a default
+ * instead of throwing, and numbers of any type are accepted for a long field.
+ * Mappers are stateless, each one has a single shared INSTANCE that can be used from any thread.
+ */
+public abstract class DocumentMapper<T> {
+
+    /**
+     * map()
+     * @param id the id of the document
+     * @param data the fields of the document
+     * @return the model, or null if the document cannot be mapped and should be skipped
+     */
+    public abstract T map(String id, Map<String, Object> data);
+
+    /**
+     * map()
+     * @param doc the document
+     * @return the model, or null if the document does not exist or cannot be mapped
+     */
+    public T map(DocumentSnapshot doc) {
+        if (doc == null) return null;
+        Map<String, Object> data = doc.getData();
+        if (data == null) return null;
+        return map(doc.getId(), data);
+    }
+
+    /**
+     * mapAll()
+     * @param docs the documents
+     * @return the models of the documents that could be mapped, in the same order
+     */
+    public ArrayList<T> mapAll(List<DocumentSnapshot> docs) {
+        ArrayList<T> models = new ArrayList<>(docs.size());
+        for (DocumentSnapshot doc : docs) {
+            T model = map(doc);
+            if (model != null) models.add(model);
+        }
+        return models;
+    }
+
+    /**
+     * getString()
+     * @return the string under the key, or the fallback if it is missing or not a string
+     */
+    protected static String getString(Map<String, Object> data, String key, String fallback) {
+        Object value = data.get(key);
+        return value instanceof String ? (String) value : fallback;
+    }
+
+    /**
+     * getLong()
+     * @return the number under the key, or the fallback if it is missing or not a number
+     */
+    protected static long getLong(Map<String, Object> data, String key, long fallback) {
+        Object value = data.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : fallback;
+    }
+}
@@ -0,0 +1,28 @@
+package com.alsaeedcullivan.ourtrips.mappers;
+
+import com.alsaeedcullivan.ourtrips.models.Pic;
+import com.alsaeedcullivan.ourtrips.utils.Const;
+
+import java.util.Map;
+
+/**
+ * Maps the documents of a trip's photo paths sub-collection to pics, documents without a path
+ * are skipped
+ */
+public class PicMapper extends DocumentMapper<Pic> {
+
+    public static final PicMapper INSTANCE = new PicMapper();
+
+    private PicMapper() { }
+
+    @Override
+    public Pic map(String id, Map<String, Object> data) {
+        String path = getString(data, Const.TRIP_PHOTO_KEY, null);
+        if (path == null) return null;
+        Pic pic = new Pic();
+        pic.setDocId(id);
+        pic.setPath(path);
+        pic.setDate(getLong(data, Const.TRIP_TIMESTAMP_KEY, 0));
+        return pic;
+    }
+}
@@ -0,0 +1,66 @@
+package com.alsaeedcullivan.ourtrips.mappers;
+
+import com.alsaeedcullivan.ourtrips.models.Place;
+import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.firebase.firestore.GeoPoint;
+
+import java.util.Map;
+
+/**
+ * Maps the documents of a trip's locations sub-collection, or of a user's places index, to places
+ * The location is stored as a GeoPoint, documents that have not been migrated yet still store it
+ * as a "latitude,longitude" string. Documents without a valid location are skipped.
+ */
+public class PlaceMapper extends DocumentMapper<Place> {
+
+    public static final PlaceMapper INSTANCE = new PlaceMapper();
+
+    private PlaceMapper() { }
+
+    @Override
+    public Place map(String id, Map<String, Object> data) {
+        LatLng location = readLocation(data.get(Const.TRIP_LOCATION_KEY));
+        if (location == null) return null;
+        Place place = new Place();
+        place.setDocId(id);
+        place.setName(getString(data, Const.TRIP_LOCATION_NAME_KEY, ""));
+        place.setLocation(location);
+        place.setTimeStamp(getLong(data, Const.TRIP_TIMESTAMP_KEY, 0));
+        place.setTripId(getString(data, Const.TRIP_ID_KEY, ""));
+        place.setTripTitle(getString(data, Const.PLACE_TRIP_TITLE_KEY, ""));
+        return place;
+    }
+
+    /**
+     * readLocation()
+     * @param value the location field of a document
+     * @return the location, or null if the field is not a valid location
+     */
+    public static LatLng readLocation(Object value) {
+        if (value instanceof GeoPoint) {
+            GeoPoint point = (GeoPoint) value;
+            return new LatLng(point.getLatitude(), point.getLongitude());
+        }
+        // the legacy format, kept until every document has been migrated
+        if (value instanceof String) return parseLocation((String) value);
+        return null;
+    }
+
+    /**
+     * parseLocation()
+     * @param location a string in the form "latitude,longitude"
+     * @return the location, or null if the string is not a valid location
+     */
+    public static LatLng parseLocation(String location) {
+        if (location == null) return null;
+        int comma = location.indexOf(',');
+        if (comma < 0) return null;
+        try {
+            return new LatLng(Double.parseDouble(location.substring(0, comma)),
+                    Double.parseDouble(location.substring(comma + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.alsaeedcullivan.ourtrips.mappers;
+
+import com.alsaeedcullivan.ourtrips.models.Plan;
+import com.alsaeedcullivan.ourtrips.utils.Const;
+
+import java.util.Map;
+
+/**
+ * Maps the documents of a trip's comments sub-collection to plans
+ */
+public class PlanMapper extends DocumentMapper<Plan> {
+
+    public static final PlanMapper INSTANCE = new PlanMapper();
+
+    private PlanMapper() { }
+
+    @Override
+    public Plan map(String id, Map<String, Object> data) {
+        Plan plan = new Plan();
+        plan.setPlanDocId(id);
+        plan.setPlanUserId(getString(data, Const.USER_ID_KEY, ""));
+        plan.setPlanUserName(getString(data, Const.USER_NAME_KEY, ""));
+        plan.setMessage(getString(data, Const.TRIP_COMMENT_KEY, ""));
+        plan.setPlanTimeStamp(getLong(data, Const.TRIP_TIMESTAMP_KEY, 0));
+        return plan;
+    }
+}
@@ -0,0 +1,48 @@
+package com.alsaeedcullivan.ourtrips.mappers;
+
+import com.alsaeedcullivan.ourtrips.models.Plan;
+import com.alsaeedcullivan.ourtrips.models.TripAggregate;
+import com.alsaeedcullivan.ourtrips.utils.Const;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the aggregate fields of a trip document, trips that have not been aggregated yet map to
+ * an empty aggregate
+ */
+public class TripAggregateMapper extends DocumentMapper<TripAggregate> {
+
+    public static final TripAggregateMapper INSTANCE = new TripAggregateMapper();
+
+    private TripAggregateMapper() { }
+
+    @Override
+    public TripAggregate map(String id, Map<String, Object> data) {
+        TripAggregate aggregate = new TripAggregate();
+        aggregate.setPhotoCount(getLong(data, Const.TRIP_PHOTO_COUNT_KEY, 0));
+        aggregate.setCoverPhoto(getString(data, Const.TRIP_COVER_PHOTO_KEY, ""));
+        aggregate.setLocationCount(getLong(data, Const.TRIP_LOCATION_COUNT_KEY, 0));
+
+        // the latest comment is a map with the fields of a comment
+        Object latest = data.get(Const.TRIP_LATEST_COMMENT_KEY);
+        if (latest instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> comment = (Map<String, Object>) latest;
+            Plan plan = new Plan();
+            plan.setMessage(getString(comment, Const.TRIP_COMMENT_KEY, ""));
+            plan.setPlanUserName(getString(comment, Const.USER_NAME_KEY, ""));
+            plan.setPlanTimeStamp(getLong(comment, Const.TRIP_TIMESTAMP_KEY, 0));
+            aggregate.setLatestPlan(plan);
+        }
+
+        List<String> names = new ArrayList<>();
+        Object list = data.get(Const.TRIP_TRIPPER_NAMES_KEY);
+        if (list instanceof List) {
+            for (Object name : (List<?>) list) if (name instanceof String) names.add((String) name);
+        }
+        aggregate.setTripperNames(names);
+        return aggregate;
+    }
+}
@@ -0,0 +1,25 @@
+package com.alsaeedcullivan.ourtrips.mappers;
+
+import com.alsaeedcullivan.ourtrips.models.TripSummary;
+import com.alsaeedcullivan.ourtrips.utils.Const;
+
+import java.util.Map;
+
+/**
+ * Maps the documents of a user's trips sub-collection to trip summaries
+ */
+public class TripSummaryMapper extends DocumentMapper<TripSummary> {
+
+    public static final TripSummaryMapper INSTANCE = new TripSummaryMapper();
+
+    private TripSummaryMapper() { }
+
+    @Override
+    public TripSummary map(String id, Map<String, Object> data) {
+        TripSummary trip = new TripSummary();
+        trip.setId(id);
+        trip.setTitle(getString(data, Const.TRIP_TITLE_KEY, ""));
+        trip.setDate(getString(data, Const.TRIP_START_DATE_KEY, ""));
+        return trip;
+    }
+}
@@ -0,0 +1,26 @@
+package com.alsaeedcullivan.ourtrips.mappers;
+
+import com.alsaeedcullivan.ourtrips.models.UserSummary;
+import com.alsaeedcullivan.ourtrips.utils.Const;
+
+import java.util.Map;
+
+/**
+ * Maps the documents of friends, friend requests and trippers to user summaries, all of them
+ * are keyed by the id of the user and contain the user's name and email
+ */
+public class UserSummaryMapper extends DocumentMapper<UserSummary> {
+
+    public static final UserSummaryMapper INSTANCE = new UserSummaryMapper();
+
+    private UserSummaryMapper() { }
+
+    @Override
+    public UserSummary map(String id, Map<String, Object> data) {
+        UserSummary user = new UserSummary();
+        user.setUserId(id);
+        user.setEmail(getString(data, Const.USER_EMAIL_KEY, ""));
+        user.setName(getString(data, Const.USER_NAME_KEY, ""));
+        return user;
+    }
+}
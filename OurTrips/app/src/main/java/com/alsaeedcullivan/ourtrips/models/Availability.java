@@ -0,0 +1,255 @@
+package com.alsaeedcullivan.ourtrips.models;
+
+import java.util.Arrays;
+
+/**
+ * Model to contain the days that a user is available
+ * The days are stored as a packed bitset of epoch days (days since 01/01/1970).
+ * Bit i of word w represents the day base + (64 * w) + i, where base is always a multiple of 64
+ * so that two availabilities can be intersected word by word.
+ */
+public class Availability {
+
+    private static final int WORD_BITS = 64;
+
+    private int base;
+    private long[] words;
+
+    public Availability() {
+        base = 0;
+        words = new long[0];
+    }
+
+    /**
+     * @param base the epoch day of the first bit, must be a multiple of 64
+     * @param words the packed bits
+     */
+    public Availability(int base, long[] words) {
+        if (Math.floorMod(base, WORD_BITS) != 0) {
+            throw new IllegalArgumentException("base must be a multiple of " + WORD_BITS);
+        }
+        this.base = base;
+        this.words = words == null ? new long[0] : words;
+    }
+
+    /**
+     * fromEpochDays()
+     * creates an availability containing each of the given days
+     * @param days the epoch days, in any order
+     */
+    public static Availability fromEpochDays(int[] days) {
+        if (days == null || days.length == 0) return new Availability();
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int day : days) {
+            if (day < min) min = day;
+            if (day > max) max = day;
+        }
+        int base = alignDown(min);
+        long[] words = new long[(max - base) / WORD_BITS + 1];
+        for (int day : days) {
+            int offset = day - base;
+            words[offset / WORD_BITS] |= 1L << (offset % WORD_BITS);
+        }
+        return new Availability(base, words);
+    }
+
+    // getters
+
+    public int getBase() {
+        return base;
+    }
+
+    public long[] getWords() {
+        return words;
+    }
+
+    /**
+     * contains()
+     * @param day the epoch day
+     * @return whether the user is available on the given day
+     */
+    public boolean contains(int day) {
+        int offset = day - base;
+        if (offset < 0 || offset >= words.length * WORD_BITS) return false;
+        return (words[offset / WORD_BITS] & (1L << (offset % WORD_BITS))) != 0;
+    }
+
+    /**
+     * add()
+     * marks the user as available on the given day, growing the bitset if needed
+     * @param day the epoch day
+     */
+    public void add(int day) {
+        ensureCapacity(day);
+        int offset = day - base;
+        words[offset / WORD_BITS] |= 1L << (offset % WORD_BITS);
+    }
+
+    /**
+     * remove()
+     * marks the user as unavailable on the given day
+     * @param day the epoch day
+     */
+    public void remove(int day) {
+        int offset = day - base;
+        if (offset < 0 || offset >= words.length * WORD_BITS) return;
+        words[offset / WORD_BITS] &= ~(1L << (offset % WORD_BITS));
+    }
+
+    /**
+     * size()
+     * @return the number of days the user is available
+     */
+    public int size() {
+        int count = 0;
+        for (long word : words) count += Long.bitCount(word);
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) if (word != 0) return false;
+        return true;
+    }
+
+    /**
+     * and()
+     * intersects this availability with another one word by word
+     * @param other the other availability
+     * @return a new availability containing the days that are in both
+     */
+    public Availability and(Availability other) {
+        int start = Math.max(base, other.base);
+        int end = Math.min(base + words.length * WORD_BITS, other.base + other.words.length * WORD_BITS);
+        if (end <= start) return new Availability();
+        long[] result = new long[(end - start) / WORD_BITS];
+        int a = (start - base) / WORD_BITS;
+        int b = (start - other.base) / WORD_BITS;
+        for (int i = 0; i < result.length; i++) result[i] = words[a + i] & other.words[b + i];
+        return new Availability(start, result);
+    }
+
+    /**
+     * andNot()
+     * @param other the other availability
+     * @return a new availability containing the days that are in this one but not in the other
+     */
+    public Availability andNot(Availability other) {
+        long[] result = Arrays.copyOf(words, words.length);
+        int start = Math.max(base, other.base);
+        int end = Math.min(base + words.length * WORD_BITS, other.base + other.words.length * WORD_BITS);
+        int a = (start - base) / WORD_BITS;
+        int b = (start - other.base) / WORD_BITS;
+        for (int i = 0; i < (end - start) / WORD_BITS; i++) result[a + i] &= ~other.words[b + i];
+        return new Availability(base, result);
+    }
+
+    /**
+     * addAll()
+     * adds every day of another availability to this one, growing the bitset if needed
+     * @param other the other availability
+     */
+    public void addAll(Availability other) {
+        if (other.isEmpty()) return;
+        ensureCapacity(other.base);
+        ensureCapacity(other.base + other.words.length * WORD_BITS - 1);
+        int a = (other.base - base) / WORD_BITS;
+        for (int i = 0; i < other.words.length; i++) words[a + i] |= other.words[i];
+    }
+
+    /**
+     * removeAll()
+     * removes every day of another availability from this one
+     * @param other the other availability
+     */
+    public void removeAll(Availability other) {
+        int start = Math.max(base, other.base);
+        int end = Math.min(base + words.length * WORD_BITS, other.base + other.words.length * WORD_BITS);
+        int a = (start - base) / WORD_BITS;
+        int b = (start - other.base) / WORD_BITS;
+        for (int i = 0; i < (end - start) / WORD_BITS; i++) words[a + i] &= ~other.words[b + i];
+    }
+
+    /**
+     * intersectionSize()
+     * counts the days in both availabilities word by word without allocating a new bitset
+     * @param other the other availability
+     * @return the number of days that are in both
+     */
+    public int intersectionSize(Availability other) {
+        int start = Math.max(base, other.base);
+        int end = Math.min(base + words.length * WORD_BITS, other.base + other.words.length * WORD_BITS);
+        int count = 0;
+        int a = (start - base) / WORD_BITS;
+        int b = (start - other.base) / WORD_BITS;
+        for (int i = 0; i < (end - start) / WORD_BITS; i++) count += Long.bitCount(words[a + i] & other.words[b + i]);
+        return count;
+    }
+
+    /**
+     * from()
+     * @param day the first epoch day to keep
+     * @return a new availability without any of the days before the given day
+     */
+    public Availability from(int day) {
+        int start = Math.max(base, alignDown(day));
+        int end = base + words.length * WORD_BITS;
+        if (end <= start) return new Availability();
+        long[] result = Arrays.copyOfRange(words, (start - base) / WORD_BITS, words.length);
+        // clear the bits of the first word that are before the given day
+        int drop = day - start;
+        if (drop > 0) result[0] &= -1L << drop;
+        return new Availability(start, result);
+    }
+
+    /**
+     * compact()
+     * @return a new availability without the empty words at the start and end of the bitset
+     */
+    public Availability compact() {
+        int start = 0;
+        int end = words.length;
+        while (start < end && words[start] == 0) start++;
+        while (end > start && words[end - 1] == 0) end--;
+        if (start == end) return new Availability();
+        return new Availability(base + start * WORD_BITS, Arrays.copyOfRange(words, start, end));
+    }
+
+    /**
+     * toEpochDays()
+     * @return the days the user is available, in ascending order
+     */
+    public int[] toEpochDays() {
+        int[] days = new int[size()];
+        int i = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                days[i++] = base + w * WORD_BITS + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return days;
+    }
+
+    // grows the bitset so that it covers the given day
+    private void ensureCapacity(int day) {
+        if (words.length == 0) {
+            base = alignDown(day);
+            words = new long[1];
+            return;
+        }
+        int newBase = Math.min(base, alignDown(day));
+        int end = Math.max(base + words.length * WORD_BITS, alignDown(day) + WORD_BITS);
+        if (newBase == base && end == base + words.length * WORD_BITS) return;
+        long[] grown = new long[(end - newBase) / WORD_BITS];
+        System.arraycopy(words, 0, grown, (base - newBase) / WORD_BITS, words.length);
+        base = newBase;
+        words = grown;
+    }
+
+    // rounds a day down to the start of its word
+    private static int alignDown(int day) {
+        return day - Math.floorMod(day, WORD_BITS);
+    }
+}
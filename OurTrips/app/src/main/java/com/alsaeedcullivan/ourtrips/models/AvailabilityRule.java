@@ -0,0 +1,113 @@
+package com.alsaeedcullivan.ourtrips.models;
+
+/**
+ * Model to contain a recurring pattern of days that a user is, or is not, available
+ * A rule covers the days between start and end (inclusive) that fall on one of its weekdays.
+ * Bit 0 of the weekdays mask is Monday and bit 6 is Sunday, so "every weekend" is a rule with an
+ * open start and end and bits 5 and 6 set, and a date range is a rule with every bit set.
+ * Exclusion rules take days away from the include rules of the same schedule.
+ */
+public class AvailabilityRule {
+
+    public static final int EVERY_DAY = 0x7F;
+    // the start and end of a rule that has no first or last day
+    public static final int OPEN_START = Integer.MIN_VALUE;
+    public static final int OPEN_END = Integer.MAX_VALUE;
+
+    private int weekdays;
+    private int start;
+    private int end;
+    private boolean exclude;
+
+    /**
+     * @param weekdays the mask of the weekdays the rule covers
+     * @param start the first epoch day the rule covers, or OPEN_START
+     * @param end the last epoch day the rule covers, or OPEN_END
+     * @param exclude whether the rule takes days away instead of adding them
+     */
+    public AvailabilityRule(int weekdays, int start, int end, boolean exclude) {
+        this.weekdays = weekdays & EVERY_DAY;
+        this.start = start;
+        this.end = end;
+        this.exclude = exclude;
+    }
+
+    /**
+     * weekly()
+     * @param weekdays the mask of the weekdays the user is available
+     * @param start the first epoch day the rule covers
+     * @return a rule that covers the weekdays from the start onwards
+     */
+    public static AvailabilityRule weekly(int weekdays, int start) {
+        return new AvailabilityRule(weekdays, start, OPEN_END, false);
+    }
+
+    /**
+     * exclusion()
+     * @return a rule that takes every day between start and end (inclusive) away
+     */
+    public static AvailabilityRule exclusion(int start, int end) {
+        return new AvailabilityRule(EVERY_DAY, start, end, true);
+    }
+
+    /**
+     * weekday()
+     * @param day the epoch day
+     * @return the day of the week of the given day, 0 is Monday and 6 is Sunday
+     */
+    public static int weekday(int day) {
+        // 01/01/1970 was a Thursday
+        return Math.floorMod(day + 3, 7);
+    }
+
+    // getters
+
+    public int getWeekdays() {
+        return weekdays;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public boolean isExclude() {
+        return exclude;
+    }
+
+    /**
+     * matches()
+     * @param day the epoch day
+     * @return whether the rule covers the given day
+     */
+    public boolean matches(int day) {
+        return day >= start && day <= end && (weekdays & (1 << weekday(day))) != 0;
+    }
+
+    /**
+     * expandInto()
+     * sets or clears the bits of the days the rule covers within a window, without looking at any
+     * day outside of the window
+     * @param words the bitset of the window
+     * @param base the epoch day of the first bit of the bitset
+     * @param from the first epoch day of the window
+     * @param to the epoch day after the last day of the window
+     */
+    public void expandInto(long[] words, int base, int from, int to) {
+        int first = Math.max(from, start);
+        int last = end == OPEN_END ? to - 1 : Math.min(to - 1, end);
+        if (weekdays == 0 || first > last) return;
+        int weekday = weekday(first);
+        for (int day = first; day <= last; day++) {
+            if ((weekdays & (1 << weekday)) != 0) {
+                int offset = day - base;
+                if (exclude) words[offset / 64] &= ~(1L << (offset % 64));
+                else words[offset / 64] |= 1L << (offset % 64);
+            }
+            if (++weekday == 7) weekday = 0;
+        }
+    }
+}
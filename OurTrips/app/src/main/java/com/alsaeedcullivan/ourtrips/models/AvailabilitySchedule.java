@@ -0,0 +1,154 @@
+package com.alsaeedcullivan.ourtrips.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model to contain everything that decides when a user is available
+ * A user is available on the days they picked one by one, and on the days covered by their include
+ * rules that are not covered by one of their exclusion rules. The rules are never expanded for more
+ * than the window that is being matched or displayed.
+ */
+public class AvailabilitySchedule {
+
+    private Availability days;
+    private List<AvailabilityRule> rules;
+
+    public AvailabilitySchedule() {
+        this(new Availability(), new ArrayList<AvailabilityRule>());
+    }
+
+    /**
+     * @param days the days the user picked one by one
+     * @param rules the recurring rules of the user
+     */
+    public AvailabilitySchedule(Availability days, List<AvailabilityRule> rules) {
+        this.days = days == null ? new Availability() : days;
+        this.rules = rules == null ? new ArrayList<AvailabilityRule>() : rules;
+    }
+
+    // getters
+
+    public Availability getDays() {
+        return days;
+    }
+
+    public List<AvailabilityRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * contains()
+     * @param day the epoch day
+     * @return whether the user is available on the given day
+     */
+    public boolean contains(int day) {
+        return days.contains(day) || isCovered(day);
+    }
+
+    /**
+     * isCovered()
+     * @param day the epoch day
+     * @return whether the rules make the user available on the given day
+     */
+    public boolean isCovered(int day) {
+        boolean covered = false;
+        for (AvailabilityRule rule : rules) {
+            if (rule.matches(day)) {
+                if (rule.isExclude()) return false;
+                covered = true;
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * covered()
+     * expands the rules over a window of days
+     * @param from the epoch day of the first day of the window
+     * @param length the number of days in the window
+     * @return the days of the window that the rules make the user available
+     */
+    public Availability covered(int from, int length) {
+        if (rules.isEmpty() || length <= 0) return new Availability();
+        int base = from - Math.floorMod(from, 64);
+        long[] words = new long[(from + length - base + 63) / 64];
+        // apply every exclusion after all of the include rules
+        for (AvailabilityRule rule : rules) {
+            if (!rule.isExclude()) rule.expandInto(words, base, from, from + length);
+        }
+        for (AvailabilityRule rule : rules) {
+            if (rule.isExclude()) rule.expandInto(words, base, from, from + length);
+        }
+        return new Availability(base, words);
+    }
+
+    /**
+     * window()
+     * @param from the epoch day of the first day of the window
+     * @param length the number of days in the window
+     * @return the days the user picked from the start of the window onwards, together with the
+     * days of the window that the rules make the user available
+     */
+    public Availability window(int from, int length) {
+        Availability window = days.from(from);
+        window.addAll(covered(from, length));
+        return window;
+    }
+
+    /**
+     * getWeekdays()
+     * @return the mask of the weekdays of the user's open ended weekly rule, 0 if there is none
+     */
+    public int getWeekdays() {
+        int weekdays = 0;
+        for (AvailabilityRule rule : rules) {
+            if (!rule.isExclude() && rule.getEnd() == AvailabilityRule.OPEN_END) {
+                weekdays |= rule.getWeekdays();
+            }
+        }
+        return weekdays;
+    }
+
+    /**
+     * setWeekdays()
+     * replaces the user's open ended weekly rule
+     * @param weekdays the mask of the weekdays the user is available, 0 removes the rule
+     * @param from the first epoch day the new rule covers
+     */
+    public void setWeekdays(int weekdays, int from) {
+        List<AvailabilityRule> kept = new ArrayList<>();
+        for (AvailabilityRule rule : rules) {
+            if (rule.isExclude() || rule.getEnd() != AvailabilityRule.OPEN_END) kept.add(rule);
+        }
+        if (weekdays != 0) kept.add(AvailabilityRule.weekly(weekdays, from));
+        rules = kept;
+    }
+
+    /**
+     * exclude()
+     * adds an exclusion rule for each run of consecutive days
+     * @param excluded the days the user is not available even though the rules say they are
+     */
+    public void exclude(Availability excluded) {
+        int[] list = excluded.toEpochDays();
+        int i = 0;
+        while (i < list.length) {
+            int start = list[i];
+            while (i + 1 < list.length && list[i + 1] == list[i] + 1) i++;
+            rules.add(AvailabilityRule.exclusion(start, list[i]));
+            i++;
+        }
+    }
+
+    /**
+     * dropBefore()
+     * removes the rules that only cover days before the given day
+     * @param day the epoch day
+     */
+    public void dropBefore(int day) {
+        List<AvailabilityRule> kept = new ArrayList<>();
+        for (AvailabilityRule rule : rules) if (rule.getEnd() >= day) kept.add(rule);
+        rules = kept;
+    }
+}
@@ -32,7 +32,7 @@ public class Comment {
         return comment;
     }
 
-    public void setComment(String tripId) {
+    public void setComment(String comment) {
         this.comment = comment;
     }
 
@@ -0,0 +1,174 @@
+package com.alsaeedcullivan.ourtrips.models;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model to contain the result of matching the availability of a group of users
+ * For every day in the window, a 64 bit mask records exactly which participants are free on that
+ * day, the number of free participants is the popcount of the mask.
+ * Participant 0 is always the current user.
+ */
+public class GroupMatch implements Parcelable {
+
+    public static final int MAX_PARTICIPANTS = 64;
+
+    private int start;
+    private long[] members;
+    private ArrayList<UserSummary> participants;
+
+    private GroupMatch(int start, long[] members, ArrayList<UserSummary> participants) {
+        this.start = start;
+        this.members = members;
+        this.participants = participants;
+    }
+
+    /**
+     * compute()
+     * matches the availability of every participant over a window of days by walking the set bits
+     * of each participant's bitset, so the cost is proportional to the number of available days
+     * @param participants the participants, the current user must be at index 0
+     * @param availabilities the availability of each participant, in the same order
+     * @param from the epoch day of the first day of the window
+     * @param days the number of days in the window
+     */
+    public static GroupMatch compute(ArrayList<UserSummary> participants,
+                                     List<Availability> availabilities, int from, int days) {
+        if (availabilities.size() > MAX_PARTICIPANTS) {
+            throw new IllegalArgumentException("at most " + MAX_PARTICIPANTS + " participants");
+        }
+        long[] members = new long[days];
+        for (int p = 0; p < availabilities.size(); p++) {
+            Availability a = availabilities.get(p);
+            long[] words = a.getWords();
+            for (int w = 0; w < words.length; w++) {
+                int wordStart = a.getBase() + w * 64;
+                if (wordStart + 64 <= from || wordStart >= from + days) continue;
+                long word = words[w];
+                while (word != 0) {
+                    int index = wordStart + Long.numberOfTrailingZeros(word) - from;
+                    word &= word - 1;
+                    if (index >= 0 && index < days) members[index] |= 1L << p;
+                }
+            }
+        }
+        return new GroupMatch(from, members, participants);
+    }
+
+    // getters
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getLength() {
+        return members.length;
+    }
+
+    public ArrayList<UserSummary> getParticipants() {
+        return participants;
+    }
+
+    /**
+     * getCount()
+     * @param day the epoch day
+     * @return the number of participants that are free on the given day
+     */
+    public int getCount(int day) {
+        int index = day - start;
+        if (index < 0 || index >= members.length) return 0;
+        return Long.bitCount(members[index]);
+    }
+
+    /**
+     * getMask()
+     * @param day the epoch day
+     * @return a mask where bit p is set if participant p is free on the given day
+     */
+    public long getMask(int day) {
+        int index = day - start;
+        if (index < 0 || index >= members.length) return 0;
+        return members[index];
+    }
+
+    /**
+     * isFree()
+     * @param day the epoch day
+     * @param participant the index of the participant
+     * @return whether the participant is free on the given day
+     */
+    public boolean isFree(int day, int participant) {
+        int index = day - start;
+        if (index < 0 || index >= members.length) return false;
+        return (members[index] & (1L << participant)) != 0;
+    }
+
+    /**
+     * getFreeFriends()
+     * @param day the epoch day
+     * @return the participants other than the current user that are free on the given day
+     */
+    public ArrayList<UserSummary> getFreeFriends(int day) {
+        return getFriends(getMask(day));
+    }
+
+    /**
+     * getFriends()
+     * @param mask a mask of participants
+     * @return the participants in the mask other than the current user
+     */
+    public ArrayList<UserSummary> getFriends(long mask) {
+        ArrayList<UserSummary> friends = new ArrayList<>();
+        for (int p = 1; p < participants.size(); p++) {
+            if ((mask & (1L << p)) != 0) friends.add(participants.get(p));
+        }
+        return friends;
+    }
+
+    /**
+     * hasCommonDay()
+     * @return whether there is a day where the current user and at least one friend are free
+     */
+    public boolean hasCommonDay() {
+        for (long mask : members) {
+            if ((mask & 1L) != 0 && Long.bitCount(mask) > 1) return true;
+        }
+        return false;
+    }
+
+
+    // PARCELABLE
+
+    private GroupMatch(Parcel in) {
+        start = in.readInt();
+        members = in.createLongArray();
+        participants = in.createTypedArrayList(UserSummary.CREATOR);
+    }
+
+    public static final Creator<GroupMatch> CREATOR = new Creator<GroupMatch>() {
+        @Override
+        public GroupMatch createFromParcel(Parcel in) {
+            return new GroupMatch(in);
+        }
+
+        @Override
+        public GroupMatch[] newArray(int size) {
+            return new GroupMatch[size];
+        }
+    };
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(start);
+        dest.writeLongArray(members);
+        dest.writeTypedList(participants);
+    }
+}
@@ -10,6 +10,9 @@ public class Place implements Parcelable {
     private LatLng location;
     private String docId;
     private long timeStamp;
+    // the trip of the place, only set for places from the index of all of a user's trips
+    private String tripId = "";
+    private String tripTitle = "";
 
     public Place() { }
 
@@ -20,6 +23,8 @@ public class Place implements Parcelable {
         location = in.readParcelable(LatLng.class.getClassLoader());
         docId = in.readString();
         timeStamp = in.readLong();
+        tripId = in.readString();
+        tripTitle = in.readString();
     }
 
     public static final Creator<Place> CREATOR = new Creator<Place>() {
@@ -45,6 +50,8 @@ public class Place implements Parcelable {
         dest.writeParcelable(location, flags);
         dest.writeString(docId);
         dest.writeLong(timeStamp);
+        dest.writeString(tripId);
+        dest.writeString(tripTitle);
     }
 
     public void setName(String name) {
@@ -78,4 +85,20 @@ public class Place implements Parcelable {
     public void setTimeStamp(long timeStamp) {
         this.timeStamp = timeStamp;
     }
+
+    public String getTripId() {
+        return tripId;
+    }
+
+    public void setTripId(String tripId) {
+        this.tripId = tripId;
+    }
+
+    public String getTripTitle() {
+        return tripTitle;
+    }
+
+    public void setTripTitle(String tripTitle) {
+        this.tripTitle = tripTitle;
+    }
 }
@@ -0,0 +1,69 @@
+package com.alsaeedcullivan.ourtrips.models;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model to contain the places of a trip that fall in the same cell of the map at a zoom level,
+ * these are shown as a single marker
+ */
+public class PlaceCluster {
+
+    private long key;
+    private List<Place> places = new ArrayList<>();
+    private double latSum, lngSum;
+
+    /**
+     * @param key the key of the cell of the cluster
+     */
+    public PlaceCluster(long key) {
+        this.key = key;
+    }
+
+    /**
+     * add()
+     * adds a place to the cluster
+     */
+    public void add(Place place) {
+        places.add(place);
+        latSum += place.getLocation().latitude;
+        lngSum += place.getLocation().longitude;
+    }
+
+    /**
+     * remove()
+     * removes a place from the cluster
+     * @return whether the place was in the cluster
+     */
+    public boolean remove(Place place) {
+        if (!places.remove(place)) return false;
+        latSum -= place.getLocation().latitude;
+        lngSum -= place.getLocation().longitude;
+        return true;
+    }
+
+    // getters
+
+    public long getKey() {
+        return key;
+    }
+
+    public List<Place> getPlaces() {
+        return places;
+    }
+
+    public int getSize() {
+        return places.size();
+    }
+
+    /**
+     * getPosition()
+     * @return the location of the only place in the cluster, or the center of its places
+     */
+    public LatLng getPosition() {
+        if (places.size() == 1) return places.get(0).getLocation();
+        return new LatLng(latSum / places.size(), lngSum / places.size());
+    }
+}
@@ -10,6 +10,8 @@ public class Plan implements Parcelable {
     private String planUserId = "";
     private String planUserName = "";
     private long planTimeStamp = 0;
+    // whether the plan was sent from this device and has not reached the server yet
+    private boolean pending = false;
 
     public Plan() { }
 
@@ -19,6 +21,7 @@ public class Plan implements Parcelable {
         planUserId = in.readString();
         planUserName = in.readString();
         planTimeStamp = in.readLong();
+        pending = in.readInt() == 1;
     }
 
     @Override
@@ -28,6 +31,7 @@ public class Plan implements Parcelable {
         dest.writeString(planUserId);
         dest.writeString(planUserName);
         dest.writeLong(planTimeStamp);
+        dest.writeInt(pending ? 1 : 0);
     }
 
     @Override
@@ -86,4 +90,12 @@ public class Plan implements Parcelable {
     public void setPlanTimeStamp(long planTimeStamp) {
         this.planTimeStamp = planTimeStamp;
     }
+
+    public boolean isPending() {
+        return pending;
+    }
+
+    public void setPending(boolean pending) {
+        this.pending = pending;
+    }
 }
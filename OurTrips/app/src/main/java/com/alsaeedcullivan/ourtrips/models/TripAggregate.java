@@ -0,0 +1,98 @@
+package com.alsaeedcullivan.ourtrips.models;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model to contain the aggregate fields of a trip, which summarize its sub-collections
+ * The fields are kept up to date by cloud functions, so they can be read together with the rest of
+ * the trip document instead of reading each sub-collection.
+ */
+public class TripAggregate implements Parcelable {
+
+    private long photoCount = 0;
+    private String coverPhoto = "";
+    private long locationCount = 0;
+    // the newest plan of the trip, or null if it has none
+    private Plan latestPlan;
+    private ArrayList<String> tripperNames = new ArrayList<>();
+
+    public TripAggregate() { }
+
+    private TripAggregate(Parcel in) {
+        photoCount = in.readLong();
+        coverPhoto = in.readString();
+        locationCount = in.readLong();
+        latestPlan = in.readParcelable(Plan.class.getClassLoader());
+        tripperNames = in.createStringArrayList();
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeLong(photoCount);
+        dest.writeString(coverPhoto);
+        dest.writeLong(locationCount);
+        dest.writeParcelable(latestPlan, flags);
+        dest.writeStringList(tripperNames);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    public static final Creator<TripAggregate> CREATOR = new Creator<TripAggregate>() {
+        @Override
+        public TripAggregate createFromParcel(Parcel in) {
+            return new TripAggregate(in);
+        }
+
+        @Override
+        public TripAggregate[] newArray(int size) {
+            return new TripAggregate[size];
+        }
+    };
+
+    public long getPhotoCount() {
+        return photoCount;
+    }
+
+    public void setPhotoCount(long photoCount) {
+        this.photoCount = photoCount;
+    }
+
+    public String getCoverPhoto() {
+        return coverPhoto;
+    }
+
+    public void setCoverPhoto(String coverPhoto) {
+        this.coverPhoto = coverPhoto;
+    }
+
+    public long getLocationCount() {
+        return locationCount;
+    }
+
+    public void setLocationCount(long locationCount) {
+        this.locationCount = locationCount;
+    }
+
+    public Plan getLatestPlan() {
+        return latestPlan;
+    }
+
+    public void setLatestPlan(Plan latestPlan) {
+        this.latestPlan = latestPlan;
+    }
+
+    public List<String> getTripperNames() {
+        return tripperNames;
+    }
+
+    public void setTripperNames(List<String> tripperNames) {
+        this.tripperNames = new ArrayList<>(tripperNames);
+    }
+}
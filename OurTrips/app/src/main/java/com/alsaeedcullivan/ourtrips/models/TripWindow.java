@@ -0,0 +1,51 @@
+package com.alsaeedcullivan.ourtrips.models;
+
+/**
+ * Model to contain a contiguous range of days that a group could go on a trip
+ */
+public class TripWindow {
+
+    private int start;
+    private int length;
+    private long attendees;
+    private int attendance;
+
+    /**
+     * @param start the epoch day of the first day of the window
+     * @param length the number of days in the window
+     * @param attendees a mask of the participants that are free on every day of the window
+     * @param attendance the number of participants free on each day, summed over the window
+     */
+    public TripWindow(int start, int length, long attendees, int attendance) {
+        this.start = start;
+        this.length = length;
+        this.attendees = attendees;
+        this.attendance = attendance;
+    }
+
+    // getters
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return start + length - 1;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public long getAttendees() {
+        return attendees;
+    }
+
+    public int getAttendeeCount() {
+        return Long.bitCount(attendees);
+    }
+
+    public int getAttendance() {
+        return attendance;
+    }
+}
@@ -0,0 +1,150 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import android.util.Log;
+
+import com.alsaeedcullivan.ourtrips.models.Availability;
+import com.alsaeedcullivan.ourtrips.models.AvailabilityRule;
+import com.alsaeedcullivan.ourtrips.models.AvailabilitySchedule;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class to convert a user's availability to and from the format stored in FireStore
+ * A user's availability is stored as a base epoch day (AVAILABILITY_BASE_KEY) and a Blob of
+ * packed bits (AVAILABILITY_BITS_KEY). Documents that have not been migrated yet still contain
+ * a list of "MM/dd/yyyy" strings under DATE_LIST_KEY, these are read as a fallback.
+ * Recurring rules are stored under AVAILABILITY_RULES_KEY as a list of small maps, open starts and
+ * ends are left out.
+ */
+public class AvailabilityCodec {
+
+    /**
+     * toFields()
+     * @param availability the availability of a user
+     * @return a map of the fields that should be written to the user's document
+     */
+    public static Map<String, Object> toFields(Availability availability) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(Const.AVAILABILITY_BASE_KEY, (long) availability.getBase());
+        data.put(Const.AVAILABILITY_BITS_KEY, Blob.fromBytes(toBytes(availability.getWords())));
+        return data;
+    }
+
+    /**
+     * fromDocument()
+     * reads the availability of a user from their document, falling back to the legacy list of
+     * date strings if the document has not been migrated
+     * @param doc the user's document
+     */
+    public static Availability fromDocument(DocumentSnapshot doc) {
+        if (doc == null) return new Availability();
+        Object base = doc.get(Const.AVAILABILITY_BASE_KEY);
+        Object bits = doc.get(Const.AVAILABILITY_BITS_KEY);
+        if (base instanceof Long && bits instanceof Blob) {
+            return new Availability((int) (long) (Long) base, fromBytes(((Blob) bits).toBytes()));
+        }
+        Object legacy = doc.get(Const.DATE_LIST_KEY);
+        if (legacy instanceof List) return fromLegacy((List<?>) legacy);
+        return new Availability();
+    }
+
+    /**
+     * scheduleFromDocument()
+     * @param doc the user's document
+     * @return the days the user picked together with their recurring rules
+     */
+    public static AvailabilitySchedule scheduleFromDocument(DocumentSnapshot doc) {
+        return new AvailabilitySchedule(fromDocument(doc), rulesFromDocument(doc));
+    }
+
+    /**
+     * rulesToField()
+     * @param rules the recurring rules of a user
+     * @return the value that should be written to AVAILABILITY_RULES_KEY
+     */
+    public static List<Map<String, Object>> rulesToField(List<AvailabilityRule> rules) {
+        List<Map<String, Object>> field = new ArrayList<>();
+        for (AvailabilityRule rule : rules) {
+            Map<String, Object> data = new HashMap<>();
+            data.put(Const.RULE_WEEKDAYS_KEY, (long) rule.getWeekdays());
+            if (rule.getStart() != AvailabilityRule.OPEN_START) {
+                data.put(Const.RULE_START_KEY, (long) rule.getStart());
+            }
+            if (rule.getEnd() != AvailabilityRule.OPEN_END) data.put(Const.RULE_END_KEY, (long) rule.getEnd());
+            if (rule.isExclude()) data.put(Const.RULE_EXCLUDE_KEY, true);
+            field.add(data);
+        }
+        return field;
+    }
+
+    /**
+     * rulesFromDocument()
+     * @param doc the user's document
+     * @return the recurring rules of the user, invalid rules are skipped
+     */
+    public static List<AvailabilityRule> rulesFromDocument(DocumentSnapshot doc) {
+        List<AvailabilityRule> rules = new ArrayList<>();
+        if (doc == null || !(doc.get(Const.AVAILABILITY_RULES_KEY) instanceof List)) return rules;
+        for (Object item : (List<?>) doc.get(Const.AVAILABILITY_RULES_KEY)) {
+            if (!(item instanceof Map)) continue;
+            Map<?, ?> data = (Map<?, ?>) item;
+            if (!(data.get(Const.RULE_WEEKDAYS_KEY) instanceof Long)) continue;
+            int weekdays = (int) (long) (Long) data.get(Const.RULE_WEEKDAYS_KEY);
+            Object start = data.get(Const.RULE_START_KEY);
+            Object end = data.get(Const.RULE_END_KEY);
+            rules.add(new AvailabilityRule(weekdays,
+                    start instanceof Long ? (int) (long) (Long) start : AvailabilityRule.OPEN_START,
+                    end instanceof Long ? (int) (long) (Long) end : AvailabilityRule.OPEN_END,
+                    Boolean.TRUE.equals(data.get(Const.RULE_EXCLUDE_KEY))));
+        }
+        return rules;
+    }
+
+    /**
+     * fromLegacy()
+     * @param dates a list of "MM/dd/yyyy" strings
+     * @return the availability containing each of the dates
+     */
+    public static Availability fromLegacy(List<?> dates) {
+        Availability availability = new Availability();
+        for (Object date : dates) {
+            if (!(date instanceof String)) continue;
+            int day = DateCodec.parse((String) date);
+            if (day != DateCodec.INVALID) availability.add(day);
+            else Log.d(Const.TAG, "fromLegacy: invalid date " + date);
+        }
+        return availability;
+    }
+
+    /**
+     * toBytes()
+     * packs the words of a bitset into little endian bytes
+     */
+    public static byte[] toBytes(long[] words) {
+        byte[] bytes = new byte[words.length * 8];
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            for (int b = 0; b < 8; b++) {
+                bytes[w * 8 + b] = (byte) (word >>> (8 * b));
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * fromBytes()
+     * unpacks little endian bytes into the words of a bitset
+     */
+    public static long[] fromBytes(byte[] bytes) {
+        long[] words = new long[(bytes.length + 7) / 8];
+        for (int i = 0; i < bytes.length; i++) {
+            words[i / 8] |= (bytes[i] & 0xFFL) << (8 * (i % 8));
+        }
+        return words;
+    }
+}
@@ -0,0 +1,54 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class to hold the thread pool that background work is run on
+ * Unlike the serial executor that every AsyncTask shares, the pool runs a few stages at once so a
+ * slow stage on one screen does not hold up the work of every other screen. The number of threads
+ * is bounded and idle threads are stopped after a while.
+ */
+public class BackgroundExecutor {
+
+    private static final int THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ThreadPoolExecutor sPool;
+
+    static {
+        sPool = new ThreadPoolExecutor(THREADS, THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        // keep the background work from competing with the UI thread
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "background-" + mCount.incrementAndGet());
+            }
+        });
+        sPool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * get()
+     * @return the shared pool of background threads
+     */
+    public static Executor get() {
+        return sPool;
+    }
+}
@@ -17,7 +17,7 @@ public class Const {
     public static final String LOGIN_TAG = "LoginActivity";
     public static final String SETTINGS_TAG = "SettingsActivity";
     public static final String MATCH_TAG = "MatchActivity";
-    public static final String MATCH_ARR_TAG = "matched";
+    public static final String GROUP_MATCH_TAG = "group_match";
     public static final String TRIP_ACTIVITY_TAG = "TripActivity";
     public static final String TRIP_ID_TAG = "trip_id_tag";
     public static final String SUMMARY_TAG = "SummaryFragment";
@@ -26,7 +26,8 @@ public class Const {
     public static final String TRIPPERS_TAG = "TrippersFragment";
     public static final String TRIPPERS_SET_TAG = "trippers_set";
     public static final String SELECTED_DATE_TAG = "selected";
-    public static final String SELECTED_FRIEND_TAG = "selected_friend";
+    public static final String SELECTED_FRIENDS_TAG = "selected_friends";
+    public static final String SELECTED_END_DATE_TAG = "selected_end_date";
     public static final String GALLERY_TAG = "gallery_pics";
     public static final String USER_NAME_TAG = "user_name";
     public static final String TRIP_TITLE_TAG = "title";
@@ -36,6 +37,7 @@ public class Const {
     public static final String PIC_TAG = "pic";
     public static final String POSITION_TAG = "position";
     public static final String PLACE_LIST_TAG = "place_list";
+    public static final String NEARBY_TAG = "nearby";
 
     // codes
     public static final int GALLERY_PERMISSION_REQUEST_CODE = 0;
@@ -53,6 +55,13 @@ public class Const {
     public static final String USER_BIRTHDAY_KEY = "birthday";
     public static final String FRIEND_ID_KEY = "friend_user_id";
     public static final String DATE_LIST_KEY = "dates";
+    public static final String AVAILABILITY_BASE_KEY = "availability_base";
+    public static final String AVAILABILITY_BITS_KEY = "availability_bits";
+    public static final String AVAILABILITY_RULES_KEY = "availability_rules";
+    public static final String RULE_WEEKDAYS_KEY = "weekdays";
+    public static final String RULE_START_KEY = "start";
+    public static final String RULE_END_KEY = "end";
+    public static final String RULE_EXCLUDE_KEY = "exclude";
     public static final String USER_PASSWORD_KEY = "password";
     public static final String USER_PROFILE_PIC_KEY = "profile_pic_path";
     public static final String USER_TOKEN_KEY = "token";
@@ -63,6 +72,7 @@ public class Const {
     // User sub-collections
     public static final String USER_FRIENDS_COLLECTION = "user_friends";
     public static final String USER_TRIPS_COLLECTION = "user_trips";
+    public static final String USER_PLACES_COLLECTION = "user_places";
     public static final String USER_F_REQUESTS_COLLECTION = "friend_requests";
 
     // User properties
@@ -74,6 +84,9 @@ public class Const {
     public static final String TRIP_ID_KEY = "trip_id";
     public static final String TRIP_TITLE_KEY = "title";
     public static final String TRIP_START_DATE_KEY = "start_date";
+    public static final String TRIP_START_DAY_KEY = "start_day";
+    // the start day of a trip whose start date is not a valid date, it sorts after every real day
+    public static final long UNKNOWN_START_DAY = -999999;
     public static final String TRIP_END_DATE_KEY = "end_date";
     public static final String TRIP_TRIPPERS_COLLECTION = "trippers";
     public static final String TRIP_COMMENTS_COLLECTION = "comments";
@@ -84,7 +97,14 @@ public class Const {
     public static final String TRIP_LOCATIONS_COLLECTION = "locations";
     public static final String TRIP_LOCATION_KEY = "location";
     public static final String TRIP_LOCATION_NAME_KEY = "name";
+    public static final String TRIP_GEOHASH_KEY = "geohash";
+    public static final String PLACE_TRIP_TITLE_KEY = "trip_title";
     public static final String TRIP_OVERVIEW_KEY = "overview";
+    public static final String TRIP_PHOTO_COUNT_KEY = "photo_count";
+    public static final String TRIP_COVER_PHOTO_KEY = "cover_photo";
+    public static final String TRIP_LOCATION_COUNT_KEY = "location_count";
+    public static final String TRIP_LATEST_COMMENT_KEY = "latest_comment";
+    public static final String TRIP_TRIPPER_NAMES_KEY = "tripper_names";
 
     // Cloud Storage paths
     public static final String PROFILE_PIC_PATH = "profile_pictures";
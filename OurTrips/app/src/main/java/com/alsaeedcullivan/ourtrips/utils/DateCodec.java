@@ -0,0 +1,157 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Class to convert "MM/dd/yyyy" strings and Dates to and from epoch days (days since 01/01/1970)
+ * The conversions are done with civil calendar arithmetic instead of SimpleDateFormat or Calendar,
+ * so parsing and appending do not allocate and every method is safe to call from any thread.
+ */
+public class DateCodec {
+
+    // returned by parse() when the string is not a valid date
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    /**
+     * parse()
+     * @param date a string in the form "MM/dd/yyyy", single digit months and days are accepted
+     * @return the epoch day of the date, or INVALID if the string is not a valid date
+     */
+    public static int parse(CharSequence date) {
+        if (date == null) return INVALID;
+        int length = date.length();
+        int i = 0;
+        int month = 0, day = 0, year = 0;
+        // read the month, day and year, each separated by a '/'
+        for (int part = 0; part < 3; part++) {
+            int value = 0;
+            int digits = 0;
+            while (i < length && date.charAt(i) != '/') {
+                char c = date.charAt(i++);
+                if (c < '0' || c > '9' || ++digits > 4) return INVALID;
+                value = value * 10 + (c - '0');
+            }
+            if (digits == 0) return INVALID;
+            if (part == 0) month = value;
+            else if (part == 1) day = value;
+            else year = value;
+            // skip the separator, there must not be one after the year
+            if (part < 2) {
+                if (i >= length) return INVALID;
+                i++;
+            }
+        }
+        if (i != length || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return INVALID;
+        }
+        return fromCivil(year, month, day);
+    }
+
+    /**
+     * append()
+     * appends the date to a builder in the form "MM/dd/yyyy"
+     * @param epochDay the epoch day
+     * @param builder the builder to append to
+     */
+    public static StringBuilder append(int epochDay, StringBuilder builder) {
+        // shift the epoch to 03/01/0000 so leap days fall at the end of the year
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+        pad(builder, month, 2).append('/');
+        pad(builder, day, 2).append('/');
+        return pad(builder, year, 4);
+    }
+
+    /**
+     * format()
+     * @param epochDay the epoch day
+     * @return the date in the form "MM/dd/yyyy"
+     */
+    public static String format(int epochDay) {
+        return append(epochDay, new StringBuilder(10)).toString();
+    }
+
+    /**
+     * format()
+     * @param date a date in the local time zone
+     * @return the calendar day of the date in the form "MM/dd/yyyy"
+     */
+    public static String format(Date date) {
+        return format(toEpochDay(date));
+    }
+
+    /**
+     * parseDate()
+     * @param date a string in the form "MM/dd/yyyy"
+     * @return a date at midnight of that day in the local time zone, or null if the string is
+     * not a valid date
+     */
+    public static Date parseDate(CharSequence date) {
+        int day = parse(date);
+        if (day == INVALID) return null;
+        return toDate(day);
+    }
+
+    /**
+     * toEpochDay()
+     * @param date a date in the local time zone
+     * @return the number of days between 01/01/1970 and the calendar day of the date
+     */
+    public static int toEpochDay(Date date) {
+        long millis = date.getTime();
+        return (int) Math.floorDiv(millis + TimeZone.getDefault().getOffset(millis), DAY_MILLIS);
+    }
+
+    /**
+     * toDate()
+     * @param epochDay the number of days since 01/01/1970
+     * @return a date at midnight of that day in the local time zone
+     */
+    public static Date toDate(int epochDay) {
+        TimeZone zone = TimeZone.getDefault();
+        long utc = epochDay * DAY_MILLIS;
+        // the offset at local midnight may differ from the offset at utc midnight
+        return new Date(utc - zone.getOffset(utc - zone.getOffset(utc)));
+    }
+
+    /**
+     * fromCivil()
+     * @return the epoch day of the given year, month (1 - 12) and day of the month
+     */
+    public static int fromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    // returns the number of days in a month of a year
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // appends a number padded with zeros to the given width
+    private static StringBuilder pad(StringBuilder builder, int value, int width) {
+        for (int limit = 10, i = 1; i < width; i++, limit *= 10) {
+            if (value < limit) builder.append('0');
+        }
+        return builder.append(value);
+    }
+}
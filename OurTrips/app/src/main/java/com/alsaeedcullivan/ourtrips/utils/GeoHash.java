@@ -0,0 +1,146 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class to encode locations as geohashes
+ * A geohash interleaves the bits of the longitude and latitude and writes them in base 32, so
+ * nearby locations share a prefix and a range of geohashes covers a rectangle of the map. Storing
+ * the geohash next to a location lets FireStore answer spatial queries with range reads.
+ */
+public class GeoHash {
+
+    // the precision that locations are stored with, about 1.2m by 0.6m
+    public static final int DEFAULT_PRECISION = 10;
+    public static final int MAX_PRECISION = 12;
+
+    // the mean radius of the earth and the length of a degree of latitude, in meters
+    private static final double EARTH_RADIUS = 6371008.8;
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS / 180;
+    // sorts after every geohash character, so "h" to "h~" covers every geohash starting with "h"
+    private static final char RANGE_END = '~';
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    /**
+     * encode()
+     * @param latitude the latitude, between -90 and 90
+     * @param longitude the longitude, between -180 and 180
+     * @param precision the number of characters of the geohash, between 1 and MAX_PRECISION
+     * @return the geohash of the location
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("invalid precision " + precision);
+        }
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        char[] hash = new char[precision];
+        // even bits split the longitude, odd bits split the latitude
+        boolean even = true;
+        for (int c = 0; c < precision; c++) {
+            int value = 0;
+            for (int bit = 0; bit < 5; bit++) {
+                value <<= 1;
+                if (even) {
+                    double mid = (minLng + maxLng) / 2;
+                    if (longitude >= mid) {
+                        value |= 1;
+                        minLng = mid;
+                    } else maxLng = mid;
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (latitude >= mid) {
+                        value |= 1;
+                        minLat = mid;
+                    } else maxLat = mid;
+                }
+                even = !even;
+            }
+            hash[c] = BASE32[value];
+        }
+        return new String(hash);
+    }
+
+    /**
+     * encode()
+     * @return the geohash of the location with the default precision
+     */
+    public static String encode(double latitude, double longitude) {
+        return encode(latitude, longitude, DEFAULT_PRECISION);
+    }
+
+    /**
+     * queryRanges()
+     * picks the longest geohash whose cells are at least as large as the radius, then returns the
+     * ranges of the cell of the center and of its (up to) eight neighbours, which together cover
+     * the circle, the results of the ranges must still be filtered with distance()
+     * @param latitude the latitude of the center
+     * @param longitude the longitude of the center
+     * @param radius the radius of the circle in meters
+     * @return the ranges of geohashes to query, each range is a start and an end, both inclusive
+     */
+    public static List<String[]> queryRanges(double latitude, double longitude, double radius) {
+        List<String[]> ranges = new ArrayList<>();
+        // the longitude of the circle is widest at the edge closest to a pole
+        double latRadius = radius / METERS_PER_DEGREE;
+        double edge = Math.min(90, Math.abs(latitude) + latRadius);
+        double lngRadius = edge >= 90 ? 360 : latRadius / Math.cos(Math.toRadians(edge));
+
+        int precision = 0;
+        while (precision < MAX_PRECISION && cellHeight(precision + 1) >= latRadius &&
+                cellWidth(precision + 1) >= lngRadius) {
+            precision++;
+        }
+        // the circle is larger than the largest cells
+        if (precision == 0) {
+            ranges.add(new String[] {"", String.valueOf(RANGE_END)});
+            return ranges;
+        }
+
+        double height = cellHeight(precision);
+        double width = cellWidth(precision);
+        Set<String> cells = new LinkedHashSet<>();
+        for (int dy = -1; dy <= 1; dy++) {
+            double lat = latitude + dy * height;
+            if (lat < -90 || lat > 90) continue;
+            for (int dx = -1; dx <= 1; dx++) {
+                cells.add(encode(Math.min(lat, 90), wrap(longitude + dx * width), precision));
+            }
+        }
+        for (String cell : cells) ranges.add(new String[] {cell, cell + RANGE_END});
+        return ranges;
+    }
+
+    /**
+     * distance()
+     * @return the great circle distance between two locations in meters
+     */
+    public static double distance(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat1)) *
+                Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // returns the height in degrees of the cells of a geohash with the given precision
+    private static double cellHeight(int precision) {
+        return 180 / Math.pow(2, (5 * precision) / 2);
+    }
+
+    // returns the width in degrees of the cells of a geohash with the given precision
+    private static double cellWidth(int precision) {
+        return 360 / Math.pow(2, (5 * precision + 1) / 2);
+    }
+
+    // wraps a longitude into -180 to 180
+    private static double wrap(double longitude) {
+        if (longitude >= 180) return longitude - 360;
+        if (longitude < -180) return longitude + 360;
+        return longitude;
+    }
+}
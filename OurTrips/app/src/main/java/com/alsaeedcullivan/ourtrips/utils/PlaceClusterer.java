@@ -0,0 +1,161 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import com.alsaeedcullivan.ourtrips.models.Place;
+import com.alsaeedcullivan.ourtrips.models.PlaceCluster;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class to group the places of a trip that are close together on the map at a zoom level
+ * The world is split into a grid of square cells in web mercator coordinates, with CELLS_PER_TILE
+ * cells across each map tile, so a cell covers the same area on the screen at every zoom level.
+ * The places in a cell form a cluster. The clusters of a zoom level are built in a single pass
+ * the first time they are needed and are kept up to date as places are added or removed, so
+ * moving the camera around at the same zoom level never rebuilds them.
+ */
+public class PlaceClusterer {
+
+    // the number of cells across a 256dp map tile, a cell is about 64dp wide on the screen
+    public static final int CELLS_PER_TILE = 4;
+    public static final int MAX_ZOOM = 21;
+    // the latitude at which web mercator maps are cut off
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    private final List<Place> mPlaces = new ArrayList<>();
+    // the clusters of each zoom level that has been built, by the key of their cell
+    private final Map<Integer, Map<Long, PlaceCluster>> mLevels = new HashMap<>();
+
+    /**
+     * setPlaces()
+     * replaces the places that are clustered
+     */
+    public void setPlaces(List<Place> places) {
+        mPlaces.clear();
+        mLevels.clear();
+        for (Place place : places) if (place.getLocation() != null) mPlaces.add(place);
+    }
+
+    /**
+     * add()
+     * adds a place to the clusters of every zoom level that has been built
+     */
+    public void add(Place place) {
+        if (place.getLocation() == null) return;
+        mPlaces.add(place);
+        for (Map.Entry<Integer, Map<Long, PlaceCluster>> level : mLevels.entrySet()) {
+            add(level.getValue(), place, level.getKey());
+        }
+    }
+
+    /**
+     * remove()
+     * removes a place from the clusters of every zoom level that has been built
+     * @return whether the place was being clustered
+     */
+    public boolean remove(Place place) {
+        if (!mPlaces.remove(place)) return false;
+        for (Map.Entry<Integer, Map<Long, PlaceCluster>> level : mLevels.entrySet()) {
+            long key = key(place.getLocation().latitude, place.getLocation().longitude, level.getKey());
+            PlaceCluster cluster = level.getValue().get(key);
+            if (cluster != null && cluster.remove(place) && cluster.getSize() == 0) {
+                level.getValue().remove(key);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * size()
+     * @return the number of places that are clustered
+     */
+    public int size() {
+        return mPlaces.size();
+    }
+
+    /**
+     * getClusters()
+     * @param zoom the zoom level of the map
+     * @return the clusters at the zoom level by the key of their cell
+     */
+    public Map<Long, PlaceCluster> getClusters(int zoom) {
+        zoom = Math.max(0, Math.min(zoom, MAX_ZOOM));
+        Map<Long, PlaceCluster> clusters = mLevels.get(zoom);
+        if (clusters != null) return clusters;
+        clusters = new HashMap<>();
+        for (Place place : mPlaces) add(clusters, place, zoom);
+        mLevels.put(zoom, clusters);
+        return clusters;
+    }
+
+    /**
+     * getVisible()
+     * @param zoom the zoom level of the map
+     * @param south the southern edge of the visible region
+     * @param west the western edge of the visible region
+     * @param north the northern edge of the visible region
+     * @param east the eastern edge of the visible region, less than west if the region crosses
+     *             the antimeridian
+     * @return the clusters at the zoom level that are positioned inside the visible region, by
+     * the key of their cell
+     */
+    public Map<Long, PlaceCluster> getVisible(int zoom, double south, double west, double north,
+                                              double east) {
+        Map<Long, PlaceCluster> visible = new HashMap<>();
+        for (PlaceCluster cluster : getClusters(zoom).values()) {
+            double lat = cluster.getPosition().latitude;
+            double lng = cluster.getPosition().longitude;
+            if (lat < south || lat > north) continue;
+            if (west <= east ? lng < west || lng > east : lng < west && lng > east) continue;
+            visible.put(cluster.getKey(), cluster);
+        }
+        return visible;
+    }
+
+    /**
+     * key()
+     * @param lat the latitude of a location
+     * @param lng the longitude of a location
+     * @param zoom the zoom level of the map
+     * @return the key of the cell that contains the location at the zoom level
+     */
+    public static long key(double lat, double lng, int zoom) {
+        long cells = (long) CELLS_PER_TILE << Math.max(0, Math.min(zoom, MAX_ZOOM));
+        long cellX = Math.max(0, Math.min(cells - 1, (long) Math.floor(projectX(lng) * cells)));
+        long cellY = Math.max(0, Math.min(cells - 1, (long) Math.floor(projectY(lat) * cells)));
+        return cellX << 32 | cellY;
+    }
+
+    /**
+     * projectX()
+     * @param lng a longitude
+     * @return the web mercator x coordinate of the longitude, from 0 in the west to 1 in the east
+     */
+    public static double projectX(double lng) {
+        return (lng + 180) / 360;
+    }
+
+    /**
+     * projectY()
+     * @param lat a latitude
+     * @return the web mercator y coordinate of the latitude, from 0 in the north to 1 in the south
+     */
+    public static double projectY(double lat) {
+        lat = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat));
+        double sin = Math.sin(Math.toRadians(lat));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    // adds a place to the cluster of its cell
+    private static void add(Map<Long, PlaceCluster> clusters, Place place, int zoom) {
+        long key = key(place.getLocation().latitude, place.getLocation().longitude, zoom);
+        PlaceCluster cluster = clusters.get(key);
+        if (cluster == null) {
+            cluster = new PlaceCluster(key);
+            clusters.put(key, cluster);
+        }
+        cluster.add(place);
+    }
+}
@@ -0,0 +1,263 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import com.alsaeedcullivan.ourtrips.models.Place;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Class to find the places of a trip by their location
+ * The places are kept in a balanced k-d tree over their web mercator coordinates, stored
+ * implicitly in an array: the node of a range is its middle element, with the nodes of the two
+ * halves on either side. Distances are measured in map coordinates, so they match distances on
+ * the screen at every zoom level. Removed places are only marked, the tree is rebuilt from the
+ * remaining places once half of it has been removed, so removal stays logarithmic on average.
+ * Added places are kept in a short list that every query scans, and are moved into the tree by a
+ * rebuild once the list grows past the square root of the size of the tree.
+ */
+public class PlaceIndex {
+
+    // the number of added places that are always allowed in the list before a rebuild
+    private static final int MIN_PENDING = 16;
+
+    private static final Comparator<Node> BY_X = new Comparator<Node>() {
+        @Override
+        public int compare(Node a, Node b) {
+            return Double.compare(a.x, b.x);
+        }
+    };
+    private static final Comparator<Node> BY_Y = new Comparator<Node>() {
+        @Override
+        public int compare(Node a, Node b) {
+            return Double.compare(a.y, b.y);
+        }
+    };
+
+    private Node[] mNodes = new Node[0];
+    // the places that have been added since the tree was built
+    private final List<Node> mPending = new ArrayList<>();
+    private int mSize, mRemoved;
+
+    /**
+     * setPlaces()
+     * replaces the places in the index, places without a location are skipped
+     */
+    public void setPlaces(List<Place> places) {
+        List<Node> nodes = new ArrayList<>();
+        for (Place place : places) if (place.getLocation() != null) nodes.add(new Node(place));
+        build(nodes.toArray(new Node[0]));
+    }
+
+    /**
+     * add()
+     * adds a place to the index, places without a location are skipped
+     */
+    public void add(Place place) {
+        if (place.getLocation() == null) return;
+        mPending.add(new Node(place));
+        mSize++;
+        if (mPending.size() > Math.max(MIN_PENDING, (int) Math.sqrt(mNodes.length))) rebuild();
+    }
+
+    /**
+     * size()
+     * @return the number of places in the index
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * nearest()
+     * @param lat the latitude of a location
+     * @param lng the longitude of a location
+     * @return the place closest to the location, or null if the index is empty
+     */
+    public Place nearest(double lat, double lng) {
+        return nearest(lat, lng, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * nearest()
+     * @param lat the latitude of a location
+     * @param lng the longitude of a location
+     * @param maxDistance the maximum distance to the place, as a fraction of the width of the map
+     *                    of the world
+     * @return the place closest to the location, or null if there is no place within maxDistance
+     */
+    public Place nearest(double lat, double lng, double maxDistance) {
+        Search search = new Search(PlaceClusterer.projectX(lng), PlaceClusterer.projectY(lat),
+                maxDistance * maxDistance);
+        nearest(0, mNodes.length, 0, search);
+        for (Node node : mPending) search.offer(node);
+        return search.best;
+    }
+
+    /**
+     * within()
+     * @param south the southern edge of the region
+     * @param west the western edge of the region
+     * @param north the northern edge of the region
+     * @param east the eastern edge of the region, less than west if the region crosses the
+     *             antimeridian
+     * @return the places inside the region
+     */
+    public List<Place> within(double south, double west, double north, double east) {
+        List<Place> places = new ArrayList<>();
+        double top = PlaceClusterer.projectY(north);
+        double bottom = PlaceClusterer.projectY(south);
+        if (west <= east) {
+            within(0, mNodes.length, 0, PlaceClusterer.projectX(west), top,
+                    PlaceClusterer.projectX(east), bottom, places);
+        } else {
+            // split the region at the antimeridian
+            within(0, mNodes.length, 0, PlaceClusterer.projectX(west), top, 1, bottom, places);
+            within(0, mNodes.length, 0, 0, top, PlaceClusterer.projectX(east), bottom, places);
+        }
+        for (Node node : mPending) {
+            double lat = node.place.getLocation().latitude;
+            double lng = node.place.getLocation().longitude;
+            if (lat < south || lat > north) continue;
+            if (west <= east ? lng < west || lng > east : lng < west && lng > east) continue;
+            places.add(node.place);
+        }
+        return places;
+    }
+
+    /**
+     * remove()
+     * removes a place from the index
+     * @return whether the place was in the index
+     */
+    public boolean remove(Place place) {
+        if (place.getLocation() == null) return false;
+        for (int i = 0; i < mPending.size(); i++) {
+            if (mPending.get(i).place != place) continue;
+            mPending.remove(i);
+            mSize--;
+            return true;
+        }
+        double x = PlaceClusterer.projectX(place.getLocation().longitude);
+        double y = PlaceClusterer.projectY(place.getLocation().latitude);
+        Node node = find(0, mNodes.length, 0, x, y, place);
+        if (node == null) return false;
+        node.removed = true;
+        mSize--;
+        mRemoved++;
+        // rebuild the tree once most of it is made of removed places
+        if (mRemoved > mNodes.length / 2) rebuild();
+        return true;
+    }
+
+    // rebuilds the tree out of the places in the tree that have not been removed and the added ones
+    private void rebuild() {
+        List<Node> remaining = new ArrayList<>(mPending);
+        for (Node node : mNodes) if (!node.removed) remaining.add(node);
+        build(remaining.toArray(new Node[0]));
+    }
+
+    // builds a balanced tree out of the nodes
+    private void build(Node[] nodes) {
+        build(nodes, 0, nodes.length, 0);
+        mNodes = nodes;
+        mPending.clear();
+        mSize = nodes.length;
+        mRemoved = 0;
+    }
+
+    // sorts the range by the axis of its depth and builds both halves around the middle node
+    private static void build(Node[] nodes, int lo, int hi, int depth) {
+        if (hi - lo <= 1) return;
+        Arrays.sort(nodes, lo, hi, depth % 2 == 0 ? BY_X : BY_Y);
+        int mid = (lo + hi) >>> 1;
+        build(nodes, lo, mid, depth + 1);
+        build(nodes, mid + 1, hi, depth + 1);
+    }
+
+    // searches the range for a place closer than the best one found so far
+    private void nearest(int lo, int hi, int depth, Search search) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        Node node = mNodes[mid];
+        if (!node.removed) search.offer(node);
+        double diff = depth % 2 == 0 ? search.x - node.x : search.y - node.y;
+        // search the half containing the location first, then the other half if it could be closer
+        if (diff < 0) {
+            nearest(lo, mid, depth + 1, search);
+            if (diff * diff <= search.distance) nearest(mid + 1, hi, depth + 1, search);
+        } else {
+            nearest(mid + 1, hi, depth + 1, search);
+            if (diff * diff <= search.distance) nearest(lo, mid, depth + 1, search);
+        }
+    }
+
+    // adds the places of the range inside the region to the list
+    private void within(int lo, int hi, int depth, double left, double top, double right,
+                        double bottom, List<Place> places) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        Node node = mNodes[mid];
+        if (!node.removed && node.x >= left && node.x <= right && node.y >= top && node.y <= bottom) {
+            places.add(node.place);
+        }
+        double value = depth % 2 == 0 ? node.x : node.y;
+        if (value >= (depth % 2 == 0 ? left : top)) {
+            within(lo, mid, depth + 1, left, top, right, bottom, places);
+        }
+        if (value <= (depth % 2 == 0 ? right : bottom)) {
+            within(mid + 1, hi, depth + 1, left, top, right, bottom, places);
+        }
+    }
+
+    // returns the node of the place if it is in the range and has not been removed
+    private Node find(int lo, int hi, int depth, double x, double y, Place place) {
+        if (lo >= hi) return null;
+        int mid = (lo + hi) >>> 1;
+        Node node = mNodes[mid];
+        if (node.place == place) return node.removed ? null : node;
+        // nodes with the same coordinate as the middle node can be in either half
+        double diff = depth % 2 == 0 ? x - node.x : y - node.y;
+        Node found = diff <= 0 ? find(lo, mid, depth + 1, x, y, place) : null;
+        if (found == null && diff >= 0) found = find(mid + 1, hi, depth + 1, x, y, place);
+        return found;
+    }
+
+    // a place and its map coordinates
+    private static class Node {
+        private final Place place;
+        private final double x, y;
+        private boolean removed;
+
+        private Node(Place place) {
+            this.place = place;
+            x = PlaceClusterer.projectX(place.getLocation().longitude);
+            y = PlaceClusterer.projectY(place.getLocation().latitude);
+        }
+    }
+
+    // the state of a nearest neighbour search
+    private static class Search {
+        private final double x, y;
+        private double distance;
+        private Place best;
+
+        private Search(double x, double y, double distance) {
+            this.x = x;
+            this.y = y;
+            this.distance = distance;
+        }
+
+        // keeps the node if it is at least as close as the best one found so far
+        private void offer(Node node) {
+            double dx = x - node.x;
+            double dy = y - node.y;
+            double d = dx * dx + dy * dy;
+            if (d <= distance) {
+                distance = d;
+                best = node.place;
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.android.gms.tasks.Continuation;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class to chain background stages onto a Task
+ * Every stage runs on the BackgroundExecutor with the output of the stage before it, so a chain of
+ * database calls and processing never hops back to the main thread until the result is delivered.
+ * A pipeline that is started for a lifecycle owner is cancelled when the owner is destroyed: the
+ * stages that have not started are skipped and the result is never delivered.
+ * @param <T> the output of the last stage
+ */
+public class TaskPipeline<T> {
+
+    /**
+     * A stage of a pipeline
+     * @param <I> the output of the stage before
+     * @param <O> the output of this stage
+     */
+    public interface Stage<I, O> {
+        O run(I input) throws Exception;
+    }
+
+    /**
+     * Receives the result of a pipeline on the main thread
+     * @param <T> the output of the last stage
+     */
+    public interface Callback<T> {
+        void onSuccess(T result);
+        void onFailure(@NonNull Exception e);
+    }
+
+    private final Task<T> mTask;
+    private final AtomicBoolean mCancelled;
+
+    private TaskPipeline(Task<T> task, AtomicBoolean cancelled) {
+        mTask = task;
+        mCancelled = cancelled;
+    }
+
+    /**
+     * start()
+     * starts a pipeline that is cancelled when the owner is destroyed, must be called on the
+     * main thread
+     * @param owner the activity or fragment the work is done for
+     * @param first the task whose result is passed to the first stage
+     */
+    public static <T> TaskPipeline<T> start(@NonNull LifecycleOwner owner, @NonNull Task<T> first) {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) cancelled.set(true);
+        else owner.getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    cancelled.set(true);
+                    source.getLifecycle().removeObserver(this);
+                }
+            }
+        });
+        return new TaskPipeline<>(first, cancelled);
+    }
+
+    /**
+     * startDetached()
+     * starts a pipeline whose stages run to the end even if the screen that started it is
+     * destroyed, for work such as deletes that must not be left half done
+     * @param first the task whose result is passed to the first stage
+     */
+    public static <T> TaskPipeline<T> startDetached(@NonNull Task<T> first) {
+        return new TaskPipeline<>(first, new AtomicBoolean());
+    }
+
+    /**
+     * then()
+     * @param stage a stage that turns the output of the previous stage into a new value
+     * @return the pipeline with the stage added
+     */
+    public <O> TaskPipeline<O> then(final Stage<T, O> stage) {
+        return new TaskPipeline<>(mTask.continueWith(BackgroundExecutor.get(), new Continuation<T, O>() {
+            @Override
+            public O then(@NonNull Task<T> task) throws Exception {
+                return stage.run(inputOf(task));
+            }
+        }), mCancelled);
+    }
+
+    /**
+     * thenTask()
+     * @param stage a stage that starts another task, such as a database call, with the output of
+     *              the previous stage
+     * @return the pipeline with the stage added, the next stage gets the result of the new task
+     */
+    public <O> TaskPipeline<O> thenTask(final Stage<T, Task<O>> stage) {
+        return new TaskPipeline<>(mTask.continueWithTask(BackgroundExecutor.get(), new Continuation<T, Task<O>>() {
+            @Override
+            public Task<O> then(@NonNull Task<T> task) throws Exception {
+                return stage.run(inputOf(task));
+            }
+        }), mCancelled);
+    }
+
+    /**
+     * deliver()
+     * delivers the output of the last stage, or the first failure, on the main thread, unless the
+     * pipeline was cancelled or the owner has been destroyed
+     * @param owner the activity or fragment that receives the result
+     * @param callback the callback
+     */
+    public void deliver(@NonNull final LifecycleOwner owner, @NonNull final Callback<T> callback) {
+        mTask.addOnCompleteListener(new OnCompleteListener<T>() {
+            @Override
+            public void onComplete(@NonNull Task<T> task) {
+                if (isCancelled() || owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) return;
+                if (task.isSuccessful()) callback.onSuccess(task.getResult());
+                else callback.onFailure(failureOf(task));
+            }
+        });
+    }
+
+    /**
+     * getTask()
+     * @return the task of the last stage
+     */
+    public Task<T> getTask() {
+        return mTask;
+    }
+
+    /**
+     * isCancelled()
+     * @return whether the owner of the pipeline has been destroyed
+     */
+    public boolean isCancelled() {
+        return mCancelled.get();
+    }
+
+    // returns the output of the previous stage, or throws to skip the rest of the pipeline
+    @Nullable
+    private <I> I inputOf(Task<I> task) throws Exception {
+        if (mCancelled.get()) throw new CancellationException("pipeline cancelled");
+        if (!task.isSuccessful()) throw failureOf(task);
+        return task.getResult();
+    }
+
+    // returns the exception that made a task fail
+    private static Exception failureOf(Task<?> task) {
+        if (task.getException() != null) return task.getException();
+        return new CancellationException("task cancelled");
+    }
+}
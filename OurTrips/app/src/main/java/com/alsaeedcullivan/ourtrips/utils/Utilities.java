@@ -1,7 +1,5 @@
 package com.alsaeedcullivan.ourtrips.utils;
 
-import java.text.SimpleDateFormat;
-import java.util.Locale;
 import java.util.regex.Pattern;
 
 /**
@@ -0,0 +1,88 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import com.alsaeedcullivan.ourtrips.models.GroupMatch;
+import com.alsaeedcullivan.ourtrips.models.TripWindow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Class to find the best contiguous windows of days for a group to go on a trip
+ * Every window of the given length is scored in a single pass over the group match:
+ * the participants free for the whole window are found with a sliding AND of the daily masks
+ * (using block prefix and suffix ANDs so that each window costs O(1)), and the attendance is a
+ * sliding sum of the daily counts.
+ */
+public class WindowFinder {
+
+    /**
+     * findBest()
+     * @param match the group match to search
+     * @param length the number of days in the trip
+     * @param minAttendees the minimum number of participants, including the current user, that
+     *                     must be free on every day of the window
+     * @param k the maximum number of windows to return
+     * @return the best windows, sorted from best to worst
+     */
+    public static List<TripWindow> findBest(GroupMatch match, int length, int minAttendees, int k) {
+        int days = match.getLength();
+        if (length <= 0 || length > days || k <= 0) return new ArrayList<>();
+
+        // prefix[i] is the AND of the masks from the start of i's block up to i,
+        // suffix[i] is the AND of the masks from i to the end of i's block
+        long[] prefix = new long[days];
+        long[] suffix = new long[days];
+        for (int i = 0; i < days; i++) {
+            long mask = match.getMask(match.getStart() + i);
+            prefix[i] = i % length == 0 ? mask : prefix[i - 1] & mask;
+        }
+        for (int i = days - 1; i >= 0; i--) {
+            long mask = match.getMask(match.getStart() + i);
+            suffix[i] = i == days - 1 || (i + 1) % length == 0 ? mask : suffix[i + 1] & mask;
+        }
+
+        // keep the k best windows in a min heap so the worst one can be evicted
+        Comparator<TripWindow> comparator = rank();
+        PriorityQueue<TripWindow> best = new PriorityQueue<>(k, Collections.reverseOrder(comparator));
+        int sum = 0;
+        for (int i = 0; i < days; i++) {
+            sum += Long.bitCount(match.getMask(match.getStart() + i));
+            if (i >= length) sum -= Long.bitCount(match.getMask(match.getStart() + i - length));
+            if (i < length - 1) continue;
+
+            // the window [first, i] spans at most two blocks
+            int first = i - length + 1;
+            long attendees = first % length == 0 ? suffix[first] : suffix[first] & prefix[i];
+            // the current user must be able to go
+            if ((attendees & 1L) == 0 || Long.bitCount(attendees) < minAttendees) continue;
+
+            TripWindow window = new TripWindow(match.getStart() + first, length, attendees, sum);
+            if (best.size() < k) best.add(window);
+            else if (comparator.compare(window, best.peek()) < 0) {
+                best.poll();
+                best.add(window);
+            }
+        }
+
+        List<TripWindow> result = new ArrayList<>(best);
+        Collections.sort(result, comparator);
+        return result;
+    }
+
+    // orders windows from best to worst: most attendees, then most attendance, then earliest
+    private static Comparator<TripWindow> rank() {
+        return new Comparator<TripWindow>() {
+            @Override
+            public int compare(TripWindow a, TripWindow b) {
+                if (a.getAttendeeCount() != b.getAttendeeCount()) {
+                    return b.getAttendeeCount() - a.getAttendeeCount();
+                }
+                if (a.getAttendance() != b.getAttendance()) return b.getAttendance() - a.getAttendance();
+                return a.getStart() - b.getStart();
+            }
+        };
+    }
+}
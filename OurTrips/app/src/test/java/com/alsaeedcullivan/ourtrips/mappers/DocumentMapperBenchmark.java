@@ -0,0 +1,84 @@
+package com.alsaeedcullivan.ourtrips.mappers;
+
+import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.google.firebase.firestore.PropertyName;
+import com.google.firebase.firestore.util.CustomClassMapper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Benchmark of PlanMapper against the reflection based mapping of DocumentSnapshot.toObject()
+ * toObject() converts the fields of a document with CustomClassMapper, so the same 2000 plan
+ * documents are converted with both. The stored keys do not match the properties of Plan, so
+ * toObject() would need a bean like PlanBean to read them.
+ * This is not a unit test, so it does not run with the test suite and never fails on a slow
+ * machine. Run its main method to print the average time of mapping every document with each.
+ */
+public class DocumentMapperBenchmark {
+
+    private static final int DOCUMENTS = 2000;
+    private static final int WARM_UP_RUNS = 20;
+    private static final int RUNS = 20;
+
+    public static void main(String[] args) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object>[] docs = new Map[DOCUMENTS];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            docs[i] = new HashMap<>();
+            docs[i].put(Const.USER_ID_KEY, "user" + i);
+            docs[i].put(Const.USER_NAME_KEY, "name" + i);
+            docs[i].put(Const.TRIP_COMMENT_KEY, "comment " + i);
+            docs[i].put(Const.TRIP_TIMESTAMP_KEY, 1590000000000L + i);
+        }
+
+        // warm up both before timing
+        long checksum = 0;
+        for (int i = 0; i < WARM_UP_RUNS; i++) checksum += mapAll(docs) + reflectAll(docs);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) checksum += mapAll(docs);
+        long mapped = (System.nanoTime() - start) / RUNS;
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) checksum += reflectAll(docs);
+        long reflected = (System.nanoTime() - start) / RUNS;
+
+        System.out.println(DOCUMENTS + " plans: PlanMapper " + mapped / 1000 + "us, toObject "
+                + reflected / 1000 + "us");
+        // printed so the timed work cannot be optimized away
+        System.out.println("checksum " + checksum);
+    }
+
+    // maps every document and returns the sum of their timestamps
+    private static long mapAll(Map<String, Object>[] docs) {
+        long sum = 0;
+        for (int i = 0; i < docs.length; i++) sum += PlanMapper.INSTANCE.map("doc" + i, docs[i]).getPlanTimeStamp();
+        return sum;
+    }
+
+    // converts every document the way toObject() does and returns the sum of their timestamps
+    private static long reflectAll(Map<String, Object>[] docs) {
+        long sum = 0;
+        for (Map<String, Object> doc : docs) {
+            sum += CustomClassMapper.convertToCustomClass(doc, PlanBean.class, null).timestamp;
+        }
+        return sum;
+    }
+
+    /**
+     * PlanBean
+     * the class a plan document would be converted to with toObject()
+     */
+    public static class PlanBean {
+        @PropertyName(Const.USER_ID_KEY)
+        public String userId;
+        @PropertyName(Const.USER_NAME_KEY)
+        public String name;
+        @PropertyName(Const.TRIP_COMMENT_KEY)
+        public String comment;
+        @PropertyName(Const.TRIP_TIMESTAMP_KEY)
+        public long timestamp;
+
+        public PlanBean() { }
+    }
+}
@@ -0,0 +1,108 @@
+package com.alsaeedcullivan.ourtrips.mappers;
+
+import com.alsaeedcullivan.ourtrips.models.Plan;
+import com.alsaeedcullivan.ourtrips.models.TripAggregate;
+import com.alsaeedcullivan.ourtrips.utils.Const;
+import com.google.firebase.firestore.GeoPoint;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the document mappers
+ */
+public class DocumentMapperTest {
+
+    @Test
+    public void plan_toleratesMissingFields() {
+        Plan plan = PlanMapper.INSTANCE.map("doc", new HashMap<String, Object>());
+
+        assertEquals("doc", plan.getPlanDocId());
+        assertEquals("", plan.getMessage());
+        assertEquals("", plan.getPlanUserName());
+        assertEquals(0, plan.getPlanTimeStamp());
+    }
+
+    @Test
+    public void plan_toleratesMistypedFields() {
+        Map<String, Object> data = planData(7);
+        data.put(Const.USER_NAME_KEY, 12L);
+        // numbers written from javascript may come back as doubles
+        data.put(Const.TRIP_TIMESTAMP_KEY, 1590000000000.0);
+        Plan plan = PlanMapper.INSTANCE.map("doc", data);
+
+        assertEquals("", plan.getPlanUserName());
+        assertEquals(1590000000000L, plan.getPlanTimeStamp());
+    }
+
+    @Test
+    public void pic_skipsDocumentsWithoutAPath() {
+        Map<String, Object> data = new HashMap<>();
+        data.put(Const.TRIP_TIMESTAMP_KEY, 5L);
+
+        assertNull(PicMapper.INSTANCE.map("doc", data));
+        data.put(Const.TRIP_PHOTO_KEY, "trips/a.jpg");
+        assertEquals(5L, PicMapper.INSTANCE.map("doc", data).getPicDate());
+    }
+
+    @Test
+    public void parseLocation_rejectsInvalidLocations() {
+        assertEquals(43.7, PlaceMapper.parseLocation("43.7,-72.29").latitude, 0);
+        assertEquals(-72.29, PlaceMapper.parseLocation("43.7, -72.29").longitude, 0);
+        assertNull(PlaceMapper.parseLocation("43.7"));
+        assertNull(PlaceMapper.parseLocation("north,west"));
+        assertNull(PlaceMapper.parseLocation(null));
+    }
+
+    @Test
+    public void readLocation_acceptsGeoPointsAndLegacyStrings() {
+        assertEquals(43.7, PlaceMapper.readLocation(new GeoPoint(43.7, -72.29)).latitude, 0);
+        assertEquals(-72.29, PlaceMapper.readLocation("43.7,-72.29").longitude, 0);
+        assertNull(PlaceMapper.readLocation(12L));
+    }
+
+    @Test
+    public void tripAggregate_readsNestedComment() {
+        Map<String, Object> comment = new HashMap<>();
+        comment.put(Const.TRIP_COMMENT_KEY, "see you there");
+        comment.put(Const.USER_NAME_KEY, "Sam");
+        comment.put(Const.TRIP_TIMESTAMP_KEY, 9L);
+        Map<String, Object> data = new HashMap<>();
+        data.put(Const.TRIP_PHOTO_COUNT_KEY, 3L);
+        data.put(Const.TRIP_LATEST_COMMENT_KEY, comment);
+        data.put(Const.TRIP_TRIPPER_NAMES_KEY, Arrays.asList("Sam", 4L, "Alex"));
+        TripAggregate aggregate = TripAggregateMapper.INSTANCE.map("trip", data);
+
+        assertEquals(3, aggregate.getPhotoCount());
+        assertEquals(0, aggregate.getLocationCount());
+        assertEquals("", aggregate.getCoverPhoto());
+        assertEquals("see you there", aggregate.getLatestPlan().getMessage());
+        assertEquals(Arrays.asList("Sam", "Alex"), aggregate.getTripperNames());
+        assertNull(TripAggregateMapper.INSTANCE.map("trip", new HashMap<String, Object>()).getLatestPlan());
+    }
+
+    @Test
+    public void plan_readsEveryField() {
+        Plan plan = PlanMapper.INSTANCE.map("doc", planData(3));
+
+        assertEquals("doc", plan.getPlanDocId());
+        assertEquals("user3", plan.getPlanUserId());
+        assertEquals("name3", plan.getPlanUserName());
+        assertEquals("comment 3", plan.getMessage());
+        assertEquals(1590000000003L, plan.getPlanTimeStamp());
+    }
+
+    private static Map<String, Object> planData(int i) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(Const.USER_ID_KEY, "user" + (i % 10));
+        data.put(Const.USER_NAME_KEY, "name" + (i % 10));
+        data.put(Const.TRIP_COMMENT_KEY, "comment " + i);
+        data.put(Const.TRIP_TIMESTAMP_KEY, 1590000000000L + i);
+        return data;
+    }
+}
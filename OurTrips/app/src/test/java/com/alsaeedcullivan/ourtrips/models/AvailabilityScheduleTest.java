@@ -0,0 +1,90 @@
+package com.alsaeedcullivan.ourtrips.models;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for recurring availability rules
+ */
+public class AvailabilityScheduleTest {
+
+    // 06/06/2020 was a Saturday
+    private static final int SATURDAY = 18419;
+    private static final int WEEKENDS = (1 << 5) | (1 << 6);
+
+    @Test
+    public void weekday_startsOnMonday() {
+        assertEquals(5, AvailabilityRule.weekday(SATURDAY));
+        assertEquals(3, AvailabilityRule.weekday(0));
+        assertEquals(0, AvailabilityRule.weekday(SATURDAY + 2));
+    }
+
+    @Test
+    public void covered_expandsOnlyTheWindow() {
+        List<AvailabilityRule> rules = new ArrayList<>();
+        rules.add(AvailabilityRule.weekly(WEEKENDS, AvailabilityRule.OPEN_START));
+        AvailabilitySchedule schedule = new AvailabilitySchedule(new Availability(), rules);
+
+        Availability covered = schedule.covered(SATURDAY - 5, 14);
+        assertArrayEquals(new int[] {SATURDAY, SATURDAY + 1, SATURDAY + 7, SATURDAY + 8},
+                covered.toEpochDays());
+        assertFalse(covered.contains(SATURDAY + 14));
+    }
+
+    @Test
+    public void exclusions_winOverIncludes_butNotPickedDays() {
+        // free on fridays in the summer, except for one week
+        List<AvailabilityRule> rules = new ArrayList<>();
+        rules.add(new AvailabilityRule(1 << 4, SATURDAY - 1, SATURDAY + 90, false));
+        AvailabilitySchedule schedule = new AvailabilitySchedule(
+                Availability.fromEpochDays(new int[] {SATURDAY + 6}), rules);
+        schedule.exclude(Availability.fromEpochDays(new int[] {SATURDAY + 4, SATURDAY + 5, SATURDAY + 6}));
+
+        assertEquals(2, schedule.getRules().size());
+        assertTrue(schedule.contains(SATURDAY - 1));
+        assertFalse(schedule.isCovered(SATURDAY + 6));
+        // the excluded friday was also picked one by one
+        assertTrue(schedule.contains(SATURDAY + 6));
+        assertFalse(schedule.contains(SATURDAY + 97));
+
+        Availability window = schedule.window(SATURDAY, 30);
+        assertArrayEquals(new int[] {SATURDAY + 6, SATURDAY + 13, SATURDAY + 20, SATURDAY + 27},
+                window.toEpochDays());
+    }
+
+    @Test
+    public void covered_matchesIsCovered() {
+        List<AvailabilityRule> rules = new ArrayList<>();
+        rules.add(AvailabilityRule.weekly(WEEKENDS | 1, SATURDAY + 3));
+        rules.add(new AvailabilityRule(AvailabilityRule.EVERY_DAY, SATURDAY + 40, SATURDAY + 60, false));
+        rules.add(AvailabilityRule.exclusion(SATURDAY + 50, SATURDAY + 55));
+        rules.add(new AvailabilityRule(1 << 6, AvailabilityRule.OPEN_START, SATURDAY + 200, true));
+        AvailabilitySchedule schedule = new AvailabilitySchedule(new Availability(), rules);
+
+        int from = SATURDAY - 30;
+        Availability covered = schedule.covered(from, 366);
+        for (int day = from - 10; day < from + 376; day++) {
+            boolean inWindow = day >= from && day < from + 366;
+            assertEquals("day " + day, inWindow && schedule.isCovered(day), covered.contains(day));
+        }
+    }
+
+    @Test
+    public void setWeekdays_replacesTheWeeklyRule() {
+        AvailabilitySchedule schedule = new AvailabilitySchedule();
+        schedule.setWeekdays(WEEKENDS, SATURDAY);
+        schedule.exclude(Availability.fromEpochDays(new int[] {SATURDAY}));
+        schedule.setWeekdays(1 << 4, SATURDAY);
+
+        assertEquals(1 << 4, schedule.getWeekdays());
+        assertEquals(2, schedule.getRules().size());
+        schedule.dropBefore(SATURDAY + 1);
+        assertEquals(1, schedule.getRules().size());
+        schedule.setWeekdays(0, SATURDAY);
+        assertTrue(schedule.getRules().isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package com.alsaeedcullivan.ourtrips.models;
+
+import com.alsaeedcullivan.ourtrips.utils.AvailabilityCodec;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the packed availability bitset
+ */
+public class AvailabilityTest {
+
+    @Test
+    public void fromEpochDays_roundTrips() {
+        int[] days = new int[] {18400, 18401, 18463, 18464, 18700};
+        Availability a = Availability.fromEpochDays(days);
+
+        assertEquals(0, a.getBase() % 64);
+        assertEquals(days.length, a.size());
+        assertArrayEquals(days, a.toEpochDays());
+        assertTrue(a.contains(18463));
+        assertFalse(a.contains(18462));
+    }
+
+    @Test
+    public void add_growsInBothDirections() {
+        Availability a = new Availability();
+        a.add(18500);
+        a.add(18300);
+        a.add(18900);
+        a.remove(18500);
+
+        assertArrayEquals(new int[] {18300, 18900}, a.toEpochDays());
+    }
+
+    @Test
+    public void and_intersectsWordByWord() {
+        Availability a = Availability.fromEpochDays(new int[] {18396, 18397, 18430, 18500, 18800});
+        Availability b = Availability.fromEpochDays(new int[] {18397, 18430, 18431, 18800, 19000});
+
+        assertArrayEquals(new int[] {18397, 18430, 18800}, a.and(b).toEpochDays());
+        assertArrayEquals(new int[] {18397, 18430, 18800}, b.and(a).toEpochDays());
+        assertTrue(a.and(new Availability()).isEmpty());
+    }
+
+    @Test
+    public void intersectionSize_matchesAnd() {
+        Availability a = Availability.fromEpochDays(new int[] {18396, 18397, 18430, 18500, 18800});
+        Availability b = Availability.fromEpochDays(new int[] {18397, 18430, 18431, 18800, 19000});
+
+        assertEquals(a.and(b).size(), a.intersectionSize(b));
+        assertEquals(3, b.intersectionSize(a));
+        assertEquals(0, a.intersectionSize(new Availability()));
+    }
+
+    @Test
+    public void intersectionSize_matchesAndForFriendsStartingOnAnyDay() {
+        Availability user = new Availability();
+        for (int d = 0; d < 365; d += 2) user.add(18400 + d);
+        // each friend starts a day earlier, so their words are aligned differently from the user's
+        for (int f = 0; f < 200; f++) {
+            Availability friend = new Availability();
+            for (int d = 0; d < 365; d++) if ((d + f) % 3 != 0) friend.add(18400 - f + d);
+
+            assertEquals(user.and(friend).size(), user.intersectionSize(friend));
+            assertEquals(user.intersectionSize(friend), friend.intersectionSize(user));
+        }
+    }
+
+    @Test
+    public void deltas_mergeConcurrentEdits() {
+        Availability loaded = Availability.fromEpochDays(new int[] {18400, 18401, 18402});
+
+        // this device removes 18401 and adds a day far in the future
+        Availability selected = Availability.fromEpochDays(new int[] {18400, 18402, 19000});
+        Availability added = selected.andNot(loaded);
+        Availability removed = loaded.andNot(selected);
+        assertArrayEquals(new int[] {19000}, added.toEpochDays());
+        assertArrayEquals(new int[] {18401}, removed.toEpochDays());
+
+        // meanwhile another device added an earlier day
+        Availability latest = Availability.fromEpochDays(new int[] {18300, 18400, 18401, 18402});
+        latest.addAll(added);
+        latest.removeAll(removed);
+        assertArrayEquals(new int[] {18300, 18400, 18402, 19000}, latest.toEpochDays());
+    }
+
+    @Test
+    public void from_dropsEarlierDays() {
+        Availability a = Availability.fromEpochDays(new int[] {18390, 18400, 18410, 18500});
+
+        assertArrayEquals(new int[] {18410, 18500}, a.from(18401).toEpochDays());
+        assertArrayEquals(new int[] {18400, 18410, 18500}, a.from(18400).toEpochDays());
+        assertTrue(a.from(18501).isEmpty());
+    }
+
+    @Test
+    public void compact_trimsEmptyWords() {
+        Availability a = Availability.fromEpochDays(new int[] {18200, 18500, 18800});
+        Availability pruned = a.from(18450).compact();
+
+        assertArrayEquals(new int[] {18500, 18800}, pruned.toEpochDays());
+        assertEquals(18496, pruned.getBase());
+        assertEquals(5, pruned.getWords().length);
+        assertTrue(a.from(18900).compact().isEmpty());
+        assertEquals(0, a.from(18900).compact().getWords().length);
+    }
+
+    @Test
+    public void bytes_roundTrip() {
+        long[] words = new long[] {0x8000000000000001L, 0L, 0x0123456789ABCDEFL};
+        assertArrayEquals(words, AvailabilityCodec.fromBytes(AvailabilityCodec.toBytes(words)));
+    }
+}
@@ -0,0 +1,61 @@
+package com.alsaeedcullivan.ourtrips.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of scoring 200 friends on the match screen by the days they have in common with the user
+ * This is not a unit test, so it does not run with the test suite and never fails on a slow
+ * machine. Run its main method to print the average time to score every friend, which should stay
+ * well under 5ms.
+ */
+public class FriendScoringBenchmark {
+
+    private static final int FRIENDS = 200;
+    // the same window as the match screen
+    private static final int WINDOW_DAYS = 366;
+    private static final int TODAY = 18400;
+    private static final int WARM_UP_RUNS = 200;
+    private static final int RUNS = 200;
+
+    public static void main(String[] args) {
+        Random random = new Random(7);
+        Availability user = schedule(random).window(TODAY, WINDOW_DAYS);
+        List<AvailabilitySchedule> friends = new ArrayList<>();
+        for (int f = 0; f < FRIENDS; f++) friends.add(schedule(random));
+
+        // warm up before timing
+        long total = 0;
+        for (int i = 0; i < WARM_UP_RUNS; i++) total += score(user, friends);
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) total += score(user, friends);
+        long average = (System.nanoTime() - start) / RUNS;
+        System.out.println(FRIENDS + " friends scored in " + average / 1000 + "us (" + total + " days in common)");
+    }
+
+    // scores every friend the way the match screen does, expanding their rules over the window
+    private static long score(Availability user, List<AvailabilitySchedule> friends) {
+        long total = 0;
+        for (AvailabilitySchedule friend : friends) {
+            total += user.intersectionSize(friend.window(TODAY, WINDOW_DAYS));
+        }
+        return total;
+    }
+
+    // a user who picked some days one by one, usually with a weekly rule and a trip away
+    private static AvailabilitySchedule schedule(Random random) {
+        Availability days = new Availability();
+        for (int i = 0; i < 60; i++) days.add(TODAY - 30 + random.nextInt(WINDOW_DAYS + 30));
+        List<AvailabilityRule> rules = new ArrayList<>();
+        if (random.nextInt(3) > 0) {
+            rules.add(AvailabilityRule.weekly(random.nextInt(AvailabilityRule.EVERY_DAY) + 1,
+                    TODAY - random.nextInt(100)));
+        }
+        if (random.nextBoolean()) {
+            int away = TODAY + random.nextInt(WINDOW_DAYS);
+            rules.add(AvailabilityRule.exclusion(away, away + 14));
+        }
+        return new AvailabilitySchedule(days, rules);
+    }
+}
@@ -0,0 +1,80 @@
+package com.alsaeedcullivan.ourtrips.models;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for matching the availability of a group of users
+ */
+public class GroupMatchTest {
+
+    @Test
+    public void compute_countsFreeParticipantsPerDay() {
+        ArrayList<UserSummary> participants = participants(3);
+        List<Availability> availabilities = new ArrayList<>();
+        availabilities.add(Availability.fromEpochDays(new int[] {18400, 18401, 18402}));
+        availabilities.add(Availability.fromEpochDays(new int[] {18401, 18402, 18500}));
+        availabilities.add(Availability.fromEpochDays(new int[] {18402}));
+
+        GroupMatch match = GroupMatch.compute(participants, availabilities, 18400, 30);
+
+        assertEquals(1, match.getCount(18400));
+        assertEquals(2, match.getCount(18401));
+        assertEquals(3, match.getCount(18402));
+        // outside of the window
+        assertEquals(0, match.getCount(18500));
+        assertTrue(match.isFree(18401, 1));
+        assertFalse(match.isFree(18401, 2));
+        assertEquals(2, match.getFreeFriends(18402).size());
+        assertTrue(match.hasCommonDay());
+    }
+
+    @Test
+    public void hasCommonDay_requiresTheCurrentUser() {
+        List<Availability> availabilities = new ArrayList<>();
+        availabilities.add(Availability.fromEpochDays(new int[] {18400}));
+        availabilities.add(Availability.fromEpochDays(new int[] {18401}));
+        availabilities.add(Availability.fromEpochDays(new int[] {18401}));
+
+        GroupMatch match = GroupMatch.compute(participants(3), availabilities, 18400, 30);
+
+        assertEquals(2, match.getCount(18401));
+        assertFalse(match.hasCommonDay());
+    }
+
+    @Test
+    public void compute_matchesBruteForceForFiftyFriends() {
+        List<Availability> availabilities = new ArrayList<>();
+        for (int p = 0; p < 51; p++) {
+            Availability a = new Availability();
+            for (int d = 0; d < 365; d++) if ((d * 31 + p * 7) % 3 != 0) a.add(18400 + d);
+            availabilities.add(a);
+        }
+
+        GroupMatch match = GroupMatch.compute(participants(51), availabilities, 18400, 365);
+
+        for (int day = 18400; day < 18400 + 365; day++) {
+            int count = 0;
+            for (int p = 0; p < availabilities.size(); p++) {
+                boolean free = availabilities.get(p).contains(day);
+                if (free) count++;
+                assertEquals(free, match.isFree(day, p));
+            }
+            assertEquals(count, match.getCount(day));
+        }
+    }
+
+    private static ArrayList<UserSummary> participants(int n) {
+        ArrayList<UserSummary> participants = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            UserSummary u = new UserSummary();
+            u.setUserId("user" + i);
+            participants.add(u);
+        }
+        return participants;
+    }
+}
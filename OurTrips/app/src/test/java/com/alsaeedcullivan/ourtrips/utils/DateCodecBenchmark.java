@@ -0,0 +1,81 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Benchmark of the date codec against SimpleDateFormat on 1000 "MM/dd/yyyy" dates
+ * This is not a unit test, so it does not run with the test suite and never fails on a slow
+ * machine. Run its main method to print the average time of parsing and formatting every date
+ * with each of them.
+ */
+public class DateCodecBenchmark {
+
+    private static final int DATES = 1000;
+    private static final int WARM_UP_RUNS = 50;
+    private static final int RUNS = 50;
+
+    public static void main(String[] args) throws ParseException {
+        String[] dates = new String[DATES];
+        Date[] instants = new Date[DATES];
+        for (int i = 0; i < DATES; i++) {
+            dates[i] = DateCodec.format(18000 + i);
+            instants[i] = DateCodec.toDate(18000 + i);
+        }
+        long sink = 0;
+
+        // warm up both paths before timing
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            sink += parseWithCodec(dates) + parseWithFormat(dates);
+            sink += formatWithCodec(instants) + formatWithFormat(instants);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) sink += parseWithCodec(dates);
+        long codecParse = (System.nanoTime() - start) / RUNS;
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) sink += parseWithFormat(dates);
+        long formatParse = (System.nanoTime() - start) / RUNS;
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) sink += formatWithCodec(instants);
+        long codecFormat = (System.nanoTime() - start) / RUNS;
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) sink += formatWithFormat(instants);
+        long formatFormat = (System.nanoTime() - start) / RUNS;
+
+        System.out.println("parse " + DATES + " dates: codec " + codecParse / 1000 + "us, SimpleDateFormat "
+                + formatParse / 1000 + "us");
+        System.out.println("format " + DATES + " dates: codec " + codecFormat / 1000 + "us, SimpleDateFormat "
+                + formatFormat / 1000 + "us");
+        // printed so the timed work cannot be optimized away
+        System.out.println("checksum " + sink);
+    }
+
+    private static long parseWithCodec(String[] dates) {
+        long sum = 0;
+        for (String date : dates) sum += DateCodec.parseDate(date).getTime();
+        return sum;
+    }
+
+    private static long parseWithFormat(String[] dates) throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("MM/dd/yyyy", Locale.US);
+        long sum = 0;
+        for (String date : dates) sum += format.parse(date).getTime();
+        return sum;
+    }
+
+    private static long formatWithCodec(Date[] instants) {
+        long sum = 0;
+        for (Date instant : instants) sum += DateCodec.format(instant).length();
+        return sum;
+    }
+
+    private static long formatWithFormat(Date[] instants) {
+        SimpleDateFormat format = new SimpleDateFormat("MM/dd/yyyy", Locale.US);
+        long sum = 0;
+        for (Date instant : instants) sum += format.format(instant).length();
+        return sum;
+    }
+}
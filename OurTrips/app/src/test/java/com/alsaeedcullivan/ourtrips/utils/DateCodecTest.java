@@ -0,0 +1,59 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the date codec
+ */
+public class DateCodecTest {
+
+    @Test
+    public void parseAndFormat_matchSimpleDateFormat() throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("MM/dd/yyyy", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        // every day from 1900 to 2100
+        for (int day = -25567; day < 47482; day++) {
+            String expected = format.format(new Date(day * 86400000L));
+            assertEquals(expected, DateCodec.format(day));
+            assertEquals(day, DateCodec.parse(expected));
+            assertEquals(format.parse(expected).getTime() / 86400000L, DateCodec.parse(expected));
+        }
+    }
+
+    @Test
+    public void parse_rejectsInvalidDates() {
+        assertEquals(DateCodec.INVALID, DateCodec.parse(null));
+        assertEquals(DateCodec.INVALID, DateCodec.parse(""));
+        assertEquals(DateCodec.INVALID, DateCodec.parse("13/01/2020"));
+        assertEquals(DateCodec.INVALID, DateCodec.parse("02/30/2020"));
+        assertEquals(DateCodec.INVALID, DateCodec.parse("02/29/2019"));
+        assertEquals(DateCodec.INVALID, DateCodec.parse("01/01/2020/"));
+        assertEquals(DateCodec.INVALID, DateCodec.parse("01-01-2020"));
+        assertEquals(DateCodec.INVALID, DateCodec.parse("01//2020"));
+        assertEquals(DateCodec.parse("02/29/2020"), DateCodec.parse("2/29/2020"));
+    }
+
+    @Test
+    public void toDate_roundTripsInEveryTimeZone() {
+        TimeZone original = TimeZone.getDefault();
+        try {
+            for (String id : new String[] {"UTC", "America/New_York", "America/Sao_Paulo",
+                    "Australia/Lord_Howe", "Pacific/Apia", "Asia/Kolkata"}) {
+                TimeZone.setDefault(TimeZone.getTimeZone(id));
+                for (int day = 18000; day < 19000; day++) {
+                    assertEquals(id + " " + day, day, DateCodec.toEpochDay(DateCodec.toDate(day)));
+                }
+            }
+        } finally {
+            TimeZone.setDefault(original);
+        }
+    }
+}
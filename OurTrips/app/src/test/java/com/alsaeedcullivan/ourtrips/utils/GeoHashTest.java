@@ -0,0 +1,77 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the geohash encoding and range queries
+ */
+public class GeoHashTest {
+
+    @Test
+    public void encode_matchesKnownHashes() {
+        assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11));
+        assertEquals("dru8eh0ux4", GeoHash.encode(43.7044, -72.2887));
+        assertEquals("s", GeoHash.encode(0, 0, 1));
+        assertEquals("0", GeoHash.encode(-90, -180, 1));
+    }
+
+    @Test
+    public void encode_sharesPrefixesBetweenNearbyLocations() {
+        String hash = GeoHash.encode(43.7044, -72.2887);
+        String near = GeoHash.encode(43.7046, -72.2885);
+        assertEquals(hash.substring(0, 6), near.substring(0, 6));
+        assertTrue(GeoHash.encode(43.7044, -72.2887, 5).startsWith(hash.substring(0, 5)));
+    }
+
+    @Test
+    public void queryRanges_coverEveryPointInTheCircle() {
+        double lat = 43.7044, lng = -72.2887, radius = 25000;
+        List<String[]> ranges = GeoHash.queryRanges(lat, lng, radius);
+        assertTrue(ranges.size() <= 9);
+
+        // points just inside the edge of the circle in every direction
+        for (int degrees = 0; degrees < 360; degrees += 5) {
+            double bearing = Math.toRadians(degrees);
+            double dLat = Math.toDegrees(radius * 0.999 * Math.cos(bearing) / 6371008.8);
+            double dLng = Math.toDegrees(radius * 0.999 * Math.sin(bearing) / 6371008.8) /
+                    Math.cos(Math.toRadians(lat + dLat));
+            assertTrue(GeoHash.distance(lat, lng, lat + dLat, lng + dLng) <= radius);
+            assertTrue("not covered at " + degrees + " degrees",
+                    covered(ranges, GeoHash.encode(lat + dLat, lng + dLng)));
+        }
+    }
+
+    @Test
+    public void queryRanges_wrapAroundTheAntimeridian() {
+        List<String[]> ranges = GeoHash.queryRanges(0, 179.99, 5000);
+        assertTrue(covered(ranges, GeoHash.encode(0, -179.99)));
+    }
+
+    @Test
+    public void distance_matchesKnownDistance() {
+        // Hanover, NH to Boston, MA is about 180 km
+        assertEquals(180,GeoHash.distance(43.7044, -72.2887, 42.3601, -71.0589) / 1000, 2);
+    }
+
+    @Test
+    public void encode_rejectsInvalidPrecision() {
+        try {
+            GeoHash.encode(0, 0, 13);
+            fail("a precision of 13 was accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    // returns whether a geohash is within one of the ranges
+    private static boolean covered(List<String[]> ranges, String hash) {
+        for (String[] range : ranges) {
+            if (hash.compareTo(range[0]) >= 0 && hash.compareTo(range[1]) <= 0) return true;
+        }
+        return false;
+    }
+}
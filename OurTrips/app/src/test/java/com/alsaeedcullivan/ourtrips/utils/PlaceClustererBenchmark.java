@@ -0,0 +1,47 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import com.alsaeedcullivan.ourtrips.models.Place;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of building the clusters of a trip with 10000 places
+ * This is not a unit test, so it does not run with the test suite and never fails on a slow
+ * machine. Run its main method to print the average time of a build at each zoom level.
+ */
+public class PlaceClustererBenchmark {
+
+    private static final int PLACES = 10000;
+    private static final int WARM_UP_RUNS = 20;
+    private static final int RUNS = 20;
+
+    public static void main(String[] args) {
+        Random random = new Random(7);
+        List<Place> places = new ArrayList<>();
+        for (int i = 0; i < PLACES; i++) {
+            // a road trip across the continental united states
+            places.add(PlaceClustererTest.place("place" + i, 25 + random.nextDouble() * 24,
+                    -124 + random.nextDouble() * 57));
+        }
+        PlaceClusterer clusterer = new PlaceClusterer();
+
+        for (int zoom = 2; zoom <= 18; zoom += 4) {
+            // warm up before timing
+            int clusters = 0;
+            for (int i = 0; i < WARM_UP_RUNS; i++) {
+                clusterer.setPlaces(places);
+                clusters = clusterer.getClusters(zoom).size();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) {
+                clusterer.setPlaces(places);
+                clusterer.getClusters(zoom);
+            }
+            long average = (System.nanoTime() - start) / RUNS;
+            System.out.println("zoom " + zoom + ": " + PLACES + " places in " + clusters +
+                    " clusters, built in " + average / 1000 + "us");
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import com.alsaeedcullivan.ourtrips.models.Place;
+import com.alsaeedcullivan.ourtrips.models.PlaceCluster;
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for clustering the places of a trip
+ */
+public class PlaceClustererTest {
+
+    @Test
+    public void getClusters_groupsNearbyPlaces() {
+        PlaceClusterer clusterer = new PlaceClusterer();
+        List<Place> places = new ArrayList<>();
+        places.add(place("a", 43.7044, -72.2887));
+        places.add(place("b", 43.7046, -72.2885));
+        places.add(place("c", 42.3601, -71.0589));
+        clusterer.setPlaces(places);
+
+        // the two places in Hanover share a cell until the map is zoomed in on the street
+        assertEquals(2, clusterer.getClusters(8).size());
+        assertEquals(3, clusterer.getClusters(20).size());
+        // every place is in exactly one cluster
+        int total = 0;
+        for (PlaceCluster cluster : clusterer.getClusters(8).values()) total += cluster.getSize();
+        assertEquals(3, total);
+    }
+
+    @Test
+    public void getPosition_isThePlaceOrTheCenter() {
+        PlaceCluster cluster = new PlaceCluster(0);
+        Place a = place("a", 10, 20);
+        cluster.add(a);
+        assertSame(a.getLocation(), cluster.getPosition());
+        cluster.add(place("b", 12, 24));
+        assertEquals(11, cluster.getPosition().latitude, 1e-9);
+        assertEquals(22, cluster.getPosition().longitude, 1e-9);
+    }
+
+    @Test
+    public void addAndRemove_updateTheBuiltLevels() {
+        PlaceClusterer clusterer = new PlaceClusterer();
+        Place a = place("a", 43.7044, -72.2887);
+        clusterer.setPlaces(new ArrayList<Place>());
+        clusterer.add(a);
+        assertEquals(1, clusterer.getClusters(10).size());
+
+        Place b = place("b", 43.7046, -72.2885);
+        clusterer.add(b);
+        assertEquals(1, clusterer.getClusters(10).size());
+        assertEquals(2, clusterer.getClusters(10).values().iterator().next().getSize());
+
+        assertTrue(clusterer.remove(a));
+        assertTrue(clusterer.remove(b));
+        assertFalse(clusterer.remove(b));
+        assertTrue(clusterer.getClusters(10).isEmpty());
+        assertEquals(0, clusterer.size());
+    }
+
+    @Test
+    public void getVisible_onlyReturnsClustersInTheRegion() {
+        PlaceClusterer clusterer = new PlaceClusterer();
+        List<Place> places = new ArrayList<>();
+        places.add(place("hanover", 43.7044, -72.2887));
+        places.add(place("boston", 42.3601, -71.0589));
+        places.add(place("fiji", -17.7134, 178.065));
+        places.add(place("samoa", -13.759, -172.1046));
+        clusterer.setPlaces(places);
+
+        Map<Long, PlaceCluster> visible = clusterer.getVisible(12, 43, -73, 44, -72);
+        assertEquals(1, visible.size());
+        assertEquals("hanover", visible.values().iterator().next().getPlaces().get(0).getPlaceName());
+
+        // a region that crosses the antimeridian
+        visible = clusterer.getVisible(4, -30, 170, 0, -170);
+        assertEquals(2, visible.size());
+    }
+
+    @Test
+    public void key_clampsTheEdgesOfTheMap() {
+        // the edges of the map fall into the first and last cells instead of outside the grid
+        long cells = (long) PlaceClusterer.CELLS_PER_TILE << 3;
+        assertEquals(0, PlaceClusterer.key(90, -180, 3));
+        assertEquals((cells - 1) << 32 | (cells - 1), PlaceClusterer.key(-90, 180, 3));
+    }
+
+    static Place place(String name, double lat, double lng) {
+        Place place = new Place();
+        place.setName(name);
+        place.setLocation(new LatLng(lat, lng));
+        return place;
+    }
+}
@@ -0,0 +1,145 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import com.alsaeedcullivan.ourtrips.models.Place;
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for finding the places of a trip by their location
+ */
+public class PlaceIndexTest {
+
+    @Test
+    public void nearest_findsTheClosestPlace() {
+        PlaceIndex index = new PlaceIndex();
+        List<Place> places = new ArrayList<>();
+        Place hanover = place(43.7044, -72.2887);
+        Place boston = place(42.3601, -71.0589);
+        places.add(hanover);
+        places.add(boston);
+        index.setPlaces(places);
+
+        assertSame(hanover, index.nearest(43.6, -72.1));
+        assertSame(boston, index.nearest(42, -71));
+        // a location exactly on a place
+        assertSame(hanover, index.nearest(hanover.getLocation().latitude, hanover.getLocation().longitude));
+        assertNull(new PlaceIndex().nearest(0, 0));
+    }
+
+    @Test
+    public void nearest_respectsTheMaxDistance() {
+        PlaceIndex index = new PlaceIndex();
+        List<Place> places = new ArrayList<>();
+        places.add(place(43.7044, -72.2887));
+        index.setPlaces(places);
+
+        // a degree of longitude is 1 / 360 of the width of the map
+        assertNull(index.nearest(43.7044, -71.2887, 0.5 / 360));
+        assertNotNull(index.nearest(43.7044, -71.2887, 2.0 / 360));
+    }
+
+    @Test
+    public void queries_matchBruteForce() {
+        Random random = new Random(7);
+        List<Place> places = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            places.add(place(-60 + random.nextDouble() * 120, -180 + random.nextDouble() * 360));
+        }
+        PlaceIndex index = new PlaceIndex();
+        index.setPlaces(places);
+
+        for (int trial = 0; trial < 200; trial++) {
+            double lat = -60 + random.nextDouble() * 120;
+            double lng = -180 + random.nextDouble() * 360;
+            assertEquals(bruteNearest(places, lat, lng), distance(index.nearest(lat, lng), lat, lng), 1e-15);
+
+            double south = lat - random.nextDouble() * 20, north = lat + random.nextDouble() * 20;
+            double west = -180 + random.nextDouble() * 360, east = -180 + random.nextDouble() * 360;
+            assertEquals(bruteWithin(places, south, west, north, east),
+                    new HashSet<>(index.within(south, west, north, east)));
+
+            // remove a few places as we go, eventually rebuilding the tree
+            Place removed = places.remove(random.nextInt(places.size()));
+            assertTrue(index.remove(removed));
+            assertFalse(index.remove(removed));
+            assertEquals(places.size(), index.size());
+        }
+    }
+
+    @Test
+    public void add_mixesWithTheTreeAndRebuilds() {
+        Random random = new Random(11);
+        List<Place> places = new ArrayList<>();
+        for (int i = 0; i < 100; i++) places.add(place(random.nextDouble() * 50, random.nextDouble() * 50));
+        PlaceIndex index = new PlaceIndex();
+        index.setPlaces(places);
+
+        // add enough places to move them into the tree more than once, removing some as we go
+        for (int i = 0; i < 300; i++) {
+            Place added = place(random.nextDouble() * 50, random.nextDouble() * 50);
+            index.add(added);
+            places.add(added);
+            assertSame(added, index.nearest(added.getLocation().latitude, added.getLocation().longitude));
+            if (i % 3 == 0) assertTrue(index.remove(places.remove(random.nextInt(places.size()))));
+            assertEquals(places.size(), index.size());
+
+            double lat = random.nextDouble() * 50, lng = random.nextDouble() * 50;
+            assertEquals(bruteNearest(places, lat, lng), distance(index.nearest(lat, lng), lat, lng), 1e-15);
+            assertEquals(bruteWithin(places, lat - 5, lng - 5, lat + 5, lng + 5),
+                    new HashSet<>(index.within(lat - 5, lng - 5, lat + 5, lng + 5)));
+        }
+    }
+
+    @Test
+    public void remove_eventuallyEmptiesTheIndex() {
+        List<Place> places = new ArrayList<>();
+        for (int i = 0; i < 100; i++) places.add(place(10, 20));
+        PlaceIndex index = new PlaceIndex();
+        index.setPlaces(places);
+
+        // every place has the same location, so each one is found by identity alone
+        for (Place place : places) assertTrue(index.remove(place));
+        assertEquals(0, index.size());
+        assertNull(index.nearest(10, 20));
+        assertTrue(index.within(0, 0, 30, 30).isEmpty());
+    }
+
+    private static double bruteNearest(List<Place> places, double lat, double lng) {
+        double best = Double.POSITIVE_INFINITY;
+        for (Place place : places) best = Math.min(best, distance(place, lat, lng));
+        return best;
+    }
+
+    private static HashSet<Place> bruteWithin(List<Place> places, double south, double west,
+                                              double north, double east) {
+        HashSet<Place> inside = new HashSet<>();
+        for (Place place : places) {
+            double lat = place.getLocation().latitude, lng = place.getLocation().longitude;
+            if (lat < south || lat > north) continue;
+            if (west <= east ? lng < west || lng > east : lng < west && lng > east) continue;
+            inside.add(place);
+        }
+        return inside;
+    }
+
+    // the squared distance between a place and a location in map coordinates
+    private static double distance(Place place, double lat, double lng) {
+        double dx = PlaceClusterer.projectX(place.getLocation().longitude) - PlaceClusterer.projectX(lng);
+        double dy = PlaceClusterer.projectY(place.getLocation().latitude) - PlaceClusterer.projectY(lat);
+        return dx * dx + dy * dy;
+    }
+
+    private static Place place(double lat, double lng) {
+        Place place = new Place();
+        place.setLocation(new LatLng(lat, lng));
+        return place;
+    }
+}
@@ -0,0 +1,103 @@
+package com.alsaeedcullivan.ourtrips.utils;
+
+import com.alsaeedcullivan.ourtrips.models.Availability;
+import com.alsaeedcullivan.ourtrips.models.GroupMatch;
+import com.alsaeedcullivan.ourtrips.models.TripWindow;
+import com.alsaeedcullivan.ourtrips.models.UserSummary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for finding the best trip windows of a group match
+ */
+public class WindowFinderTest {
+
+    @Test
+    public void findBest_prefersTheWindowEveryoneCanAttend() {
+        List<Availability> availabilities = new ArrayList<>();
+        availabilities.add(Availability.fromEpochDays(new int[] {100, 101, 102, 103, 104, 105}));
+        availabilities.add(Availability.fromEpochDays(new int[] {100, 101, 103, 104, 105}));
+        availabilities.add(Availability.fromEpochDays(new int[] {102, 103, 104}));
+        GroupMatch match = GroupMatch.compute(participants(3), availabilities, 100, 10);
+
+        List<TripWindow> windows = WindowFinder.findBest(match, 2, 2, 3);
+
+        assertEquals(3, windows.size());
+        // days 103 and 104 are the only pair of days everyone is free
+        assertEquals(103, windows.get(0).getStart());
+        assertEquals(104, windows.get(0).getEnd());
+        assertEquals(3, windows.get(0).getAttendeeCount());
+        // the remaining windows have two attendees, the earliest comes first on a tie
+        assertEquals(2, windows.get(1).getAttendeeCount());
+        assertTrue(windows.get(1).getAttendance() >= windows.get(2).getAttendance());
+    }
+
+    @Test
+    public void findBest_skipsWindowsWithoutTheCurrentUser() {
+        List<Availability> availabilities = new ArrayList<>();
+        availabilities.add(Availability.fromEpochDays(new int[] {100}));
+        availabilities.add(Availability.fromEpochDays(new int[] {101, 102, 103}));
+        availabilities.add(Availability.fromEpochDays(new int[] {101, 102, 103}));
+        GroupMatch match = GroupMatch.compute(participants(3), availabilities, 100, 10);
+
+        assertTrue(WindowFinder.findBest(match, 3, 1, 5).isEmpty());
+    }
+
+    @Test
+    public void findBest_matchesBruteForce() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 50; trial++) {
+            int people = 2 + random.nextInt(10);
+            List<Availability> availabilities = new ArrayList<>();
+            for (int p = 0; p < people; p++) {
+                Availability a = new Availability();
+                for (int d = 0; d < 120; d++) if (random.nextInt(10) < 8) a.add(1000 + d);
+                availabilities.add(a);
+            }
+            GroupMatch match = GroupMatch.compute(participants(people), availabilities, 1000, 120);
+            int length = 1 + random.nextInt(10);
+            int min = 1 + random.nextInt(people);
+
+            List<TripWindow> windows = WindowFinder.findBest(match, length, min, 5);
+            for (TripWindow window : windows) {
+                long and = -1L;
+                int sum = 0;
+                for (int d = window.getStart(); d <= window.getEnd(); d++) {
+                    and &= match.getMask(d);
+                    sum += match.getCount(d);
+                }
+                assertEquals(and, window.getAttendees());
+                assertEquals(sum, window.getAttendance());
+                assertTrue(window.getAttendeeCount() >= min);
+            }
+            // nothing outside of the result should beat the worst window that was returned
+            if (windows.size() == 5) {
+                TripWindow worst = windows.get(4);
+                for (int s = 1000; s + length <= 1120; s++) {
+                    long and = -1L;
+                    for (int d = s; d < s + length; d++) and &= match.getMask(d);
+                    if ((and & 1L) == 0) continue;
+                    assertTrue(Long.bitCount(and) <= worst.getAttendeeCount() ||
+                            containsStart(windows, s));
+                }
+            }
+        }
+    }
+
+    private static boolean containsStart(List<TripWindow> windows, int start) {
+        for (TripWindow window : windows) if (window.getStart() == start) return true;
+        return false;
+    }
+
+    private static ArrayList<UserSummary> participants(int n) {
+        ArrayList<UserSummary> participants = new ArrayList<>();
+        for (int i = 0; i < n; i++) participants.add(new UserSummary());
+        return participants;
+    }
+}
@@ -172,4 +172,614 @@ exports.deleteLocations = functions.firestore.document('trips/{trip}').onDelete(
   .catch(err => {
     console.log(err);
   });
-});
\ No newline at end of file
+});
+
+
+
+/**
+ * Scheduled compaction of the availability stored on each user document
+ * Every night the days before yesterday (UTC, so that no time zone loses its current day) are
+ * dropped from each user's packed bitset, empty words at either end are trimmed, and legacy lists
+ * of "MM/dd/yyyy" strings are converted to the packed format. This keeps user documents bounded
+ * and means clients never download or unpack expired days.
+ */
+const DAY_MILLIS = 24 * 60 * 60 * 1000;
+const WORD_BITS = 64;
+const PRUNE_PAGE_SIZE = 300;
+
+exports.pruneAvailability = functions.pubsub.schedule('every day 03:00').timeZone('UTC').onRun(() => {
+  const cutoff = Math.floor(Date.now() / DAY_MILLIS) - 1;
+  return prunePage(cutoff, null, 0)
+    .then((pruned) => {
+      console.log('pruned the availability of ' + pruned + ' users');
+      return null;
+    });
+});
+
+// prunes one page of users, then moves on to the next page
+function prunePage(cutoff, last, pruned) {
+  let query = db.collection('users').orderBy(admin.firestore.FieldPath.documentId()).limit(PRUNE_PAGE_SIZE);
+  if (last) query = query.startAfter(last);
+
+  return query.get().then((snapshot) => {
+    const updates = [];
+    snapshot.forEach((doc) => {
+      const data = doc.data();
+      const current = readAvailability(data);
+      const next = pruneAvailability(current, cutoff);
+      const unchanged = (next.bytes.length === 0 && current.bytes.length === 0) ||
+        (next.base === current.base && next.bytes.equals(current.bytes));
+      if (unchanged && !Array.isArray(data.dates)) return;
+
+      // only write if the user has not changed their dates since they were read,
+      // a user that was skipped will be pruned on the next run
+      updates.push(doc.ref.update({
+        availability_base: next.base,
+        availability_bits: next.bytes,
+        dates: admin.firestore.FieldValue.delete()
+      }, { lastUpdateTime: doc.updateTime })
+        .then(() => 1)
+        .catch((err) => {
+          console.log('could not prune ' + doc.id + ': ' + err);
+          return 0;
+        }));
+    });
+
+    return Promise.all(updates).then((results) => {
+      const total = results.reduce((sum, result) => sum + result, pruned);
+      if (snapshot.size < PRUNE_PAGE_SIZE) return total;
+      return prunePage(cutoff, snapshot.docs[snapshot.size - 1], total);
+    });
+  });
+}
+
+// reads the packed availability of a user, converting a legacy list of dates if there is one
+function readAvailability(data) {
+  if (typeof data.availability_base === 'number' && data.availability_bits) {
+    return { base: data.availability_base, bytes: Buffer.from(data.availability_bits) };
+  }
+  const days = (Array.isArray(data.dates) ? data.dates : []).map(parseLegacyDate).filter((day) => day !== null);
+  if (days.length === 0) return { base: 0, bytes: Buffer.alloc(0) };
+
+  const base = alignDown(Math.min.apply(null, days));
+  const bytes = Buffer.alloc((Math.floor((Math.max.apply(null, days) - base) / WORD_BITS) + 1) * 8);
+  days.forEach((day) => {
+    bytes[(day - base) >> 3] |= 1 << ((day - base) & 7);
+  });
+  return { base: base, bytes: bytes };
+}
+
+// drops the days before the cutoff and trims the empty words at either end of the bitset
+function pruneAvailability(availability, cutoff) {
+  const base = Math.max(availability.base, alignDown(cutoff));
+  const bytes = Buffer.from(availability.bytes.slice((base - availability.base) / 8));
+
+  // clear the bits of the days before the cutoff in the first word
+  for (let i = 0; i < cutoff - base && (i >> 3) < bytes.length; i++) {
+    bytes[i >> 3] &= ~(1 << (i & 7));
+  }
+
+  let start = 0;
+  let end = bytes.length / 8;
+  while (start < end && isEmptyWord(bytes, start)) start++;
+  while (end > start && isEmptyWord(bytes, end - 1)) end--;
+  return { base: base + start * WORD_BITS, bytes: bytes.slice(start * 8, end * 8) };
+}
+
+// checks whether all 64 bits of a word are clear
+function isEmptyWord(bytes, word) {
+  for (let i = word * 8; i < word * 8 + 8; i++) {
+    if (bytes[i] !== 0) return false;
+  }
+  return true;
+}
+
+// rounds a day down to the start of its word
+function alignDown(day) {
+  return day - (((day % WORD_BITS) + WORD_BITS) % WORD_BITS);
+}
+
+// parses a legacy "MM/dd/yyyy" string into an epoch day, or null if it is not a valid date
+function parseLegacyDate(date) {
+  const match = /^(\d{1,2})\/(\d{1,2})\/(\d{4})$/.exec(date);
+  if (!match) return null;
+  return Math.floor(Date.UTC(Number(match[3]), Number(match[1]) - 1, Number(match[2])) / DAY_MILLIS);
+}
+
+
+
+/**
+ * Sortable start days of the trips in each user's trips sub-collection
+ * The "MM/dd/yyyy" start date strings do not sort chronologically, so every entry also carries
+ * the epoch day of its start date (start_day), which the app orders its list of trips by.
+ * The app writes start_day itself, these functions fill it in for entries written by older
+ * versions of the app, keep it in step when a trip is edited, and backfill existing entries.
+ * A start date that is not a valid date gets UNKNOWN_START_DAY rather than no start_day, since the
+ * app's ordered query leaves out entries without one.
+ */
+const BACKFILL_PAGE_SIZE = 300;
+// matches Const.UNKNOWN_START_DAY in the app, it sorts after every real day
+const UNKNOWN_START_DAY = -999999;
+
+// keeps start_day in step with start_date whenever an entry is written
+exports.syncTripStartDay = functions.firestore.document('users/{user}/user_trips/{trip}').onWrite((change) => {
+  if (!change.after.exists) return null;
+  const update = startDayUpdate(change.after.data());
+  if (!update) return null;
+  return change.after.ref.update(update);
+});
+
+// copies the title and start date of an edited trip to the trips sub-collection of each tripper
+exports.onTripUpdated = functions.firestore.document('trips/{trip}').onUpdate((change) => {
+  const before = change.before.data();
+  const after = change.after.data();
+  if (before.title === after.title && before.start_date === after.start_date) return null;
+
+  const update = { title: after.title, start_date: after.start_date };
+  const day = parseLegacyDate(after.start_date);
+  update.start_day = day === null ? UNKNOWN_START_DAY : day;
+  return change.after.ref.collection('trippers').get().then((trippers) => {
+    // a tripper may have removed the trip from their list, which must not stop the others
+    const updates = [];
+    trippers.forEach((tripper) => {
+      updates.push(db.collection('users').doc(tripper.id).collection('user_trips').doc(change.after.id)
+        .update(update)
+        .catch((err) => {
+          console.log('could not update the trip of ' + tripper.id + ': ' + err);
+        }));
+    });
+    return Promise.all(updates);
+  });
+});
+
+// one off backfill of start_day, run with "gcloud pubsub topics publish backfill-trip-start-days"
+exports.backfillTripStartDays = functions.pubsub.topic('backfill-trip-start-days').onPublish(() => {
+  return backfillPage(null, 0)
+    .then((filled) => {
+      console.log('backfilled the start day of ' + filled + ' trips');
+      return null;
+    });
+});
+
+// backfills one page of the trips sub-collections, then moves on to the next page
+function backfillPage(last, filled) {
+  let query = db.collectionGroup('user_trips').orderBy(admin.firestore.FieldPath.documentId()).limit(BACKFILL_PAGE_SIZE);
+  if (last) query = query.startAfter(last);
+
+  return query.get().then((snapshot) => {
+    const batch = db.batch();
+    let count = 0;
+    snapshot.forEach((doc) => {
+      const update = startDayUpdate(doc.data());
+      if (!update) return;
+      batch.update(doc.ref, update);
+      count++;
+    });
+
+    return (count > 0 ? batch.commit() : Promise.resolve()).then(() => {
+      if (snapshot.size < BACKFILL_PAGE_SIZE) return filled + count;
+      return backfillPage(snapshot.docs[snapshot.size - 1], filled + count);
+    });
+  });
+}
+
+// returns the update that makes start_day match start_date, or null if it already does
+function startDayUpdate(data) {
+  let day = parseLegacyDate(data.start_date);
+  if (day === null) day = UNKNOWN_START_DAY;
+  return data.start_day === day ? null : { start_day: day };
+}
+
+
+
+/**
+ * Aggregate fields of each trip document
+ * Opening a trip used to need a read of every sub-collection of the trip before its first screen
+ * could be shown. These functions keep a summary of the sub-collections on the trip document
+ * itself, so the first screen is rendered from a single read:
+ *   photo_count, cover_photo    - the number of photos and the path of the newest one
+ *   location_count              - the number of places on the map
+ *   latest_comment              - the newest plan (comment, name, timestamp)
+ *   tripper_names               - the names of the trippers
+ * The counts are incremented, so a photo or location costs a constant number of reads however
+ * large the trip is. Each increment creates a processed_events/{eventId} marker in the same
+ * transaction, so an event that is delivered more than once is only counted once. The markers
+ * carry an expire_at date for a TTL policy on the processed_events collection to clean them up.
+ * The other fields are recomputed from the newest documents inside a transaction that also reads
+ * the trip, so overlapping events are serialized and the last write always sees the latest data.
+ * backfillTripAggregates recomputes everything, run it while the trips are not being edited since
+ * a recount can race with an increment.
+ */
+const AGGREGATE_PAGE_SIZE = 100;
+// how long the marker of a processed event is kept, longer than any retry of the event
+const EVENT_TTL_MILLIS = 7 * 24 * 60 * 60 * 1000;
+
+exports.onTripPhotoCreated = functions.firestore.document('trips/{trip}/photos/{photo}').onCreate((snap, context) => {
+  return incrementCount(context.params.trip, 'photo_count', 1, context.eventId)
+    .then(() => updateCoverPhoto(context.params.trip));
+});
+exports.onTripPhotoDeleted = functions.firestore.document('trips/{trip}/photos/{photo}').onDelete((snap, context) => {
+  return incrementCount(context.params.trip, 'photo_count', -1, context.eventId)
+    .then(() => updateCoverPhoto(context.params.trip));
+});
+
+exports.onTripLocationCreated = functions.firestore.document('trips/{trip}/locations/{location}').onCreate((snap, context) => {
+  return incrementCount(context.params.trip, 'location_count', 1, context.eventId)
+    .then(() => {
+      // older versions of the app still write the location as a "lat,lng" string
+      const update = locationUpdate(snap.data());
+      return update ? snap.ref.update(update) : null;
+    });
+});
+exports.onTripLocationDeleted = functions.firestore.document('trips/{trip}/locations/{location}').onDelete((snap, context) => {
+  return incrementCount(context.params.trip, 'location_count', -1, context.eventId);
+});
+
+exports.onTripCommentWritten = functions.firestore.document('trips/{trip}/comments/{comment}').onWrite((change, context) => {
+  return updateLatestComment(context.params.trip);
+});
+
+exports.onTripTripperWritten = functions.firestore.document('trips/{trip}/trippers/{tripper}').onWrite((change, context) => {
+  return updateTripperNames(context.params.trip);
+});
+
+// one off backfill of the aggregates, run with "gcloud pubsub topics publish backfill-trip-aggregates"
+exports.backfillTripAggregates = functions.pubsub.topic('backfill-trip-aggregates').onPublish(() => {
+  return aggregatePage(null, 0)
+    .then((filled) => {
+      console.log('backfilled the aggregates of ' + filled + ' trips');
+      return null;
+    });
+});
+
+// recomputes the aggregates of one page of trips, then moves on to the next page
+function aggregatePage(last, filled) {
+  let query = db.collection('trips').orderBy(admin.firestore.FieldPath.documentId()).limit(AGGREGATE_PAGE_SIZE);
+  if (last) query = query.startAfter(last);
+
+  return query.get().then((snapshot) => {
+    const updates = [];
+    snapshot.forEach((doc) => {
+      updates.push(Promise.all([
+        recount(doc.id, 'photos', 'photo_count'),
+        recount(doc.id, 'locations', 'location_count'),
+        updateCoverPhoto(doc.id),
+        updateLatestComment(doc.id),
+        updateTripperNames(doc.id)
+      ]));
+    });
+
+    return Promise.all(updates).then(() => {
+      if (snapshot.size < AGGREGATE_PAGE_SIZE) return filled + snapshot.size;
+      return aggregatePage(snapshot.docs[snapshot.size - 1], filled + snapshot.size);
+    });
+  });
+}
+
+// adds delta to a count of a trip unless the event has already been processed
+function incrementCount(tripId, field, delta, eventId) {
+  const tripRef = db.collection('trips').doc(tripId);
+  const eventRef = db.collection('processed_events').doc(eventId);
+  return db.runTransaction((transaction) => {
+    return transaction.getAll(tripRef, eventRef).then((docs) => {
+      if (docs[1].exists) return null;
+      if (!docs[0].exists) {
+        console.log('skipped the aggregates of deleted trip ' + tripId);
+        return null;
+      }
+      const update = {};
+      update[field] = admin.firestore.FieldValue.increment(delta);
+      transaction.update(tripRef, update);
+      transaction.create(eventRef, { trip: tripId, expire_at: new Date(Date.now() + EVENT_TTL_MILLIS) });
+      return null;
+    });
+  });
+}
+
+// counts the documents of a sub-collection of a trip and stores the count on the trip document
+function recount(tripId, collection, field) {
+  return updateTrip(tripId, tripCollection(tripId, collection).select(), (snapshot) => {
+    const update = {};
+    update[field] = snapshot.size;
+    return update;
+  });
+}
+
+// sets the path of the newest photo of a trip as its cover photo
+function updateCoverPhoto(tripId) {
+  return updateTrip(tripId, newest(tripId, 'photos'), (snapshot) => {
+    return { cover_photo: snapshot.empty ? admin.firestore.FieldValue.delete() : snapshot.docs[0].get('photo') };
+  });
+}
+
+// copies the newest comment of a trip to the trip document
+function updateLatestComment(tripId) {
+  return updateTrip(tripId, newest(tripId, 'comments'), (snapshot) => {
+    if (snapshot.empty) return { latest_comment: admin.firestore.FieldValue.delete() };
+    const comment = snapshot.docs[0];
+    return {
+      latest_comment: {
+        comment: comment.get('comment') || '',
+        name: comment.get('name') || '',
+        timestamp: comment.get('timestamp') || 0
+      }
+    };
+  });
+}
+
+// copies the names of the trippers of a trip to the trip document
+function updateTripperNames(tripId) {
+  return updateTrip(tripId, tripCollection(tripId, 'trippers'), (trippers) => {
+    const names = [];
+    trippers.forEach((tripper) => {
+      if (tripper.get('name')) names.push(tripper.get('name'));
+    });
+    return { tripper_names: names };
+  });
+}
+
+// returns a query for the newest document of a sub-collection of a trip
+function newest(tripId, collection) {
+  return tripCollection(tripId, collection).orderBy('timestamp', 'desc').limit(1);
+}
+
+function tripCollection(tripId, collection) {
+  return db.collection('trips').doc(tripId).collection(collection);
+}
+
+// runs the query and writes the fields computed from its results to the trip in one transaction,
+// a trip that has been deleted is skipped
+function updateTrip(tripId, query, fields) {
+  const tripRef = db.collection('trips').doc(tripId);
+  return db.runTransaction((transaction) => {
+    return Promise.all([transaction.get(tripRef), transaction.get(query)]).then((results) => {
+      if (!results[0].exists) {
+        console.log('skipped the aggregates of deleted trip ' + tripId);
+        return null;
+      }
+      transaction.update(tripRef, fields(results[1]));
+      return null;
+    });
+  });
+}
+
+
+
+/**
+ * Locations stored as GeoPoints with a geohash
+ * Locations used to be stored as "latitude,longitude" strings. They are now stored as GeoPoints
+ * together with their geohash, which lets them be found with range queries. The app still reads
+ * the legacy strings, migrateLocations converts the documents that were written before the change.
+ */
+const GEOHASH_BASE32 = '0123456789bcdefghjkmnpqrstuvwxyz';
+const GEOHASH_PRECISION = 10;
+const MIGRATE_PAGE_SIZE = 300;
+
+// one off migration, run with "gcloud pubsub topics publish migrate-locations"
+exports.migrateLocations = functions.pubsub.topic('migrate-locations').onPublish(() => {
+  return migratePage(null, 0)
+    .then((migrated) => {
+      console.log('migrated ' + migrated + ' locations');
+      return null;
+    });
+});
+
+// migrates one page of the locations sub-collections, then moves on to the next page
+function migratePage(last, migrated) {
+  let query = db.collectionGroup('locations').orderBy(admin.firestore.FieldPath.documentId()).limit(MIGRATE_PAGE_SIZE);
+  if (last) query = query.startAfter(last);
+
+  return query.get().then((snapshot) => {
+    const batch = db.batch();
+    let count = 0;
+    snapshot.forEach((doc) => {
+      const update = locationUpdate(doc.data());
+      if (!update) return;
+      batch.update(doc.ref, update);
+      count++;
+    });
+
+    return (count > 0 ? batch.commit() : Promise.resolve()).then(() => {
+      if (snapshot.size < MIGRATE_PAGE_SIZE) return migrated + count;
+      return migratePage(snapshot.docs[snapshot.size - 1], migrated + count);
+    });
+  });
+}
+
+// returns the update that stores a location as a GeoPoint with its geohash, or null if it
+// already is or the location is invalid
+function locationUpdate(data) {
+  let point = data.location;
+  if (typeof point === 'string') {
+    const parts = point.split(',');
+    const lat = Number(parts[0]);
+    const lng = Number(parts[1]);
+    if (parts.length !== 2 || isNaN(lat) || isNaN(lng)) return null;
+    point = new admin.firestore.GeoPoint(lat, lng);
+  } else if (!(point instanceof admin.firestore.GeoPoint)) {
+    return null;
+  }
+  const geohash = encodeGeohash(point.latitude, point.longitude, GEOHASH_PRECISION);
+  if (point === data.location && data.geohash === geohash) return null;
+  return { location: point, geohash: geohash };
+}
+
+// encodes a location as a geohash, the same way as GeoHash in the app
+function encodeGeohash(latitude, longitude, precision) {
+  let minLat = -90, maxLat = 90;
+  let minLng = -180, maxLng = 180;
+  let hash = '';
+  let even = true;
+  while (hash.length < precision) {
+    let value = 0;
+    for (let bit = 0; bit < 5; bit++) {
+      value <<= 1;
+      if (even) {
+        const mid = (minLng + maxLng) / 2;
+        if (longitude >= mid) {
+          value |= 1;
+          minLng = mid;
+        } else maxLng = mid;
+      } else {
+        const mid = (minLat + maxLat) / 2;
+        if (latitude >= mid) {
+          value |= 1;
+          minLat = mid;
+        } else maxLat = mid;
+      }
+      even = !even;
+    }
+    hash += GEOHASH_BASE32[value];
+  }
+  return hash;
+}
+
+
+
+/**
+ * Index of the places of all the trips of each user
+ * Places only exist in the locations sub-collection of each trip, so finding the trips that went
+ * near a spot would mean reading the locations of every trip. Each place is therefore copied to
+ * users/{user}/user_places/{trip}_{location} for every tripper of its trip, together with its
+ * geohash and the title of its trip. A radius search is then a handful of geohash range reads on
+ * a single collection, however many trips the user has been on.
+ */
+const USER_PLACES_PAGE_SIZE = 100;
+// the maximum number of writes Firestore allows in a single batch
+const MAX_BATCH_WRITES = 500;
+
+exports.indexLocationCreated = functions.firestore.document('trips/{trip}/locations/{location}').onCreate((snap, context) => {
+  const tripRef = db.collection('trips').doc(context.params.trip);
+  return Promise.all([tripRef.get(), tripRef.collection('trippers').get()]).then((results) => {
+    const place = userPlaceData(results[0], snap);
+    if (!place) return null;
+    const writes = [];
+    results[1].forEach((tripper) => {
+      writes.push(userPlaceRef(tripper.id, context.params.trip, snap.id).set(place));
+    });
+    return Promise.all(writes);
+  });
+});
+
+exports.indexLocationDeleted = functions.firestore.document('trips/{trip}/locations/{location}').onDelete((snap, context) => {
+  return db.collection('trips').doc(context.params.trip).collection('trippers').get().then((trippers) => {
+    const deletes = [];
+    trippers.forEach((tripper) => {
+      deletes.push(userPlaceRef(tripper.id, context.params.trip, snap.id).delete());
+    });
+    return Promise.all(deletes);
+  });
+});
+
+// copies the places of a trip to a tripper that was added, and removes them from one that left
+exports.indexTripperWritten = functions.firestore.document('trips/{trip}/trippers/{tripper}').onWrite((change, context) => {
+  const tripId = context.params.trip;
+  const userId = context.params.tripper;
+  if (change.before.exists && change.after.exists) return null;
+  if (!change.after.exists) return removeUserPlaces(userId, tripId);
+  return indexTrip(db.collection('trips').doc(tripId), [userId]);
+});
+
+// keeps the trip title of the indexed places in step with the trip
+exports.indexTripUpdated = functions.firestore.document('trips/{trip}').onUpdate((change) => {
+  if (change.before.get('title') === change.after.get('title')) return null;
+  return change.after.ref.collection('trippers').get().then((trippers) => {
+    const updates = [];
+    trippers.forEach((tripper) => {
+      updates.push(userPlacesOfTrip(tripper.id, change.after.id).then((places) => {
+        return commitInBatches(places, (batch, place) => {
+          batch.update(place.ref, { trip_title: change.after.get('title') || '' });
+        });
+      }));
+    });
+    return Promise.all(updates);
+  });
+});
+
+// one off backfill of the index, run with "gcloud pubsub topics publish backfill-user-places"
+exports.backfillUserPlaces = functions.pubsub.topic('backfill-user-places').onPublish(() => {
+  return userPlacesPage(null, 0)
+    .then((indexed) => {
+      console.log('indexed the places of ' + indexed + ' trips');
+      return null;
+    });
+});
+
+// indexes the places of one page of trips, then moves on to the next page
+function userPlacesPage(last, indexed) {
+  let query = db.collection('trips').orderBy(admin.firestore.FieldPath.documentId()).limit(USER_PLACES_PAGE_SIZE);
+  if (last) query = query.startAfter(last);
+
+  return query.get().then((snapshot) => {
+    const trips = snapshot.docs.map((trip) => {
+      return trip.ref.collection('trippers').get().then((trippers) => {
+        return indexTrip(trip.ref, trippers.docs.map((tripper) => tripper.id));
+      });
+    });
+
+    return Promise.all(trips).then(() => {
+      if (snapshot.size < USER_PLACES_PAGE_SIZE) return indexed + snapshot.size;
+      return userPlacesPage(snapshot.docs[snapshot.size - 1], indexed + snapshot.size);
+    });
+  });
+}
+
+// copies every place of a trip to the index of each of the given users
+function indexTrip(tripRef, userIds) {
+  return Promise.all([tripRef.get(), tripRef.collection('locations').get()]).then((results) => {
+    const writes = [];
+    results[1].forEach((location) => {
+      const place = userPlaceData(results[0], location);
+      if (!place) return;
+      userIds.forEach((userId) => {
+        writes.push(userPlaceRef(userId, tripRef.id, location.id).set(place));
+      });
+    });
+    return Promise.all(writes);
+  });
+}
+
+// removes every place of a trip from the index of a user
+function removeUserPlaces(userId, tripId) {
+  return userPlacesOfTrip(userId, tripId).then((places) => {
+    return commitInBatches(places, (batch, place) => batch.delete(place.ref));
+  });
+}
+
+// adds a write for each document to a batch, committing a new batch every MAX_BATCH_WRITES writes
+function commitInBatches(docs, write) {
+  const commits = [];
+  for (let start = 0; start < docs.length; start += MAX_BATCH_WRITES) {
+    const batch = db.batch();
+    docs.slice(start, start + MAX_BATCH_WRITES).forEach((doc) => write(batch, doc));
+    commits.push(batch.commit());
+  }
+  return Promise.all(commits);
+}
+
+// returns the indexed places of a trip in the index of a user
+function userPlacesOfTrip(userId, tripId) {
+  return db.collection('users').doc(userId).collection('user_places')
+    .where('trip_id', '==', tripId)
+    .get()
+    .then((snapshot) => snapshot.docs);
+}
+
+function userPlaceRef(userId, tripId, locationId) {
+  return db.collection('users').doc(userId).collection('user_places').doc(tripId + '_' + locationId);
+}
+
+// returns the data of a place in the index, or null if its location is invalid
+function userPlaceData(trip, location) {
+  const data = location.data();
+  const normalized = locationUpdate(data) || { location: data.location, geohash: data.geohash };
+  if (!(normalized.location instanceof admin.firestore.GeoPoint) || !normalized.geohash) return null;
+  return {
+    trip_id: trip.id,
+    trip_title: (trip.exists && trip.get('title')) || '',
+    name: data.name || '',
+    location: normalized.location,
+    geohash: normalized.geohash,
+    timestamp: data.timestamp || 0
+  };
+}